@@ -18,6 +18,7 @@ import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.commons.lang.StringUtils;
 import org.rabix.backend.local.download.LocalDownloadServiceImpl;
@@ -29,6 +30,7 @@ import org.rabix.bindings.BindingException;
 import org.rabix.bindings.Bindings;
 import org.rabix.bindings.BindingsFactory;
 import org.rabix.bindings.ProtocolType;
+import org.rabix.bindings.expression.javascript.JavascriptEngine;
 import org.rabix.bindings.helper.URIHelper;
 import org.rabix.bindings.mapper.FilePathMapper;
 import org.rabix.bindings.model.Application;
@@ -60,7 +62,7 @@ import org.rabix.engine.rest.service.impl.BackendServiceImpl;
 import org.rabix.engine.rest.service.impl.JobServiceImpl;
 import org.rabix.executor.config.StorageConfiguration;
 import org.rabix.executor.config.impl.DefaultStorageConfiguration;
-import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientLockDecorator;
+import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientDecorator;
 import org.rabix.executor.execution.JobHandlerCommandDispatcher;
 import org.rabix.executor.handler.JobHandler;
 import org.rabix.executor.handler.JobHandlerFactory;
@@ -237,7 +239,7 @@ public class BackendCommandLine {
                 install(new RetryInterceptorModule());
                 install(new FactoryModuleBuilder().implement(JobHandler.class, JobHandlerImpl.class).build(JobHandlerFactory.class));
 
-                bind(DockerClientLockDecorator.class).in(Scopes.SINGLETON);
+                bind(DockerClientDecorator.class).in(Scopes.SINGLETON);
 
                 bind(JobFitter.class).to(JobFitterImpl.class).in(Scopes.SINGLETON);
                 bind(JobDataService.class).to(JobDataServiceImpl.class).in(Scopes.SINGLETON);
@@ -250,6 +252,7 @@ public class BackendCommandLine {
               }
             }
           });
+      JavascriptEngine.configure(injector.getInstance(Configuration.class));
 
       String appUrl = URIHelper.createURI(URIHelper.FILE_URI_SCHEME, appPath);
 
@@ -208,7 +208,7 @@ public class LocalTESExecutorServiceImpl implements ExecutorService {
     try {
       switch (backend.getType()) {
       case LOCAL:
-        engineStub = new EngineStubLocal((BackendLocal) backend, this, configuration);
+        engineStub = new EngineStubLocal((BackendLocal) backend, this, null, configuration);
         break;
       default:
         throw new TransportPluginException("Backend " + backend.getType() + " is not supported.");
@@ -172,7 +172,13 @@ public class CWLRequirementProvider implements ProtocolRequirementProvider {
       return null;
     }
     try {
-      return new ResourceRequirement(cwlResourceRequirement.getCoresMin(cwlJob), null, cwlResourceRequirement.getRamMin(cwlJob), null, null, null, null);
+      Long tmpdirMin = cwlResourceRequirement.getTmpdirMin(cwlJob);
+      Long outdirMin = cwlResourceRequirement.getOutdirMin(cwlJob);
+      Long diskMin = null;
+      if (tmpdirMin != null || outdirMin != null) {
+        diskMin = (tmpdirMin != null ? tmpdirMin : 0) + (outdirMin != null ? outdirMin : 0);
+      }
+      return new ResourceRequirement(cwlResourceRequirement.getCoresMin(cwlJob), null, cwlResourceRequirement.getRamMin(cwlJob), null, diskMin, null, null);
     } catch (CWLExpressionException e) {
       throw new BindingException(e);
     }
@@ -6,8 +6,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.rabix.bindings.cwl.bean.CWLJob;
@@ -20,6 +20,9 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 public class CWLExpressionResolver {
 
@@ -28,20 +31,15 @@ public class CWLExpressionResolver {
   public static String KEY_EXPRESSION_VALUE = "script";
   public static String KEY_EXPRESSION_LANGUAGE = "engine";
   
-  private static String segSymbol = "\\w+";
-  private static String segSingle = "\\['([^']|\\\\')+'\\]";
-  private static String segDouble = "\\[\"([^\"]|\\\\\")+\"\\]";
-  private static String segIndex = "\\[[0-9]+\\]";
-
-  private static String segments = String.format("(.%s|%s|%s|%s)", segSymbol, segSingle, segDouble, segIndex);
-
-  private static String paramRe = String.format("\\$\\((%s)%s*\\)", segSymbol, segments);
-    
-  private static Pattern segPattern = Pattern.compile(segments);
-  private static Pattern pattern = Pattern.compile(paramRe);
-  
   public static final ObjectMapper sortMapper = new ObjectMapper();
   
+  public static final int TEMPLATE_CACHE_SIZE = 10000;
+
+  /**
+   * Parsed parameter references keyed by expression
+   */
+  private static final Cache<String, CWLParameterTemplate> templates = CacheBuilder.newBuilder().maximumSize(TEMPLATE_CACHE_SIZE).build();
+  
   static {
     sortMapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
   }
@@ -77,7 +75,7 @@ public class CWLExpressionResolver {
         if (runtime != null) {
           vars.put("runtime", runtime.toMap());
         }
-        return (T) paramInterpolate((String) expression, vars, true);
+        return (T) paramInterpolate((String) expression, vars);
       }
     }
     return (T) expression;
@@ -87,61 +85,19 @@ public class CWLExpressionResolver {
     return expression instanceof Map<?,?>  && ((Map<?,?>) expression).containsKey(KEY_EXPRESSION_VALUE)  && ((Map<?,?>) expression).containsKey(KEY_EXPRESSION_LANGUAGE);
   }
   
-  private static Object nextSegment(String remaining, Object vars) throws CWLExpressionException {
-    if (vars == null) {
-      return null;
-    }
-    if (!StringUtils.isEmpty(remaining)) {
-      Matcher m = segPattern.matcher(remaining);
-      if (m.find()) {
-        if (m.group(0).startsWith(".")) {
-          return nextSegment(remaining.substring(m.end(0)), ((Map<?, ?>) vars).get(m.group(0).substring(1)));
-        } else if (m.group(0).charAt(1) == '\"' || m.group(0).charAt(1) == '\'') {
-          Character start = m.group(0).charAt(1);
-          String key = m.group(0).substring(2, m.group(0).lastIndexOf(start));
-          key = key.replace("\\'", "'");
-          key = key.replace("\\\"", "\"");
-          return nextSegment(remaining.substring(m.end(0)), ((Map<?, ?>) vars).get(key));
-        } else {
-          String key = m.group(0).substring(1, m.group(0).length());
-          Integer keyInt = Integer.parseInt(key);
-          
-          Object remainingVars = null;
-          if (vars instanceof List<?>) {
-            if (((List<?>) vars).size() <= keyInt) {
-              throw new CWLExpressionException("Could not get value from " + vars + " at position " + keyInt);
-            }
-            remainingVars = ((List<?>) vars).get(keyInt);
-          } else if (vars instanceof Map<?,?>) {
-            remainingVars = ((Map<?,?>) vars).get(keyInt);
-          }
-          return nextSegment(remaining.substring(m.end(0)), remainingVars);
+  private static Object paramInterpolate(final String ex, Map<String, Object> obj) throws CWLExpressionException {
+    CWLParameterTemplate template;
+    try {
+      template = templates.get(ex, new Callable<CWLParameterTemplate>() {
+        @Override
+        public CWLParameterTemplate call() throws Exception {
+          return CWLParameterTemplate.compile(ex);
         }
-      }
-    }
-    return vars;
-  }
-
-  private static Object paramInterpolate(String ex, Map<String, Object> obj, boolean strip) throws CWLExpressionException {
-    Matcher m = pattern.matcher(ex);
-    if (m.find()) {
-      Object leaf = nextSegment(m.group(0).substring(m.end(1) - m.start(0), m.group(0).length() - 1), obj.get(m.group(1)));
-      if (strip && ex.trim().length() == m.group(0).length()) {
-        return leaf;
-      } else {
-        try {
-          String leafStr = sortMapper.writeValueAsString(leaf);
-          if (leafStr.startsWith("\"")) {
-            leafStr = leafStr.substring(1, leafStr.length() - 1);
-          }
-          return ex.substring(0, m.start(0)) + leafStr + paramInterpolate(ex.substring(m.end(0)), obj, false);
-        } catch (JsonProcessingException e) {
-          logger.error("Failed to serialize {} to JSON.", leaf);
-          throw new CWLExpressionException(e);
-        }
-      }
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new CWLExpressionException("Failed to parse " + ex, e.getCause());
     }
-    return ex;
+    return template.evaluate(obj, sortMapper);
   }
   
   private static Object javascriptInterpolate(CWLJob job, Object self, String expression, CWLRuntime runtime, List<String> engineConfigs) throws CWLExpressionException {
@@ -0,0 +1,212 @@
+package org.rabix.bindings.cwl.expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Parameter reference string (e.g. <code>prefix $(inputs.file.path) suffix</code>) parsed into literal parts and
+ * reference accessors. Templates are immutable and can be shared between threads.
+ */
+public class CWLParameterTemplate {
+
+  private final static String segSymbol = "\\w+";
+  private final static String segSingle = "\\['([^']|\\\\')+'\\]";
+  private final static String segDouble = "\\[\"([^\"]|\\\\\")+\"\\]";
+  private final static String segIndex = "\\[[0-9]+\\]";
+
+  private final static String segments = String.format("(.%s|%s|%s|%s)", segSymbol, segSingle, segDouble, segIndex);
+
+  private final static String paramRe = String.format("\\$\\((%s)%s*\\)", segSymbol, segments);
+
+  private final static Pattern segPattern = Pattern.compile(segments);
+  private final static Pattern pattern = Pattern.compile(paramRe);
+
+  private final String expression;
+  private final List<String> literals;
+  private final List<Reference> references;
+  private final boolean single;
+
+  private CWLParameterTemplate(String expression, List<String> literals, List<Reference> references, boolean single) {
+    this.expression = expression;
+    this.literals = literals;
+    this.references = references;
+    this.single = single;
+  }
+
+  /**
+   * Parses expression into template. There is always one literal more than references.
+   */
+  public static CWLParameterTemplate compile(String expression) {
+    List<String> literals = new ArrayList<>();
+    List<Reference> references = new ArrayList<>();
+
+    Matcher m = pattern.matcher(expression);
+    int position = 0;
+    while (m.find()) {
+      literals.add(expression.substring(position, m.start(0)));
+      String path = m.group(0).substring(m.end(1) - m.start(0), m.group(0).length() - 1);
+      references.add(new Reference(m.group(1), parseSegments(path)));
+      position = m.end(0);
+    }
+    literals.add(expression.substring(position));
+
+    boolean single = references.size() == 1 && literals.get(0).trim().isEmpty() && literals.get(1).trim().isEmpty();
+    return new CWLParameterTemplate(expression, Collections.unmodifiableList(literals), Collections.unmodifiableList(references), single);
+  }
+
+  private static List<Segment> parseSegments(String remaining) {
+    List<Segment> segments = new ArrayList<>();
+    Matcher m = segPattern.matcher(remaining);
+    while (m.find()) {
+      String segment = m.group(0);
+      if (segment.startsWith(".")) {
+        segments.add(Segment.key(segment.substring(1)));
+      } else if (segment.charAt(1) == '\"' || segment.charAt(1) == '\'') {
+        char start = segment.charAt(1);
+        String key = segment.substring(2, segment.lastIndexOf(start));
+        key = key.replace("\\'", "'");
+        key = key.replace("\\\"", "\"");
+        segments.add(Segment.key(key));
+      } else {
+        segments.add(Segment.index(segment.substring(1)));
+      }
+    }
+    return Collections.unmodifiableList(segments);
+  }
+
+  /**
+   * Evaluates template. Template with a single reference (and whitespace around it) evaluates to the referenced value,
+   * otherwise values are serialized (strings without quotes) and joined with the literals.
+   */
+  public Object evaluate(Map<String, Object> vars, ObjectMapper mapper) throws CWLExpressionException {
+    if (references.isEmpty()) {
+      return expression;
+    }
+    if (single) {
+      return references.get(0).resolve(vars);
+    }
+    StringBuilder builder = new StringBuilder(expression.length());
+    for (int i = 0; i < references.size(); i++) {
+      builder.append(literals.get(i));
+      appendValue(builder, references.get(i).resolve(vars), mapper);
+    }
+    builder.append(literals.get(literals.size() - 1));
+    return builder.toString();
+  }
+
+  private static void appendValue(StringBuilder builder, Object value, ObjectMapper mapper) throws CWLExpressionException {
+    if (value == null) {
+      builder.append("null");
+      return;
+    }
+    if (value instanceof String && !needsEscaping((String) value)) {
+      builder.append((String) value);
+      return;
+    }
+    if (value instanceof Integer || value instanceof Long || value instanceof Boolean) {
+      builder.append(value);
+      return;
+    }
+    try {
+      String valueStr = mapper.writeValueAsString(value);
+      if (valueStr.startsWith("\"")) {
+        valueStr = valueStr.substring(1, valueStr.length() - 1);
+      }
+      builder.append(valueStr);
+    } catch (JsonProcessingException e) {
+      throw new CWLExpressionException(e);
+    }
+  }
+
+  private static boolean needsEscaping(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x20 || c == '"' || c == '\\') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  /**
+   * Root variable (inputs, self or runtime) followed by segments
+   */
+  private static class Reference {
+    private final String root;
+    private final List<Segment> segments;
+
+    Reference(String root, List<Segment> segments) {
+      this.root = root;
+      this.segments = segments;
+    }
+
+    Object resolve(Map<String, Object> vars) throws CWLExpressionException {
+      Object value = vars.get(root);
+      for (Segment segment : segments) {
+        if (value == null) {
+          return null;
+        }
+        value = segment.resolve(value);
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Map key or list index
+   */
+  private static class Segment {
+    private final String key;
+    private final Integer index;
+    private final String text;
+
+    private Segment(String key, Integer index, String text) {
+      this.key = key;
+      this.index = index;
+      this.text = text;
+    }
+
+    static Segment key(String key) {
+      return new Segment(key, null, key);
+    }
+
+    static Segment index(String text) {
+      try {
+        return new Segment(null, Integer.parseInt(text), text);
+      } catch (NumberFormatException e) {
+        return new Segment(null, null, text);
+      }
+    }
+
+    Object resolve(Object value) throws CWLExpressionException {
+      if (key != null) {
+        return ((Map<?, ?>) value).get(key);
+      }
+      if (index == null) {
+        throw new CWLExpressionException("Invalid index " + text);
+      }
+      Integer keyInt = index;
+      if (value instanceof List<?>) {
+        if (((List<?>) value).size() <= keyInt) {
+          throw new CWLExpressionException("Could not get value from " + value + " at position " + keyInt);
+        }
+        return ((List<?>) value).get(keyInt);
+      } else if (value instanceof Map<?, ?>) {
+        return ((Map<?, ?>) value).get(keyInt);
+      }
+      return null;
+    }
+  }
+
+}
@@ -1,21 +1,14 @@
 package org.rabix.bindings.cwl.expression.javascript;
 
-import java.io.Reader;
-import java.io.StringReader;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.mozilla.javascript.Context;
-import org.mozilla.javascript.NativeJSON;
-import org.mozilla.javascript.Scriptable;
-import org.mozilla.javascript.ScriptableObject;
-import org.mozilla.javascript.Undefined;
 import org.rabix.bindings.cwl.bean.CWLRuntime;
 import org.rabix.bindings.cwl.expression.CWLExpressionException;
-import org.rabix.common.helper.JSONHelper;
-import org.rabix.common.json.BeanSerializer;
-
-import com.fasterxml.jackson.databind.JsonNode;
+import org.rabix.bindings.expression.javascript.JavascriptEngine;
+import org.rabix.bindings.expression.javascript.JavascriptException;
 
 public class CWLExpressionJavascriptResolver {
 
@@ -25,9 +18,6 @@ public class CWLExpressionJavascriptResolver {
   public final static String EXPR_SELF_NAME = "self";
   public final static String EXPR_RUNTIME_NAME = "runtime";
 
-  public final static int OPTIMIZATION_LEVEL = -1;
-  public final static int MAX_STACK_DEPTH = 10;
-
   /**
    * Evaluate JS script (function or statement)
    */
@@ -36,90 +26,23 @@ public class CWLExpressionJavascriptResolver {
     if (trimmedExpr.startsWith("$")) {
       trimmedExpr = trimmedExpr.substring(1);
     }
-    
+
     String function = trimmedExpr;
     if (trimmedExpr.startsWith("{")) {
       function = "(function()%expr)()";
       function = function.replace("%expr", trimmedExpr);
     }
 
-    Context cx = Context.enter();
-    cx.setOptimizationLevel(OPTIMIZATION_LEVEL);
-    cx.setMaximumInterpreterStackDepth(MAX_STACK_DEPTH);
-    cx.setClassShutter(new CWLExpressionDenyAllClassShutter());
-
+    Map<String, Object> variables = new HashMap<>();
+    variables.put(EXPR_CONTEXT_NAME, context);
+    variables.put(EXPR_SELF_NAME, self);
+    variables.put(EXPR_RUNTIME_NAME, runtime);
     try {
-      Scriptable globalScope = cx.initStandardObjects();
-
-      if (engineConfigs != null) {
-        for (int i = 0; i < engineConfigs.size(); i++) {
-          Reader engineConfigReader = new StringReader(engineConfigs.get(i));
-          cx.evaluateReader(globalScope, engineConfigReader, "engineConfig_" + i + ".js", 1, null);
-        }
-      }
-
-      putToScope(EXPR_CONTEXT_NAME, context, cx, globalScope);
-      putToScope(EXPR_SELF_NAME, self, cx, globalScope);
-      putToScope(EXPR_RUNTIME_NAME, runtime, cx, globalScope);
-
-      Scriptable resultScope = cx.newObject(globalScope);
-      resultScope.setPrototype(globalScope);
-      resultScope.setParentScope(globalScope);
-
-      Object result = cx.evaluateString(resultScope, function, "script", 1, null);
-      if (result == null || result instanceof Undefined) {
-        return null;
-      }
-      
-      Object wrappedResult = Context.javaToJS(result, globalScope);
-      putToScope("$result", wrappedResult, cx, globalScope);
-      ScriptableObject.putProperty(globalScope, "$result", wrappedResult);
-
-      String finalFunction = "(function() { " + "           var result = $result;"
-          + "           var type = result instanceof Array? \"array\" : typeof result;"
-          + "           return JSON.stringify({ \"result\" : result, \"type\" : type }); " + "     })()";
-
-      Scriptable wrapScope = cx.newObject(globalScope);
-      wrapScope.setPrototype(globalScope);
-      wrapScope.setParentScope(globalScope);
-      result = cx.evaluateString(wrapScope, finalFunction, "script", 1, null);
-      return castResult(result);
-    } catch (Exception e) {
+      return JavascriptEngine.evaluate(function, variables, engineConfigs, true, TIMEOUT_IN_SECONDS * 1000L);
+    } catch (JavascriptException e) {
       String msg = String.format("Failed evaluating expression %s.", expr);
       throw new CWLExpressionException(msg, e);
-    } finally {
-      Context.exit();
-    }
-  }
-
-  /**
-   * Add object to execution scope
-   */
-  private static void putToScope(String name, Object value, Context cx, Scriptable scope) {
-    if (value != null) {
-      String selfJson = BeanSerializer.serializePartial(value);
-
-      Object json = NativeJSON.parse(cx, scope, selfJson, new org.mozilla.javascript.Callable() {
-        @Override
-        public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
-          return args[1];
-        }
-      });
-      ScriptableObject.putProperty(scope, name, json);
-    } else {
-      ScriptableObject.putProperty(scope, name, null);
-    }
-  }
-
-  /**
-   * Cast result to proper Java object
-   */
-  private static Object castResult(Object result) {
-    if (result == null) {
-      return null;
     }
-    JsonNode node = JSONHelper.readJsonNode(result.toString());
-    return JSONHelper.transformPreserveNull(node.get("result"));
   }
 
 }
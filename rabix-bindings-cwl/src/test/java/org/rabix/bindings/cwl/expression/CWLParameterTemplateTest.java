@@ -0,0 +1,59 @@
+package org.rabix.bindings.cwl.expression;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class CWLParameterTemplateTest {
+
+  private Map<String, Object> vars;
+
+  @BeforeMethod
+  public void before() {
+    Map<String, Object> file = new HashMap<>();
+    file.put("path", "/data/reads.fastq");
+    file.put("size", 10);
+
+    Map<String, Object> inputs = new HashMap<>();
+    inputs.put("file", file);
+    inputs.put("numbers", Arrays.asList(1, 2, 3));
+    inputs.put("quoted key", "a\"b");
+
+    vars = new HashMap<>();
+    vars.put("inputs", inputs);
+    vars.put("self", null);
+  }
+
+  @Test
+  public void testSingleReference() throws CWLExpressionException {
+    Assert.assertEquals(evaluate("$(inputs.file.path)"), "/data/reads.fastq");
+    Assert.assertEquals(evaluate(" $(inputs.numbers[1]) "), 2);
+    Assert.assertEquals(evaluate("$(inputs.numbers)"), Arrays.asList(1, 2, 3));
+    Assert.assertEquals(evaluate("$(self)"), null);
+    Assert.assertEquals(evaluate("$(inputs.missing.path)"), null);
+  }
+
+  @Test
+  public void testInterpolation() throws CWLExpressionException {
+    Assert.assertEquals(evaluate("no references"), "no references");
+    Assert.assertEquals(evaluate("-i $(inputs.file.path) -n $(inputs.numbers)"), "-i /data/reads.fastq -n [1,2,3]");
+    Assert.assertEquals(evaluate("$(inputs.numbers[2]).$(inputs.file.size)"), "3.10");
+    Assert.assertEquals(evaluate("$(inputs['quoted key'])!"), "a\\\"b!");
+    Assert.assertEquals(evaluate("$(inputs.file)x"), "{\"path\":\"/data/reads.fastq\",\"size\":10}x");
+  }
+
+  @Test(expectedExceptions = { CWLExpressionException.class })
+  public void testIndexOutOfBounds() throws CWLExpressionException {
+    evaluate("$(inputs.numbers[5])");
+  }
+
+  private Object evaluate(String expression) throws CWLExpressionException {
+    return CWLParameterTemplate.compile(expression).evaluate(vars, CWLExpressionResolver.sortMapper);
+  }
+
+}
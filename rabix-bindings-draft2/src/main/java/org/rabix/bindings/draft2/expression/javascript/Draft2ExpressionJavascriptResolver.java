@@ -1,22 +1,14 @@
 package org.rabix.bindings.draft2.expression.javascript;
 
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ContextFactory;
-import org.mozilla.javascript.NativeJSON;
-import org.mozilla.javascript.Scriptable;
-import org.mozilla.javascript.ScriptableObject;
-import org.mozilla.javascript.Undefined;
 import org.rabix.bindings.draft2.expression.Draft2ExpressionException;
-import org.rabix.common.helper.JSONHelper;
-import org.rabix.common.json.BeanSerializer;
-
-import com.fasterxml.jackson.databind.JsonNode;
+import org.rabix.bindings.expression.javascript.JavascriptEngine;
+import org.rabix.bindings.expression.javascript.JavascriptException;
 
 public class Draft2ExpressionJavascriptResolver {
 
@@ -25,12 +17,9 @@ public class Draft2ExpressionJavascriptResolver {
   public final static String EXPR_CONTEXT_NAME = "$job";
   public final static String EXPR_SELF_NAME = "$self";
 
-  public final static int OPTIMIZATION_LEVEL = -1;
-  public final static int MAX_STACK_DEPTH = 10;
+  public final static String TEMPLATE_LIBRARY = "underscore-min.js";
 
-  static {
-    ContextFactory.initGlobal(new Draft2ExpressionContextFactory(TIMEOUT_IN_SECONDS));
-  }
+  private static volatile String templateLibrary;
 
   /**
    * Evaluate JS script (function or statement)
@@ -44,87 +33,29 @@ public class Draft2ExpressionJavascriptResolver {
       function = function.replace("%expr", expr);
     }
 
-    Context cx = Context.enter();
-    cx.setOptimizationLevel(OPTIMIZATION_LEVEL);
-    cx.setMaximumInterpreterStackDepth(MAX_STACK_DEPTH);
-    cx.setClassShutter(new Draft2ExpressionDenyAllClassShutter());
-
+    Map<String, Object> variables = new HashMap<>();
+    variables.put(EXPR_CONTEXT_NAME, context);
+    variables.put(EXPR_SELF_NAME, self);
     try {
-      Scriptable globalScope = cx.initStandardObjects();
-
+      List<String> libraries = new ArrayList<>();
       if (includeTemplates) {
-        Reader templateLibReader = new InputStreamReader(Draft2ExpressionJavascriptResolver.class.getResourceAsStream("underscore-min.js"));
-        cx.evaluateReader(globalScope, templateLibReader, "underscore-min.js", 1, null);
+        libraries.add(getTemplateLibrary());
       }
-
       if (engineConfigs != null) {
-        for (int i = 0; i < engineConfigs.size(); i++) {
-          Reader engineConfigReader = new StringReader(engineConfigs.get(i));
-          cx.evaluateReader(globalScope, engineConfigReader, "engineConfig_" + i + ".js", 1, null);
-        }
+        libraries.addAll(engineConfigs);
       }
-
-      putToScope(EXPR_CONTEXT_NAME, context, cx, globalScope);
-      putToScope(EXPR_SELF_NAME, self, cx, globalScope);
-
-      Scriptable resultScope = cx.newObject(globalScope);
-      resultScope.setPrototype(globalScope);
-      resultScope.setParentScope(globalScope);
-
-      Object result = cx.evaluateString(resultScope, function, "script", 1, null);
-      if (result == null || result instanceof Undefined) {
-        return null;
-      }
-      
-      Object wrappedResult = Context.javaToJS(result, globalScope);
-      putToScope("$result", wrappedResult, cx, globalScope);
-      ScriptableObject.putProperty(globalScope, "$result", wrappedResult);
-
-      String finalFunction = "(function() { " + "           var result = $result;"
-          + "           var type = result instanceof Array? \"array\" : typeof result;"
-          + "           return JSON.stringify({ \"result\" : result, \"type\" : type }); " + "     })()";
-
-      Scriptable wrapScope = cx.newObject(globalScope);
-      wrapScope.setPrototype(globalScope);
-      wrapScope.setParentScope(globalScope);
-      result = cx.evaluateString(wrapScope, finalFunction, "script", 1, null);
-      return castResult(result);
-    } catch (Exception e) {
+      return JavascriptEngine.evaluate(function, variables, libraries, false, TIMEOUT_IN_SECONDS * 1000L);
+    } catch (JavascriptException e) {
       String msg = String.format("Failed evaluating expression %s.", expr);
       throw new Draft2ExpressionException(msg, e);
-    } finally {
-      Context.exit();
     }
   }
 
-  /**
-   * Add object to execution scope
-   */
-  private static void putToScope(String name, Object value, Context cx, Scriptable scope) {
-    if (value != null) {
-      String selfJson = BeanSerializer.serializePartial(value);
-
-      Object json = NativeJSON.parse(cx, scope, selfJson, new org.mozilla.javascript.Callable() {
-        @Override
-        public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
-          return args[1];
-        }
-      });
-      ScriptableObject.putProperty(scope, name, json);
-    } else {
-      ScriptableObject.putProperty(scope, name, null);
-    }
-  }
-
-  /**
-   * Cast result to proper Java object
-   */
-  private static Object castResult(Object result) {
-    if (result == null) {
-      return null;
+  private static String getTemplateLibrary() throws JavascriptException {
+    if (templateLibrary == null) {
+      templateLibrary = JavascriptEngine.readLibrary(Draft2ExpressionJavascriptResolver.class, TEMPLATE_LIBRARY);
     }
-    JsonNode node = JSONHelper.readJsonNode(result.toString());
-    return JSONHelper.transform(node.get("result"));
+    return templateLibrary;
   }
 
 }
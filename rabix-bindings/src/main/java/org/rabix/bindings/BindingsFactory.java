@@ -1,21 +1,35 @@
 package org.rabix.bindings;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Comparator;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.apache.commons.lang.NotImplementedException;
+import org.rabix.bindings.helper.URIHelper;
 import org.rabix.bindings.model.Application;
 import org.rabix.bindings.model.Job;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
 public class BindingsFactory {
 
   private final static Logger logger = LoggerFactory.getLogger(BindingsFactory.class);
   
   public static final String MULTIPROTOCOL_KEY = "rabix.multiprotocol";
   
+  public static final String CACHE_SIZE_KEY = "rabix.bindings.cache_size";
+  
+  /**
+   * Detected {@link Bindings} per data URI digest. Data URIs carry the whole application, 
+   * so the digest identifies the content and the entry never goes stale.
+   */
+  private static final Cache<String, Bindings> bindingsCache = CacheBuilder.newBuilder().maximumSize(Long.getLong(CACHE_SIZE_KEY, 1000L)).build();
+  
   private static SortedSet<Bindings> bindings = new TreeSet<>(new Comparator<Bindings>() {
     @Override
     public int compare(Bindings b1, Bindings b2) {
@@ -41,7 +55,30 @@ public class BindingsFactory {
     }
   }
 
-  public static synchronized Bindings create(String appURL) throws BindingException {
+  public static Bindings create(String appURL) throws BindingException {
+    if (!URIHelper.isData(appURL)) {
+      return detect(appURL);
+    }
+    String digest = Hashing.sha256().hashString(appURL, StandardCharsets.UTF_8).toString();
+    
+    Bindings binding = bindingsCache.getIfPresent(digest);
+    if (binding != null) {
+      return binding;
+    }
+    synchronized (BindingsFactory.class) {
+      binding = bindingsCache.getIfPresent(digest);
+      if (binding == null) {
+        binding = detect(appURL);
+        bindingsCache.put(digest, binding);
+      }
+      return binding;
+    }
+  }
+  
+  /**
+   * Tries every registered {@link Bindings} until one loads the application
+   */
+  private static synchronized Bindings detect(String appURL) throws BindingException {
     for (Bindings binding : bindings) {
       try {
         Application app = binding.loadAppObject(appURL);
@@ -65,11 +102,11 @@ public class BindingsFactory {
     throw new BindingException("Cannot find binding for the payload.");
   }
 
-  public static synchronized Bindings create(Job job) throws BindingException {
+  public static Bindings create(Job job) throws BindingException {
     return create(job.getApp());
   }
   
-  public static synchronized Bindings create(ProtocolType protocol) throws BindingException {
+  public static Bindings create(ProtocolType protocol) throws BindingException {
     for(Bindings binding: bindings) {
       if(binding.getProtocolType().equals(protocol)) {
         return binding;
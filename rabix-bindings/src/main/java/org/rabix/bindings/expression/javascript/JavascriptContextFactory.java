@@ -0,0 +1,81 @@
+package org.rabix.bindings.expression.javascript;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+
+/**
+ * Creates sandboxed {@link Context}s. Timeouts are checked by the instruction observer on the evaluating thread.
+ */
+public class JavascriptContextFactory extends ContextFactory {
+
+  private final int optimizationLevel;
+  private final int maxStackDepth;
+
+  public JavascriptContextFactory(int optimizationLevel, int maxStackDepth) {
+    this.optimizationLevel = optimizationLevel;
+    this.maxStackDepth = maxStackDepth;
+  }
+
+  private static class ExpressionContext extends Context {
+    long deadline;
+    long timeoutInMillis;
+
+    ExpressionContext(ContextFactory factory) {
+      // bound to the factory so its instruction observer and features apply
+      super(factory);
+    }
+  }
+
+  protected Context makeContext() {
+    ExpressionContext cx = new ExpressionContext(this);
+    cx.setInstructionObserverThreshold(1000);
+    cx.setOptimizationLevel(optimizationLevel);
+    if (optimizationLevel == -1) {
+      // stack depth can only be limited in interpreted mode
+      cx.setMaximumInterpreterStackDepth(maxStackDepth);
+    }
+    cx.setClassShutter(new JavascriptDenyAllClassShutter());
+    return cx;
+  }
+
+  /**
+   * Starts timer for the current evaluation. Zero or negative timeout disables it.
+   */
+  public void startTimer(Context cx, long timeoutInMillis) {
+    ExpressionContext mcx = (ExpressionContext) cx;
+    mcx.timeoutInMillis = timeoutInMillis;
+    mcx.deadline = timeoutInMillis > 0 ? System.currentTimeMillis() + timeoutInMillis : 0;
+  }
+
+  /**
+   * Checks if the {@link Context} was created by this factory
+   */
+  public boolean owns(Context cx) {
+    return cx instanceof ExpressionContext && cx.getFactory() == this;
+  }
+
+  public boolean hasFeature(Context cx, int featureIndex) {
+    switch (featureIndex) {
+    case Context.FEATURE_NON_ECMA_GET_YEAR:
+      return true;
+    case Context.FEATURE_MEMBER_EXPR_AS_FUNCTION_NAME:
+      return true;
+    case Context.FEATURE_RESERVED_KEYWORD_AS_IDENTIFIER:
+      return true;
+    case Context.FEATURE_PARENT_PROTO_PROPERTIES:
+      return false;
+    case Context.FEATURE_DYNAMIC_SCOPE:
+      // library functions resolve names from the calling scope
+      return true;
+    }
+    return super.hasFeature(cx, featureIndex);
+  }
+
+  protected void observeInstructionCount(Context cx, int instructionCount) {
+    ExpressionContext mcx = (ExpressionContext) cx;
+    if (mcx.deadline > 0 && System.currentTimeMillis() > mcx.deadline) {
+      throw new JavascriptTimeoutException("Script is running more than " + mcx.timeoutInMillis + " milliseconds");
+    }
+  }
+
+}
@@ -1,8 +1,8 @@
-package org.rabix.bindings.sb.expression.javascript;
+package org.rabix.bindings.expression.javascript;
 
 import org.mozilla.javascript.ClassShutter;
 
-public class SBExpressionDenyAllClassShutter implements ClassShutter {
+public class JavascriptDenyAllClassShutter implements ClassShutter {
 
   @Override
   public boolean visibleToScripts(String arg0) {
@@ -0,0 +1,339 @@
+package org.rabix.bindings.expression.javascript;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.io.IOUtils;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeJSON;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import org.rabix.common.helper.JSONHelper;
+import org.rabix.common.json.BeanSerializer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * JavaScript evaluation shared by all bindings.
+ *
+ * Standard objects live in one sealed scope shared by all evaluations. Scripts are compiled once and cached by source.
+ * Each set of libraries is run once in its own sealed scope which is the prototype of every call's scope. Functions are
+ * compiled with dynamic scope, so library functions see the variables of the call they are invoked from.
+ * {@link Context}s are kept per thread. Optimization level (-1 to 9) and script cache size are read from the
+ * {@link Configuration} passed to {@link #configure(Configuration)}; stack depth is only limited in interpreted mode (-1).
+ */
+public class JavascriptEngine {
+
+  public final static String OPTIMIZATION_LEVEL_KEY = "rabix.javascript.optimization_level";
+  public final static String SCRIPT_CACHE_SIZE_KEY = "rabix.javascript.script_cache_size";
+
+  public final static int DEFAULT_OPTIMIZATION_LEVEL = -1;
+  public final static long DEFAULT_SCRIPT_CACHE_SIZE = 10000L;
+  public final static int MAX_STACK_DEPTH = 10;
+
+  private final static int LIBRARY_SCOPE_CACHE_SIZE = 100;
+
+  private static volatile JavascriptContextFactory contextFactory = new JavascriptContextFactory(DEFAULT_OPTIMIZATION_LEVEL, MAX_STACK_DEPTH);
+
+  private final static ThreadLocal<Context> contexts = new ThreadLocal<>();
+
+  /**
+   * Compiled scripts keyed by source. Scripts don't hold any scope so they are shared between threads.
+   */
+  private static volatile Cache<String, Script> scripts = CacheBuilder.newBuilder().maximumSize(DEFAULT_SCRIPT_CACHE_SIZE).build();
+
+  /**
+   * Sealed scopes with libraries already run, keyed by library sources
+   */
+  private static volatile Cache<List<String>, Scriptable> libraryScopes = CacheBuilder.newBuilder().maximumSize(LIBRARY_SCOPE_CACHE_SIZE).build();
+
+  /**
+   * Sealed scope with standard objects (created on first use)
+   */
+  private static volatile ScriptableObject sharedScope;
+
+  /**
+   * Applies configuration. Compiled scripts and library scopes are dropped because they depend on the optimization level.
+   */
+  public static synchronized void configure(Configuration configuration) {
+    int optimizationLevel = configuration.getInt(OPTIMIZATION_LEVEL_KEY, DEFAULT_OPTIMIZATION_LEVEL);
+    long scriptCacheSize = configuration.getLong(SCRIPT_CACHE_SIZE_KEY, DEFAULT_SCRIPT_CACHE_SIZE);
+
+    scripts = CacheBuilder.newBuilder().maximumSize(scriptCacheSize).build();
+    libraryScopes = CacheBuilder.newBuilder().maximumSize(LIBRARY_SCOPE_CACHE_SIZE).build();
+    contextFactory = new JavascriptContextFactory(optimizationLevel, MAX_STACK_DEPTH);
+  }
+
+  /**
+   * Evaluates script with variables put in its scope
+   *
+   * @param script          Script source
+   * @param variables       Variables (name to Java value)
+   * @param libraries       Library sources evaluated before the script (can be null)
+   * @param preserveNull    Keep null values in resulting maps
+   * @param timeoutInMillis Timeout (zero for none)
+   * @return                Result converted to Java maps, lists and primitives
+   */
+  public static Object evaluate(String script, Map<String, Object> variables, List<String> libraries, boolean preserveNull, long timeoutInMillis) throws JavascriptException {
+    JavascriptContextFactory factory = contextFactory;
+    Context cx = enterContext(factory);
+    try {
+      factory.startTimer(cx, timeoutInMillis);
+      Scriptable parentScope = libraries != null && !libraries.isEmpty() ? getLibraryScope(cx, libraries) : getSharedScope(cx);
+
+      Scriptable scope = cx.newObject(parentScope);
+      scope.setPrototype(parentScope);
+      scope.setParentScope(null);
+
+      if (variables != null) {
+        for (Map.Entry<String, Object> variable : variables.entrySet()) {
+          ScriptableObject.putProperty(scope, variable.getKey(), javaToJS(variable.getValue(), cx, scope));
+        }
+      }
+      Object result = getScript(cx, script, "script").exec(cx, scope);
+      return jsToJava(result, cx, scope, preserveNull, Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+    } catch (JavascriptException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new JavascriptException("Failed to evaluate script " + script, e);
+    } finally {
+      Context.exit();
+    }
+  }
+
+  /**
+   * Reads a library from classpath
+   */
+  public static String readLibrary(Class<?> clazz, String name) throws JavascriptException {
+    try (InputStream stream = clazz.getResourceAsStream(name)) {
+      if (stream == null) {
+        throw new JavascriptException("Library " + name + " not found");
+      }
+      return IOUtils.toString(stream, "UTF-8");
+    } catch (IOException e) {
+      throw new JavascriptException("Failed to read library " + name, e);
+    }
+  }
+
+  /**
+   * Enters {@link Context} kept for the current thread. It goes away with the thread.
+   */
+  private static Context enterContext(JavascriptContextFactory factory) {
+    Context cx = contexts.get();
+    if (cx != null && factory.owns(cx)) {
+      return factory.enterContext(cx);
+    }
+    cx = factory.enterContext();
+    if (factory.owns(cx)) {
+      contexts.set(cx);
+    }
+    return cx;
+  }
+
+  /**
+   * Gets sealed scope with standard objects. Sealing covers standard constructors, their prototypes and the scope itself.
+   */
+  private static Scriptable getSharedScope(Context cx) {
+    ScriptableObject scope = sharedScope;
+    if (scope == null) {
+      synchronized (JavascriptEngine.class) {
+        scope = sharedScope;
+        if (scope == null) {
+          scope = cx.initStandardObjects(null, true);
+          scope.sealObject();
+          sharedScope = scope;
+        }
+      }
+    }
+    return scope;
+  }
+
+  /**
+   * Gets sealed scope with libraries run in it. Assignments to library variables made by calls land in the call's own scope;
+   * objects created by libraries are shared, so libraries shouldn't mutate them.
+   */
+  private static Scriptable getLibraryScope(final Context cx, final List<String> libraries) throws Exception {
+    try {
+      return libraryScopes.get(new ArrayList<>(libraries), new Callable<Scriptable>() {
+        @Override
+        public Scriptable call() throws Exception {
+          Scriptable sharedScope = getSharedScope(cx);
+
+          ScriptableObject scope = (ScriptableObject) cx.newObject(sharedScope);
+          scope.setPrototype(sharedScope);
+          scope.setParentScope(null);
+          for (int i = 0; i < libraries.size(); i++) {
+            getScript(cx, libraries.get(i), "engineConfig_" + i + ".js").exec(cx, scope);
+          }
+          scope.sealObject();
+          return scope;
+        }
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  /**
+   * Gets compiled script
+   */
+  private static Script getScript(final Context cx, final String script, final String sourceName) throws Exception {
+    try {
+      return scripts.get(script, new Callable<Script>() {
+        @Override
+        public Script call() throws Exception {
+          return cx.compileString(script, sourceName, 1, null);
+        }
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static Exception unwrap(Exception e) {
+    Throwable cause = e.getCause();
+    return cause instanceof Exception ? (Exception) cause : e;
+  }
+
+  /**
+   * Converts maps, lists and primitives directly. Other beans go through JSON.
+   */
+  @SuppressWarnings("unchecked")
+  private static Object javaToJS(Object value, Context cx, Scriptable scope) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof String || value instanceof Boolean) {
+      return value;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    if (value instanceof Character) {
+      return value.toString();
+    }
+    if (value instanceof Map<?, ?>) {
+      Scriptable object = cx.newObject(scope);
+      for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+        ScriptableObject.putProperty(object, String.valueOf(entry.getKey()), javaToJS(entry.getValue(), cx, scope));
+      }
+      return object;
+    }
+    if (value instanceof List<?>) {
+      List<Object> list = (List<Object>) value;
+      Object[] elements = new Object[list.size()];
+      for (int i = 0; i < elements.length; i++) {
+        elements[i] = javaToJS(list.get(i), cx, scope);
+      }
+      return cx.newArray(scope, elements);
+    }
+    String json = BeanSerializer.serializePartial(value);
+    return NativeJSON.parse(cx, scope, json, new org.mozilla.javascript.Callable() {
+      @Override
+      public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+        return args[1];
+      }
+    });
+  }
+
+  /**
+   * Cast result to proper Java object. Follows JSON semantics: undefined and functions are dropped, nulls are dropped from
+   * arrays (and from objects unless preserveNull is set).
+   */
+  private static Object jsToJava(Object value, Context cx, Scriptable scope, boolean preserveNull, Set<Object> visited) throws JavascriptException {
+    if (value == null || value instanceof Undefined || value == Scriptable.NOT_FOUND || value instanceof Function) {
+      return null;
+    }
+    if (value instanceof CharSequence) {
+      return value.toString();
+    }
+    if (value instanceof Boolean) {
+      return value;
+    }
+    if (value instanceof Number) {
+      return castNumber((Number) value);
+    }
+    if (value instanceof NativeArray) {
+      NativeArray array = (NativeArray) value;
+      enter(array, visited);
+      List<Object> result = new ArrayList<>();
+      for (long i = 0; i < array.getLength(); i++) {
+        Object element = jsToJava(array.get((int) i, array), cx, scope, preserveNull, visited);
+        if (element != null) {
+          result.add(element);
+        }
+      }
+      visited.remove(array);
+      return result;
+    }
+    if (value instanceof NativeObject) {
+      NativeObject object = (NativeObject) value;
+      enter(object, visited);
+      Map<String, Object> result = new HashMap<>();
+      for (Object id : object.getIds()) {
+        Object property = id instanceof Integer ? object.get((Integer) id, object) : object.get(id.toString(), object);
+        if (property instanceof Undefined || property instanceof Function || property == Scriptable.NOT_FOUND) {
+          continue;
+        }
+        Object converted = jsToJava(property, cx, scope, preserveNull, visited);
+        if (converted != null || preserveNull) {
+          result.put(id.toString(), converted);
+        }
+      }
+      visited.remove(object);
+      return result;
+    }
+    // dates, boxed primitives, etc.
+    Object json = NativeJSON.stringify(cx, scope, value, null, null);
+    if (json == null || json instanceof Undefined) {
+      return null;
+    }
+    if (preserveNull) {
+      return JSONHelper.transformPreserveNull(JSONHelper.readJsonNode(json.toString()));
+    }
+    return JSONHelper.transform(JSONHelper.readJsonNode(json.toString()));
+  }
+
+  private static void enter(Object value, Set<Object> visited) throws JavascriptException {
+    if (!visited.add(value)) {
+      throw new JavascriptException("Result contains a cyclic object value");
+    }
+  }
+
+  private static Object castNumber(Number number) {
+    if (number instanceof Integer || number instanceof Long) {
+      return number;
+    }
+    double value = number.doubleValue();
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return null;
+    }
+    if (value == Math.rint(value) && Math.abs(value) < 1e21) {
+      if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+        return (int) value;
+      }
+      if (value >= Long.MIN_VALUE && value <= Long.MAX_VALUE) {
+        return (long) value;
+      }
+    }
+    return value;
+  }
+
+}
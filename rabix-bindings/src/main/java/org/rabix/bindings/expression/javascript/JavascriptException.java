@@ -0,0 +1,18 @@
+package org.rabix.bindings.expression.javascript;
+
+public class JavascriptException extends Exception {
+
+  /**
+   * 
+   */
+  private static final long serialVersionUID = -2385148612093413447L;
+
+  public JavascriptException(String message) {
+    super(message);
+  }
+  
+  public JavascriptException(String message, Throwable e) {
+    super(message, e);
+  }
+
+}
@@ -0,0 +1,18 @@
+package org.rabix.bindings.expression.javascript;
+
+public class JavascriptTimeoutException extends RuntimeException {
+
+  /**
+   * 
+   */
+  private static final long serialVersionUID = 6402961720498376117L;
+
+  public JavascriptTimeoutException(String message) {
+    super(message);
+  }
+  
+  public JavascriptTimeoutException(String message, Throwable e) {
+    super(message, e);
+  }
+
+}
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.rabix.common.helper.CloneHelper;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -46,6 +48,25 @@ public class DirectoryValue extends FileValue {
         fileValue.properties, fileValue.listing, fileValue.format);
   }
   
+  @Override
+  @SuppressWarnings("unchecked")
+  public DirectoryValue deepCopy() {
+    return new DirectoryValue(size, path, location, name, dirname, nameroot, nameext, contents, checksum, (List<FileValue>) CloneHelper.deepCopy(secondaryFiles),
+        (Map<String, Object>) CloneHelper.deepCopy(properties), (List<FileValue>) CloneHelper.deepCopy(listing), format);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public DirectoryValue immutableCopy() {
+    if (immutable) {
+      return this;
+    }
+    DirectoryValue copy = new DirectoryValue(size, path, location, name, dirname, nameroot, nameext, contents, checksum, (List<FileValue>) CloneHelper.immutableCopy(secondaryFiles),
+        (Map<String, Object>) CloneHelper.immutableCopy(properties), (List<FileValue>) CloneHelper.immutableCopy(listing), format);
+    copy.immutable = true;
+    return copy;
+  }
+
   public List<FileValue> getListing() {
     return listing;
   }
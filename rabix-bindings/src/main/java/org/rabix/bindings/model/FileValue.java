@@ -6,7 +6,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.rabix.common.helper.CloneHelper;
+import org.rabix.common.helper.CloneHelper.Copyable;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
@@ -20,7 +24,7 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
     @Type(value = DirectoryValue.class, name = "Directory") })
 @JsonInclude(Include.NON_NULL)
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class FileValue implements Serializable {
+public class FileValue implements Serializable, Copyable {
 
   public static enum FileType {
     File, Directory
@@ -58,6 +62,12 @@ public class FileValue implements Serializable {
   @JsonProperty("properties")
   protected Map<String, Object> properties;
 
+  /**
+   * Set on copies made by {@link #immutableCopy()}. Such values are shared, so setters fail.
+   */
+  @JsonIgnore
+  protected transient boolean immutable;
+
   public FileValue(Long size, String path, String location, String checksum, List<FileValue> secondaryFiles, Map<String, Object> properties, String name) {
     super();
     this.size = size;
@@ -112,11 +122,43 @@ public class FileValue implements Serializable {
         fileValue.properties, fileValue.format);
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public FileValue deepCopy() {
+    return new FileValue(size, path, location, name, dirname, nameroot, nameext, contents, checksum, (List<FileValue>) CloneHelper.deepCopy(secondaryFiles),
+        (Map<String, Object>) CloneHelper.deepCopy(properties), format);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public FileValue immutableCopy() {
+    if (immutable) {
+      return this;
+    }
+    FileValue copy = new FileValue(size, path, location, name, dirname, nameroot, nameext, contents, checksum, (List<FileValue>) CloneHelper.immutableCopy(secondaryFiles),
+        (Map<String, Object>) CloneHelper.immutableCopy(properties), format);
+    copy.immutable = true;
+    return copy;
+  }
+
+  @Override
+  @JsonIgnore
+  public boolean isImmutable() {
+    return immutable;
+  }
+
+  protected void checkMutable() {
+    if (immutable) {
+      throw new UnsupportedOperationException("File value is immutable");
+    }
+  }
+
   public Long getSize() {
     return size;
   }
 
   public void setSize(Long size) {
+    checkMutable();
     this.size = size;
   }
 
@@ -125,6 +167,7 @@ public class FileValue implements Serializable {
   }
 
   public void setPath(String path) {
+    checkMutable();
     this.path = path;
   }
 
@@ -133,6 +176,7 @@ public class FileValue implements Serializable {
   }
 
   public void setLocation(String location) {
+    checkMutable();
     this.location = location;
   }
 
@@ -141,6 +185,7 @@ public class FileValue implements Serializable {
   }
 
   public void setName(String name) {
+    checkMutable();
     this.name = name;
   }
 
@@ -149,6 +194,7 @@ public class FileValue implements Serializable {
   }
 
   public void setDirname(String dirname) {
+    checkMutable();
     this.dirname = dirname;
   }
 
@@ -157,6 +203,7 @@ public class FileValue implements Serializable {
   }
 
   public void setNameroot(String nameroot) {
+    checkMutable();
     this.nameroot = nameroot;
   }
 
@@ -165,6 +212,7 @@ public class FileValue implements Serializable {
   }
 
   public void setNameext(String nameext) {
+    checkMutable();
     this.nameext = nameext;
   }
 
@@ -173,6 +221,7 @@ public class FileValue implements Serializable {
   }
 
   public void setContents(String contents) {
+    checkMutable();
     this.contents = contents;
   }
 
@@ -181,6 +230,7 @@ public class FileValue implements Serializable {
   }
 
   public void setFormat(String format) {
+    checkMutable();
     this.format = format;
   }
 
@@ -189,6 +239,7 @@ public class FileValue implements Serializable {
   }
 
   public void setChecksum(String checksum) {
+    checkMutable();
     this.checksum = checksum;
   }
 
@@ -197,6 +248,7 @@ public class FileValue implements Serializable {
   }
 
   public void setSecondaryFiles(List<FileValue> secondaryFiles) {
+    checkMutable();
     this.secondaryFiles = secondaryFiles;
   }
 
@@ -205,6 +257,7 @@ public class FileValue implements Serializable {
   }
 
   public void setProperties(Map<String, Object> properties) {
+    checkMutable();
     this.properties = properties;
   }
 
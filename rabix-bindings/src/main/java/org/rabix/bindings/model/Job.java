@@ -174,8 +174,14 @@ public class Job {
     return visiblePorts;
   }
   
+  /**
+   * Gets inputs. Values made by {@link CloneHelper#immutableCopy(Object)} are returned as they are, others are copied.
+   */
   @SuppressWarnings("unchecked")
   public Map<String, Object> getInputs() {
+    if (CloneHelper.isImmutable(inputs)) {
+      return inputs;
+    }
     try {
       return (Map<String, Object>) CloneHelper.deepCopy(inputs);
     } catch (Exception e) {
@@ -183,8 +189,14 @@ public class Job {
     }
   }
   
+  /**
+   * Gets outputs. Values made by {@link CloneHelper#immutableCopy(Object)} are returned as they are, others are copied.
+   */
   @SuppressWarnings("unchecked")
   public Map<String, Object> getOutputs() {
+    if (CloneHelper.isImmutable(outputs)) {
+      return outputs;
+    }
     try {
       return (Map<String, Object>) CloneHelper.deepCopy(outputs);
     } catch (Exception e) {
@@ -0,0 +1,104 @@
+package org.rabix.bindings.expression.javascript;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class JavascriptEngineTest {
+
+  @Test
+  public void testVariables() throws JavascriptException {
+    Map<String, Object> inputs = new HashMap<>();
+    inputs.put("size", 3);
+    inputs.put("names", Arrays.asList("a", "b"));
+
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("inputs", inputs);
+    variables.put("self", null);
+
+    Assert.assertEquals(JavascriptEngine.evaluate("inputs.size * 2", variables, null, true, 0), 6);
+    Assert.assertEquals(JavascriptEngine.evaluate("inputs.names.join('-')", variables, null, true, 0), "a-b");
+    Assert.assertEquals(JavascriptEngine.evaluate("self", variables, null, true, 0), null);
+    Assert.assertEquals(JavascriptEngine.evaluate("inputs.size / 2", variables, null, true, 0), 1.5);
+  }
+
+  @Test
+  public void testResult() throws JavascriptException {
+    Map<String, Object> expected = new HashMap<>();
+    expected.put("a", Arrays.<Object>asList(1, "x"));
+    expected.put("b", null);
+    Assert.assertEquals(JavascriptEngine.evaluate("({ a: [1, null, 'x'], b: null, c: undefined, d: function() {} })", null, null, true, 0), expected);
+
+    expected.remove("b");
+    Assert.assertEquals(JavascriptEngine.evaluate("({ a: [1, null, 'x'], b: null })", null, null, false, 0), expected);
+  }
+
+  @Test
+  public void testLibraries() throws JavascriptException {
+    List<String> libraries = Collections.singletonList("function twice(x) { return 2 * x; }");
+    Assert.assertEquals(JavascriptEngine.evaluate("twice(21)", null, libraries, true, 0), 42);
+    Assert.assertEquals(JavascriptEngine.evaluate("twice(1)", null, libraries, true, 0), 2);
+  }
+
+  @Test
+  public void testLibrarySeesVariables() throws JavascriptException {
+    List<String> libraries = Collections.singletonList("var calls = 0; function x() { calls++; return inputs.x + calls; }");
+    for (int i = 1; i <= 2; i++) {
+      Map<String, Object> inputs = new HashMap<>();
+      inputs.put("x", i);
+
+      Map<String, Object> variables = new HashMap<>();
+      variables.put("inputs", inputs);
+      Assert.assertEquals(JavascriptEngine.evaluate("x()", variables, libraries, true, 0), i + 1);
+    }
+  }
+
+  @Test
+  public void testLibraryStateIsNotShared() throws JavascriptException {
+    List<String> libraries = Arrays.asList("var seen = []; function see(x) { seen.push(x); return seen.length; }", "function seeSelf() { return see(self); }");
+    Map<String, Object> variables = new HashMap<>();
+    for (int i = 0; i < 2; i++) {
+      variables.put("self", i);
+      Assert.assertEquals(JavascriptEngine.evaluate("seen = []; seeSelf()", variables, libraries, true, 0), 1);
+    }
+    Assert.assertEquals(JavascriptEngine.evaluate("seen.length", null, libraries, true, 0), 0);
+  }
+
+  @Test
+  public void testSharedScopeIsSealed() throws JavascriptException {
+    try {
+      JavascriptEngine.evaluate("Array.prototype.foo = 1", null, null, true, 0);
+    } catch (JavascriptException e) {
+      // expected
+    }
+    Assert.assertEquals(JavascriptEngine.evaluate("typeof [].foo", null, null, true, 0), "undefined");
+  }
+
+  @Test
+  public void testConfigure() throws JavascriptException {
+    List<String> libraries = Collections.singletonList("function twice(x) { return 2 * x; }");
+
+    Map<String, Object> configuration = new HashMap<>();
+    configuration.put(JavascriptEngine.OPTIMIZATION_LEVEL_KEY, 9);
+    JavascriptEngine.configure(new MapConfiguration(configuration));
+    try {
+      Assert.assertEquals(JavascriptEngine.evaluate("twice(21)", null, libraries, true, 0), 42);
+    } finally {
+      JavascriptEngine.configure(new MapConfiguration(new HashMap<String, Object>()));
+    }
+    Assert.assertEquals(JavascriptEngine.evaluate("twice(21)", null, libraries, true, 0), 42);
+  }
+
+  @Test(expectedExceptions = { JavascriptException.class })
+  public void testTimeout() throws JavascriptException {
+    JavascriptEngine.evaluate("while (true) {}", null, null, true, 100);
+  }
+
+}
@@ -0,0 +1,52 @@
+package org.rabix.bindings.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rabix.common.helper.CloneHelper;
+import org.rabix.common.json.BeanSerializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class FileValueTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testImmutableCopy() {
+    List<FileValue> secondaryFiles = new ArrayList<>();
+    secondaryFiles.add(new FileValue(null, "/data/reads.fastq.bai", null, null, null, null, "reads.fastq.bai"));
+    FileValue file = new FileValue(10L, "/data/reads.fastq", null, null, secondaryFiles, null, "reads.fastq");
+
+    Map<String, Object> inputs = new HashMap<>();
+    inputs.put("reads", file);
+
+    Map<String, Object> immutable = (Map<String, Object>) CloneHelper.immutableCopy(inputs);
+    FileValue immutableFile = (FileValue) immutable.get("reads");
+    Assert.assertEquals(immutableFile, file);
+    Assert.assertTrue(CloneHelper.isImmutable(immutableFile));
+    Assert.assertTrue(CloneHelper.isImmutable(immutableFile.getSecondaryFiles().get(0)));
+    Assert.assertSame(CloneHelper.immutableCopy(immutableFile), immutableFile);
+    Assert.assertFalse(BeanSerializer.serializeFull(immutableFile).contains("immutable"));
+
+    try {
+      immutableFile.setPath("/tmp/reads.fastq");
+      Assert.fail("Immutable file value was modified");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    FileValue mutableFile = (FileValue) CloneHelper.deepCopy(immutableFile);
+    mutableFile.setPath("/tmp/reads.fastq");
+    mutableFile.getSecondaryFiles().get(0).setPath("/tmp/reads.fastq.bai");
+    Assert.assertEquals(immutableFile.getPath(), "/data/reads.fastq");
+    Assert.assertEquals(immutableFile.getSecondaryFiles().get(0).getPath(), "/data/reads.fastq.bai");
+
+    Job job = new Job("app", immutable);
+    Assert.assertSame(job.getInputs(), immutable);
+    Assert.assertNotSame(new Job("app", inputs).getInputs(), inputs);
+  }
+
+}
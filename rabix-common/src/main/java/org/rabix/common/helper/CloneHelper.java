@@ -5,18 +5,160 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Copies JSON-like values (maps, lists, sets, scalars and {@link Copyable} beans) structurally.
+ * Other objects fall back to Java serialization.
+ */
 public class CloneHelper {
 
   private final static Logger logger = LoggerFactory.getLogger(CloneHelper.class);
 
+  /**
+   * Bean that knows how to copy itself (and its nested values)
+   */
+  public static interface Copyable {
+    /**
+     * Creates mutable copy
+     */
+    Object deepCopy();
+
+    /**
+     * Creates copy that can't be modified. Returns this if it is already immutable.
+     */
+    Object immutableCopy();
+
+    boolean isImmutable();
+  }
+
   private CloneHelper() {
   }
 
+  /**
+   * Creates mutable deep copy. Scalars are shared.
+   */
+  @SuppressWarnings("unchecked")
   public static Object deepCopy(Object oldObj) {
+    if (oldObj == null || isScalar(oldObj)) {
+      return oldObj;
+    }
+    if (oldObj instanceof Copyable) {
+      return ((Copyable) oldObj).deepCopy();
+    }
+    Class<?> clazz = oldObj.getClass();
+    if (clazz == HashMap.class || clazz == LinkedHashMap.class || clazz == TreeMap.class || clazz == ImmutableMap.class) {
+      Map<Object, Object> oldMap = (Map<Object, Object>) oldObj;
+      Map<Object, Object> newMap;
+      if (clazz == HashMap.class) {
+        newMap = new HashMap<>(capacity(oldMap.size()));
+      } else if (clazz == TreeMap.class) {
+        newMap = new TreeMap<>(((TreeMap<Object, Object>) oldObj).comparator());
+      } else {
+        newMap = new LinkedHashMap<>(capacity(oldMap.size()));
+      }
+      for (Map.Entry<Object, Object> entry : oldMap.entrySet()) {
+        newMap.put(entry.getKey(), deepCopy(entry.getValue()));
+      }
+      return newMap;
+    }
+    if (clazz == ArrayList.class || clazz == LinkedList.class || clazz == ImmutableList.class) {
+      List<Object> oldList = (List<Object>) oldObj;
+      List<Object> newList = clazz == LinkedList.class ? new LinkedList<>() : new ArrayList<>(oldList.size());
+      for (Object item : oldList) {
+        newList.add(deepCopy(item));
+      }
+      return newList;
+    }
+    if (clazz == HashSet.class || clazz == LinkedHashSet.class || clazz == TreeSet.class) {
+      Set<Object> oldSet = (Set<Object>) oldObj;
+      Set<Object> newSet;
+      if (clazz == HashSet.class) {
+        newSet = new HashSet<>(capacity(oldSet.size()));
+      } else if (clazz == TreeSet.class) {
+        newSet = new TreeSet<>(((TreeSet<Object>) oldObj).comparator());
+      } else {
+        newSet = new LinkedHashSet<>(capacity(oldSet.size()));
+      }
+      for (Object item : oldSet) {
+        newSet.add(deepCopy(item));
+      }
+      return newSet;
+    }
+    return serializationCopy(oldObj);
+  }
+
+  /**
+   * Creates deep copy that can't be modified. Scalars and values that are already immutable (including immutable
+   * {@link Copyable} beans) are shared, so copying an immutable value is free.
+   * {@link #deepCopy(Object)} of an immutable value gives a mutable one.
+   */
+  @SuppressWarnings("unchecked")
+  public static Object immutableCopy(Object oldObj) {
+    if (oldObj == null || isImmutable(oldObj)) {
+      return oldObj;
+    }
+    if (oldObj instanceof Copyable) {
+      return ((Copyable) oldObj).immutableCopy();
+    }
+    if (oldObj instanceof Map<?, ?>) {
+      Map<Object, Object> oldMap = (Map<Object, Object>) oldObj;
+      Map<Object, Object> newMap = new LinkedHashMap<>(capacity(oldMap.size()));
+      for (Map.Entry<Object, Object> entry : oldMap.entrySet()) {
+        newMap.put(entry.getKey(), immutableCopy(entry.getValue()));
+      }
+      return new ImmutableMap<>(newMap);
+    }
+    if (oldObj instanceof List<?>) {
+      List<Object> oldList = (List<Object>) oldObj;
+      List<Object> newList = new ArrayList<>(oldList.size());
+      for (Object item : oldList) {
+        newList.add(immutableCopy(item));
+      }
+      return new ImmutableList<>(newList);
+    }
+    return deepCopy(oldObj);
+  }
+
+  /**
+   * Checks if value is a scalar or created by {@link #immutableCopy(Object)}
+   */
+  public static boolean isImmutable(Object value) {
+    return value == null || isScalar(value) || value instanceof ImmutableMap || value instanceof ImmutableList
+        || (value instanceof Copyable && ((Copyable) value).isImmutable());
+  }
+
+  private static boolean isScalar(Object value) {
+    return value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Boolean
+        || value instanceof Float || value instanceof Short || value instanceof Byte || value instanceof Character
+        || value instanceof BigDecimal || value instanceof BigInteger || value instanceof Enum<?>;
+  }
+
+  private static int capacity(int size) {
+    return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+  }
+
+  private static Object serializationCopy(Object oldObj) {
     ObjectOutputStream oos = null;
     ObjectInputStream ois = null;
     try {
@@ -48,4 +190,62 @@ public class CloneHelper {
     }
   }
 
+  /**
+   * Unmodifiable map with immutable values
+   */
+  private static class ImmutableMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = -4629541836219017834L;
+
+    private final Map<K, V> map;
+
+    ImmutableMap(Map<K, V> map) {
+      this.map = Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public V get(Object key) {
+      return map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      return map.entrySet();
+    }
+  }
+
+  /**
+   * Unmodifiable list with immutable elements
+   */
+  private static class ImmutableList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 5816437218826455913L;
+
+    private final List<E> list;
+
+    ImmutableList(List<E> list) {
+      this.list = list;
+    }
+
+    @Override
+    public E get(int index) {
+      return list.get(index);
+    }
+
+    @Override
+    public int size() {
+      return list.size();
+    }
+  }
+
 }
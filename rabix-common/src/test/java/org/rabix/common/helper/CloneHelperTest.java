@@ -0,0 +1,83 @@
+package org.rabix.common.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class CloneHelperTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDeepCopy() {
+    Map<String, Object> file = new LinkedHashMap<>();
+    file.put("path", "/data/reads.fastq");
+    file.put("size", 10L);
+
+    Map<String, Object> value = new HashMap<>();
+    value.put("files", new ArrayList<Object>(Arrays.asList(file, null)));
+    value.put("flag", true);
+
+    Map<String, Object> copy = (Map<String, Object>) CloneHelper.deepCopy(value);
+    Assert.assertEquals(copy, value);
+    Assert.assertNotSame(copy, value);
+    Assert.assertEquals(copy.getClass(), HashMap.class);
+
+    List<Object> files = (List<Object>) copy.get("files");
+    Assert.assertNotSame(files, value.get("files"));
+    Assert.assertNotSame(files.get(0), file);
+    Assert.assertEquals(files.get(0).getClass(), LinkedHashMap.class);
+
+    ((Map<String, Object>) files.get(0)).put("path", "/tmp/reads.fastq");
+    Assert.assertEquals(file.get("path"), "/data/reads.fastq");
+  }
+
+  @Test
+  public void testFallback() {
+    List<Integer> value = Arrays.asList(1, 2, 3);
+    Object copy = CloneHelper.deepCopy(value);
+    Assert.assertEquals(copy, value);
+    Assert.assertNotSame(copy, value);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testImmutableCopy() {
+    Map<String, Object> file = new HashMap<>();
+    file.put("path", "/data/reads.fastq");
+
+    List<Object> value = new ArrayList<>();
+    value.add(file);
+
+    List<Object> immutable = (List<Object>) CloneHelper.immutableCopy(value);
+    Assert.assertEquals(immutable, value);
+    Assert.assertTrue(CloneHelper.isImmutable(immutable));
+    Assert.assertTrue(CloneHelper.isImmutable(immutable.get(0)));
+    Assert.assertSame(CloneHelper.immutableCopy(immutable), immutable);
+
+    List<Object> wrapper = new ArrayList<>();
+    wrapper.add(immutable);
+    List<Object> wrapperCopy = (List<Object>) CloneHelper.immutableCopy(wrapper);
+    Assert.assertSame(wrapperCopy.get(0), immutable);
+
+    try {
+      ((Map<String, Object>) immutable.get(0)).put("path", "/tmp/reads.fastq");
+      Assert.fail("Immutable value was modified");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    List<Object> mutable = (List<Object>) CloneHelper.deepCopy(immutable);
+    ((Map<String, Object>) mutable.get(0)).put("path", "/tmp/reads.fastq");
+    mutable.add(null);
+    Assert.assertEquals(((Map<String, Object>) immutable.get(0)).get("path"), "/data/reads.fastq");
+    Assert.assertEquals(immutable.size(), 1);
+  }
+
+}
@@ -23,6 +23,7 @@ import org.eclipse.jetty.servlet.ServletHolder;
 import org.glassfish.hk2.api.ServiceLocator;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.servlet.ServletContainer;
+import org.rabix.bindings.expression.javascript.JavascriptEngine;
 import org.rabix.common.config.ConfigModule;
 import org.rabix.engine.EngineModule;
 import org.rabix.engine.rest.api.BackendHTTPService;
@@ -77,6 +78,7 @@ public class ServerBuilder {
     BootstrapUtils.install(locator);
 
     Configuration configuration = injector.getInstance(Configuration.class);
+    JavascriptEngine.configure(configuration);
 
     int enginePort = configuration.getInt(ENGINE_PORT_KEY);
     Server server = new Server(enginePort);
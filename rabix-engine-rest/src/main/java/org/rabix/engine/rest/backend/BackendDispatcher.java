@@ -2,163 +2,404 @@ package org.rabix.engine.rest.backend;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.configuration.Configuration;
+import org.rabix.bindings.BindingException;
+import org.rabix.bindings.Bindings;
+import org.rabix.bindings.BindingsFactory;
 import org.rabix.bindings.model.Job;
 import org.rabix.bindings.model.Job.JobStatus;
+import org.rabix.bindings.model.requirement.ResourceRequirement;
 import org.rabix.common.engine.control.EngineControlFreeMessage;
 import org.rabix.common.engine.control.EngineControlStopMessage;
 import org.rabix.engine.rest.backend.stub.BackendStub;
 import org.rabix.transport.backend.Backend;
+import org.rabix.transport.backend.HeartbeatInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 
+/**
+ * Dispatches ready Jobs to Backends.
+ *
+ * Callers only enqueue Jobs and wake up the dispatcher thread, which drains the queue as soon as there is a Backend to
+ * send to and sends Jobs to each Backend in one batch. Heartbeat checks run on the same thread, so assignment and
+ * re-assignment of Jobs never race and no lock is needed.
+ *
+ * Backends report free CPU and memory in their heartbeats. Each Job is placed by its {@link ResourceRequirement} on a
+ * Backend that can start it right away ({@link Placement}). Resources of a sent Job stay reserved until the Backend
+ * reports it finished, or running and a later heartbeat arrives, since heartbeats don't cover Jobs that are in transit
+ * or queued on the Backend.
+ * Requirements are resolved once per Job on a separate thread,
+ * so expressions never delay heartbeat checks. Jobs that don't fit anywhere wait in the queue until a heartbeat reports
+ * enough free resources (or a Backend has nothing of ours to run). Backends that don't report resources get Jobs
+ * round-robin.
+ */
 public class BackendDispatcher {
 
   private final static Logger logger = LoggerFactory.getLogger(BackendDispatcher.class);
 
   private final static long DEFAULT_HEARTBEAT_PERIOD = TimeUnit.MINUTES.toMillis(2);
+  private final static long DEFAULT_RETRY_PERIOD = TimeUnit.SECONDS.toMillis(1);
   
-  private final List<BackendStub<?,?,?>> backendStubs = new ArrayList<>();
-  private final Map<String, Long> heartbeatInfo = new HashMap<>();
+  public static enum Placement {
+    BEST_FIT,     // Backend with the least resources left after placing the Job
+    SPREAD,       // Backend with the most free resources
+    ROUND_ROBIN
+  }
+
+  private final List<BackendStub<?,?,?>> backendStubs = new CopyOnWriteArrayList<>();
+  private final Map<String, HeartbeatInfo> heartbeatInfo = new ConcurrentHashMap<>();
+
+  /**
+   * Free resources per Backend (last heartbeat minus reservations). Used by the dispatcher thread only.
+   */
+  private final Map<String, BackendCapacity> capacities = new HashMap<>();
+
+  /**
+   * Resources of sent Jobs that are not running yet, by Job ID. Used by the dispatcher thread only.
+   */
+  private final Map<String, Reservation> reservations = new HashMap<>();
 
-  private final Set<Job> freeJobs = new HashSet<>();
-  private final ConcurrentMap<Job, String> jobBackendMapping = new ConcurrentHashMap<>();
+  private final Queue<PendingJob> freeJobs = new ConcurrentLinkedQueue<>();
+  private final JobBackendMapping jobBackendMapping = new JobBackendMapping();
 
-  private ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
-  private ScheduledExecutorService heartbeatService = Executors.newSingleThreadScheduledExecutor();
+  /**
+   * Jobs that didn't fit on any Backend yet, in arrival order. Used by the dispatcher thread only.
+   */
+  private final List<PendingJob> waitingJobs = new LinkedList<>();
 
-  private Lock dispatcherLock = new ReentrantLock(true);
+  private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+  private final ExecutorService requirementResolver = Executors.newSingleThreadExecutor();
+
+  private final AtomicBoolean dispatchScheduled = new AtomicBoolean(false);
+  private final Runnable dispatchTask = new Runnable() {
+    @Override
+    public void run() {
+      // reset before draining so Jobs enqueued in the meantime schedule another run
+      dispatchScheduled.set(false);
+      try {
+        dispatch();
+      } catch (Exception e) {
+        logger.error("Failed to dispatch Jobs", e);
+      }
+    }
+  };
+
+  private final AtomicBoolean retryScheduled = new AtomicBoolean(false);
+  private final Runnable retryTask = new Runnable() {
+    @Override
+    public void run() {
+      retryScheduled.set(false);
+      scheduleDispatch();
+    }
+  };
 
   private int position = 0;
   
   private final long heartbeatPeriod;
+  private final long retryPeriod;
+  private final Placement placement;
   
   @Inject
   public BackendDispatcher(Configuration configuration) {
     this.heartbeatPeriod = configuration.getLong("backend.cleaner.heartbeatPeriodMills", DEFAULT_HEARTBEAT_PERIOD);
+    this.retryPeriod = configuration.getLong("backend.dispatcher.retry_period_ms", DEFAULT_RETRY_PERIOD);
+    this.placement = Placement.valueOf(configuration.getString("backend.dispatcher.placement", Placement.BEST_FIT.name()).toUpperCase());
     start();
   }
 
-  private synchronized void start() {
-    executorService.scheduleAtFixedRate(new Runnable() {
+  private void start() {
+    executorService.scheduleAtFixedRate(new HeartbeatMonitor(), 0, heartbeatPeriod, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Enqueues Jobs for dispatching. Returns false if there are no Backends yet (Jobs are sent once one is added).
+   */
+  public boolean send(final Job... jobs) {
+    requirementResolver.execute(new Runnable() {
       @Override
       public void run() {
-        try {
-          dispatcherLock.lock();
-          if (!backendStubs.isEmpty()) {
-            send(freeJobs.toArray(new Job[] {}));
-            freeJobs.clear();
-          }
-        } finally {
-          dispatcherLock.unlock();
+        for (Job job : jobs) {
+          freeJobs.add(resolve(job));
+        }
+        scheduleDispatch();
+      }
+    });
+    return !backendStubs.isEmpty();
+  }
+  
+  public boolean stop(Job... jobs) {
+    for (Job job : jobs) {
+      String backendId = jobBackendMapping.getBackendId(job.getId());
+      if (backendId != null) {
+        BackendStub<?,?,?> backendStub = getBackendStub(backendId);
+        if (backendStub != null) {
+          backendStub.send(new EngineControlStopMessage(job.getId(), job.getRootId()));
         }
       }
-    }, 0, 10, TimeUnit.SECONDS);
+    }
+    return true;
+  }
+
+  public void addBackendStub(BackendStub<?,?,?> backendStub) {
+    backendStub.start(heartbeatInfo);
+    this.heartbeatInfo.put(backendStub.getBackend().getId(), new HeartbeatInfo(backendStub.getBackend().getId(), System.currentTimeMillis()));
+    this.backendStubs.add(backendStub);
+    scheduleDispatch();
+  }
+  
+  public void freeBackend(Job rootJob) {
+    for (String backendId : jobBackendMapping.getUsedBackendIds(rootJob.getRootId())) {
+      BackendStub<?,?,?> backendStub = getBackendStub(backendId);
+      if (backendStub != null) {
+        backendStub.send(new EngineControlFreeMessage(rootJob.getConfig(), rootJob.getRootId()));
+      }
+    }
+  }
 
-    heartbeatService.scheduleAtFixedRate(new HeartbeatMonitor(), 0, heartbeatPeriod, TimeUnit.MILLISECONDS);
+  /**
+   * Releases reservation of the running Job once the next heartbeat of its Backend arrives (the last one can be older
+   * than the Job)
+   */
+  public void started(final Job job) {
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        Reservation reservation = reservations.get(job.getId());
+        if (reservation != null && reservation.releaseAfter == null) {
+          HeartbeatInfo heartbeat = heartbeatInfo.get(reservation.backendId);
+          reservation.releaseAfter = heartbeat != null ? heartbeat.getTimestamp() : Long.MIN_VALUE;
+        }
+      }
+    });
   }
 
-  public boolean send(Job... jobs) {
-    try {
-      dispatcherLock.lock();
-      for (Job job : jobs) {
-        freeJobs.add(job);
+  /**
+   * Forgets the finished Job
+   */
+  public void remove(final Job job) {
+    this.jobBackendMapping.remove(job.getId());
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (reservations.remove(job.getId()) != null) {
+          scheduleDispatch();
+        }
       }
+    });
+  }
 
-      if (backendStubs.isEmpty()) {
-        return false;
+  /**
+   * Forgets all Jobs of the finished root, including the ones still waiting to be sent
+   */
+  public void removeRoot(final Job rootJob) {
+    this.jobBackendMapping.removeByRoot(rootJob.getRootId());
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        Iterator<PendingJob> iterator = waitingJobs.iterator();
+        while (iterator.hasNext()) {
+          if (rootJob.getRootId().equals(iterator.next().job.getRootId())) {
+            iterator.remove();
+          }
+        }
+        Iterator<Reservation> reservationIterator = reservations.values().iterator();
+        while (reservationIterator.hasNext()) {
+          if (rootJob.getRootId().equals(reservationIterator.next().rootId)) {
+            reservationIterator.remove();
+          }
+        }
       }
+    });
+  }
 
-      Iterator<Job> freeJobIterator = freeJobs.iterator();
-      while (freeJobIterator.hasNext()) {
-        Job freeJob = freeJobIterator.next();
+  private void scheduleDispatch() {
+    if (dispatchScheduled.compareAndSet(false, true)) {
+      executorService.execute(dispatchTask);
+    }
+  }
 
-        if (jobBackendMapping.containsKey(freeJob)) {
-          freeJobIterator.remove();
-          continue;
+  private void scheduleRetry() {
+    if (retryScheduled.compareAndSet(false, true)) {
+      executorService.schedule(retryTask, retryPeriod, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Places waiting and free Jobs and sends them grouped by Backend. Runs on the dispatcher thread only.
+   */
+  private void dispatch() {
+    PendingJob freeJob;
+    while ((freeJob = freeJobs.poll()) != null) {
+      waitingJobs.add(freeJob);
+    }
+    if (backendStubs.isEmpty() || waitingJobs.isEmpty()) {
+      return;
+    }
+    refreshCapacities();
+    Map<BackendStub<?,?,?>, List<Job>> batches = new LinkedHashMap<>();
+
+    Iterator<PendingJob> iterator = waitingJobs.iterator();
+    while (iterator.hasNext()) {
+      PendingJob pendingJob = iterator.next();
+      if (jobBackendMapping.contains(pendingJob.job.getId())) {
+        iterator.remove();
+        continue;
+      }
+      BackendStub<?,?,?> backendStub = selectBackend(pendingJob);
+      if (backendStub == null) {
+        if (!hasFreeCores()) {
+          break;
         }
-        BackendStub<?,?,?> backendStub = nextBackend();
+        continue;
+      }
+      iterator.remove();
+      jobBackendMapping.put(pendingJob.job, backendStub.getBackend().getId());
+      reservations.put(pendingJob.job.getId(), new Reservation(pendingJob, backendStub.getBackend().getId()));
+
+      List<Job> batch = batches.get(backendStub);
+      if (batch == null) {
+        batch = new ArrayList<>();
+        batches.put(backendStub, batch);
+      }
+      batch.add(pendingJob.job);
+    }
 
-        freeJobIterator.remove();
-        jobBackendMapping.put(freeJob, backendStub.getBackend().getId());
-        backendStub.send(freeJob);
-        logger.info("Job {} sent to {}.", freeJob.getId(), backendStub.getBackend().getId());
+    for (Entry<BackendStub<?,?,?>, List<Job>> batch : batches.entrySet()) {
+      String backendId = batch.getKey().getBackend().getId();
+      try {
+        batch.getKey().send(batch.getValue());
+        logger.info("{} Job(s) sent to {}.", batch.getValue().size(), backendId);
+      } catch (Exception e) {
+        logger.error("Failed to send Jobs to " + backendId, e);
       }
-      return true;
-    } finally {
-      dispatcherLock.unlock();
+    }
+    if (!waitingJobs.isEmpty()) {
+      logger.debug("{} Job(s) wait for free resources.", waitingJobs.size());
+      scheduleRetry();
     }
   }
-  
-  public boolean stop(Job... jobs) {
-    try {
-      dispatcherLock.lock();
-      
-      for (Job job : jobs) {
-        String backendId = jobBackendMapping.get(job);
-        if (backendId != null) {
-          BackendStub<?,?,?> backendStub = getBackendStub(backendId);
-          if (backendStub != null) {
-            backendStub.send(new EngineControlStopMessage(job.getId(), job.getRootId()));
-          }
+
+  /**
+   * Free resources from the last heartbeats minus resources of Jobs the heartbeats don't cover yet
+   */
+  private void refreshCapacities() {
+    capacities.clear();
+    for (BackendStub<?,?,?> backendStub : backendStubs) {
+      String backendId = backendStub.getBackend().getId();
+      HeartbeatInfo heartbeat = heartbeatInfo.get(backendId);
+      if (heartbeat != null && heartbeat.getAvailableCores() != null && heartbeat.getAvailableMemory() != null) {
+        capacities.put(backendId, new BackendCapacity(heartbeat.getAvailableCores(), heartbeat.getAvailableMemory()));
+      }
+    }
+    Iterator<Reservation> iterator = reservations.values().iterator();
+    while (iterator.hasNext()) {
+      Reservation reservation = iterator.next();
+      if (reservation.releaseAfter != null) {
+        HeartbeatInfo heartbeat = heartbeatInfo.get(reservation.backendId);
+        if (heartbeat == null || heartbeat.getTimestamp() > reservation.releaseAfter) {
+          iterator.remove();
+          continue;
         }
       }
-      return true;
-    } finally {
-      dispatcherLock.unlock();
+      BackendCapacity capacity = capacities.get(reservation.backendId);
+      if (capacity != null) {
+        capacity.reserve(reservation.cores, reservation.memory);
+      }
     }
   }
 
-  public void addBackendStub(BackendStub<?,?,?> backendStub) {
-    try {
-      dispatcherLock.lock();
-      backendStub.start(heartbeatInfo);
-      this.backendStubs.add(backendStub);
-      this.heartbeatInfo.put(backendStub.getBackend().getId(), System.currentTimeMillis());
-    } finally {
-      dispatcherLock.unlock();
+  /**
+   * Selects Backend for the Job and reserves its resources. Returns null if the Job has to wait.
+   */
+  private BackendStub<?,?,?> selectBackend(PendingJob pendingJob) {
+    if (placement.equals(Placement.ROUND_ROBIN) || capacities.isEmpty()) {
+      return nextBackend();
     }
-  }
-  
-  public void freeBackend(Job rootJob) {
-    Set<BackendStub<?,?,?>> backendStubs = new HashSet<>();
-    
-    synchronized (jobBackendMapping) {
-      for (Entry<Job, String> jobBackendEntry : jobBackendMapping.entrySet()) {
-        if (jobBackendEntry.getKey().getRootId().equals(rootJob.getRootId())) {
-          backendStubs.add(getBackendStub(jobBackendEntry.getValue()));
-        }
+    BackendStub<?,?,?> selected = null;
+    BackendCapacity selectedCapacity = null;
+    for (BackendStub<?,?,?> backendStub : backendStubs) {
+      BackendCapacity capacity = capacities.get(backendStub.getBackend().getId());
+      if (capacity == null || !capacity.fits(pendingJob.cores, pendingJob.memory)) {
+        continue;
       }
-      
-      for (BackendStub<?, ?, ?> backendStub : backendStubs) {
-        backendStub.send(new EngineControlFreeMessage(rootJob.getConfig(), rootJob.getRootId()));
+      if (selected == null || isBetter(capacity, selectedCapacity)) {
+        selected = backendStub;
+        selectedCapacity = capacity;
       }
     }
+    if (selected != null) {
+      selectedCapacity.reserve(pendingJob.cores, pendingJob.memory);
+      return selected;
+    }
+    // a Job bigger than any Backend's free resources still runs on a Backend that has nothing else of ours
+    for (BackendStub<?,?,?> backendStub : backendStubs) {
+      BackendCapacity capacity = capacities.get(backendStub.getBackend().getId());
+      if (capacity != null && jobBackendMapping.count(backendStub.getBackend().getId()) == 0) {
+        capacity.reserve(pendingJob.cores, pendingJob.memory);
+        return backendStub;
+      }
+    }
+    return null;
   }
 
-  public void remove(Job job) {
-    try {
-      dispatcherLock.lock();
-      this.jobBackendMapping.remove(job);
-    } finally {
-      dispatcherLock.unlock();
+  /**
+   * Is there a Backend that can take at least a single core Job
+   */
+  private boolean hasFreeCores() {
+    for (BackendCapacity capacity : capacities.values()) {
+      if (capacity.cores >= 1) {
+        return true;
+      }
     }
+    return false;
+  }
+
+  private boolean isBetter(BackendCapacity capacity, BackendCapacity current) {
+    switch (placement) {
+    case BEST_FIT:
+      return capacity.cores < current.cores || (capacity.cores == current.cores && capacity.memory < current.memory);
+    case SPREAD:
+      return capacity.cores > current.cores || (capacity.cores == current.cores && capacity.memory > current.memory);
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Resolves Job's requirements. Runs on the requirement resolver thread.
+   */
+  private PendingJob resolve(Job job) {
+    ResourceRequirement resourceRequirement = null;
+    if (!placement.equals(Placement.ROUND_ROBIN)) {
+      try {
+        Bindings bindings = BindingsFactory.create(job);
+        resourceRequirement = bindings.getResourceRequirement(job);
+      } catch (BindingException e) {
+        logger.warn("Failed to get resource requirement for Job {}", job.getId());
+      }
+    }
+    // a Job without requirements still occupies a core
+    long cores = resourceRequirement != null && resourceRequirement.getCpuMin() != null ? resourceRequirement.getCpuMin() : 1;
+    long memory = resourceRequirement != null && resourceRequirement.getMemMinMB() != null ? resourceRequirement.getMemMinMB() : 0;
+    return new PendingJob(job, cores, memory);
   }
 
   private BackendStub<?,?,?> nextBackend() {
@@ -180,36 +421,101 @@ public class BackendDispatcher {
     @Override
     public void run() {
       try {
-        dispatcherLock.lock();
         logger.info("Checking Backend heartbeats...");
         
         long currentTime = System.currentTimeMillis();
         for (BackendStub<?,?,?> backendStub : backendStubs) {
           Backend backend = backendStub.getBackend();
 
-          if (currentTime - heartbeatInfo.get(backend.getId()) > heartbeatPeriod) {
+          HeartbeatInfo lastHeartbeat = heartbeatInfo.get(backend.getId());
+          if (lastHeartbeat == null || currentTime - lastHeartbeat.getTimestamp() > heartbeatPeriod) {
             backendStub.stop();
             backendStubs.remove(backendStub);
-            logger.info("Removing Backend {}", backendStub.getBackend().getId());
-            
-            List<Job> jobsToRemove = new ArrayList<>();
-            for (Entry<Job, String> jobBackendEntry : jobBackendMapping.entrySet()) {
-              if (jobBackendEntry.getValue().equals(backend.getId())) {
-                jobsToRemove.add(jobBackendEntry.getKey());
+            heartbeatInfo.remove(backend.getId());
+            capacities.remove(backend.getId());
+            Iterator<Reservation> reservationIterator = reservations.values().iterator();
+            while (reservationIterator.hasNext()) {
+              if (backend.getId().equals(reservationIterator.next().backendId)) {
+                reservationIterator.remove();
               }
             }
+            logger.info("Removing Backend {}", backend.getId());
+            
+            List<Job> jobsToRemove = jobBackendMapping.removeByBackend(backend.getId());
+            List<Job> reassigned = new ArrayList<>(jobsToRemove.size());
             for (Job job : jobsToRemove) {
-              jobBackendMapping.remove(job);
-              freeJobs.add(Job.cloneWithStatus(job, JobStatus.READY));
+              reassigned.add(Job.cloneWithStatus(job, JobStatus.READY));
               logger.info("Reassign Job {} to free Jobs", job.getId());
             }
+            if (!reassigned.isEmpty()) {
+              send(reassigned.toArray(new Job[reassigned.size()]));
+            }
           }
         }
         logger.info("Heartbeats checked");
-      } finally {
-        dispatcherLock.unlock();
+      } catch (Exception e) {
+        logger.error("Failed to check Backend heartbeats", e);
       }
     }
   }
 
+  /**
+   * Job with resolved requirements
+   */
+  private static class PendingJob {
+    final Job job;
+    final long cores;
+    final long memory;
+
+    PendingJob(Job job, long cores, long memory) {
+      this.job = job;
+      this.cores = cores;
+      this.memory = memory;
+    }
+  }
+
+  /**
+   * Resources of a sent Job
+   */
+  private static class Reservation {
+    final String rootId;
+    final String backendId;
+    final long cores;
+    final long memory;
+
+    /**
+     * Timestamp of the last heartbeat when the Job was reported running (null while it's not running)
+     */
+    Long releaseAfter;
+
+    Reservation(PendingJob pendingJob, String backendId) {
+      this.rootId = pendingJob.job.getRootId();
+      this.backendId = backendId;
+      this.cores = pendingJob.cores;
+      this.memory = pendingJob.memory;
+    }
+  }
+
+  /**
+   * Free resources of a Backend
+   */
+  private static class BackendCapacity {
+    long cores;
+    long memory;
+
+    BackendCapacity(long cores, long memory) {
+      this.cores = cores;
+      this.memory = memory;
+    }
+
+    boolean fits(long cores, long memory) {
+      return this.cores >= cores && this.memory >= memory;
+    }
+
+    void reserve(long cores, long memory) {
+      this.cores -= cores;
+      this.memory -= memory;
+    }
+  }
+
 }
@@ -0,0 +1,151 @@
+package org.rabix.engine.rest.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.rabix.bindings.model.Job;
+
+/**
+ * Jobs sent to Backends keyed by Job ID and indexed by root ID and Backend ID, so freeing a root or failing over a
+ * Backend costs time proportional to the affected Jobs only.
+ *
+ * Jobs are removed once they finish. Backends that got Jobs of a root are remembered until the root is removed.
+ */
+public class JobBackendMapping {
+
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private final Map<String, Set<String>> jobsByRoot = new HashMap<>();
+  private final Map<String, Set<String>> jobsByBackend = new HashMap<>();
+  private final Map<String, Set<String>> backendsByRoot = new HashMap<>();
+
+  public synchronized void put(Job job, String backendId) {
+    remove(job.getId());
+
+    entries.put(job.getId(), new Entry(job, backendId));
+    index(jobsByRoot, job.getRootId(), job.getId());
+    index(jobsByBackend, backendId, job.getId());
+    index(backendsByRoot, job.getRootId(), backendId);
+  }
+
+  public synchronized boolean contains(String jobId) {
+    return entries.containsKey(jobId);
+  }
+
+  public synchronized String getBackendId(String jobId) {
+    Entry entry = entries.get(jobId);
+    return entry != null ? entry.backendId : null;
+  }
+
+  /**
+   * Gets IDs of Backends running Jobs of the root
+   */
+  public synchronized Set<String> getBackendIds(String rootId) {
+    Set<String> jobIds = jobsByRoot.get(rootId);
+    if (jobIds == null) {
+      return Collections.emptySet();
+    }
+    Set<String> backendIds = new HashSet<>();
+    for (String jobId : jobIds) {
+      backendIds.add(entries.get(jobId).backendId);
+    }
+    return backendIds;
+  }
+
+  /**
+   * Gets IDs of Backends that got Jobs of the root (including finished ones)
+   */
+  public synchronized Set<String> getUsedBackendIds(String rootId) {
+    Set<String> backendIds = backendsByRoot.get(rootId);
+    return backendIds != null ? new HashSet<>(backendIds) : Collections.<String>emptySet();
+  }
+
+  public synchronized Job remove(String jobId) {
+    Entry entry = entries.remove(jobId);
+    if (entry == null) {
+      return null;
+    }
+    unindex(jobsByRoot, entry.job.getRootId(), jobId);
+    unindex(jobsByBackend, entry.backendId, jobId);
+    return entry.job;
+  }
+
+  /**
+   * Removes all Jobs of the root
+   */
+  public synchronized void removeByRoot(String rootId) {
+    backendsByRoot.remove(rootId);
+    Set<String> jobIds = jobsByRoot.remove(rootId);
+    if (jobIds == null) {
+      return;
+    }
+    for (String jobId : jobIds) {
+      Entry entry = entries.remove(jobId);
+      unindex(jobsByBackend, entry.backendId, jobId);
+    }
+  }
+
+  /**
+   * Number of Jobs sent to the Backend
+   */
+  public synchronized int count(String backendId) {
+    Set<String> jobIds = jobsByBackend.get(backendId);
+    return jobIds != null ? jobIds.size() : 0;
+  }
+
+  /**
+   * Removes and returns all Jobs sent to the Backend
+   */
+  public synchronized List<Job> removeByBackend(String backendId) {
+    Set<String> jobIds = jobsByBackend.remove(backendId);
+    if (jobIds == null) {
+      return Collections.emptyList();
+    }
+    List<Job> jobs = new ArrayList<>(jobIds.size());
+    for (String jobId : jobIds) {
+      Entry entry = entries.remove(jobId);
+      unindex(jobsByRoot, entry.job.getRootId(), jobId);
+      jobs.add(entry.job);
+    }
+    return jobs;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private static void index(Map<String, Set<String>> index, String key, String jobId) {
+    Set<String> jobIds = index.get(key);
+    if (jobIds == null) {
+      jobIds = new HashSet<>();
+      index.put(key, jobIds);
+    }
+    jobIds.add(jobId);
+  }
+
+  private static void unindex(Map<String, Set<String>> index, String key, String jobId) {
+    Set<String> jobIds = index.get(key);
+    if (jobIds != null) {
+      jobIds.remove(jobId);
+      if (jobIds.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private static class Entry {
+    final Job job;
+    final String backendId;
+
+    Entry(Job job, String backendId) {
+      this.job = job;
+      this.backendId = backendId;
+    }
+  }
+
+}
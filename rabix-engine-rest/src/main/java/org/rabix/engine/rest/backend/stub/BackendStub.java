@@ -1,5 +1,6 @@
 package org.rabix.engine.rest.backend.stub;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -34,7 +35,7 @@ public abstract class BackendStub<Q extends TransportQueue, B extends Backend, T
 
   private ExecutorService executorService = Executors.newFixedThreadPool(2);
   
-  public void start(final Map<String, Long> heartbeatInfo) {
+  public void start(final Map<String, HeartbeatInfo> heartbeatInfo) {
     transportPlugin.startReceiver(receiveFromBackendQueue, Job.class, new ReceiveCallback<Job>() {
       @Override
       public void handleReceive(Job job) throws TransportPluginException {
@@ -56,7 +57,7 @@ public abstract class BackendStub<Q extends TransportQueue, B extends Backend, T
           @Override
           public void handleReceive(HeartbeatInfo entity) throws TransportPluginException {
             logger.debug("Got heartbeat info from {}", entity.getId());
-            heartbeatInfo.put(entity.getId(), entity.getTimestamp());
+            heartbeatInfo.put(entity.getId(), entity);
           }
         }, new ErrorCallback() {
           @Override
@@ -74,6 +75,15 @@ public abstract class BackendStub<Q extends TransportQueue, B extends Backend, T
     this.transportPlugin.send(sendToBackendQueue, job);
   }
 
+  /**
+   * Sends batch of Jobs to the Backend. Transports without batch support send them one by one.
+   */
+  public void send(List<Job> jobs) {
+    for (Job job : jobs) {
+      send(job);
+    }
+  }
+
   public Backend getBackend() {
     return backend;
   }
@@ -1,43 +1,253 @@
 package org.rabix.engine.rest.db;
 
-import java.util.HashMap;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.configuration.Configuration;
 import org.rabix.bindings.model.Job;
+import org.rabix.bindings.model.Job.JobStatus;
+import org.rabix.common.json.BeanSerializer;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Jobs indexed by ID and by root ID.
+ *
+ * Finished roots are evicted in order of completion once there are more than the configured number of them, they are
+ * older than the configured age or their (estimated) size goes over the heap budget. Evicted Jobs are optionally kept
+ * in {@link JobFileDB} so they can still be fetched by ID. Retention is off by default, so finished roots stay
+ * available unless a limit is configured.
+ */
 public class JobDB {
 
-  private Map<String, Job> jobs = new HashMap<>();
-  
-  public synchronized void add(Job job) {
-    jobs.put(job.getId(), job);
+  private final static int EVICTED_ROOTS_CACHE_SIZE = 10000;
+
+  private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, RootJobs> jobsByRoot = new ConcurrentHashMap<>();
+
+  /**
+   * Finished roots in order of completion
+   */
+  private final LinkedHashMap<String, FinishedRoot> finishedRoots = new LinkedHashMap<>();
+  private long finishedRootsSize = 0;
+
+  /**
+   * Recently evicted roots. Late updates of their Jobs bypass the memory.
+   */
+  private final Cache<String, Boolean> evictedRoots = CacheBuilder.newBuilder().maximumSize(EVICTED_ROOTS_CACHE_SIZE).build();
+
+  private final int maxFinishedRoots;
+  private final long maxAgeMills;
+  private final long maxHeapBytes;
+  private final JobFileDB jobFileDB;
+
+  @Inject
+  public JobDB(Configuration configuration) {
+    this(configuration.getInt("engine.jobdb.retention.max_finished_roots", 0),
+        configuration.getLong("engine.jobdb.retention.max_age_mills", 0),
+        configuration.getLong("engine.jobdb.retention.max_heap_mb", 0),
+        configuration.getString("engine.jobdb.spill.directory", null) != null ? new JobFileDB(new File(configuration.getString("engine.jobdb.spill.directory"))) : null);
+  }
+
+  /**
+   * @param maxFinishedRoots Maximum number of finished roots kept in memory (zero or less for unlimited)
+   * @param maxAgeMills      Maximum time finished root is kept in memory (zero or less for unlimited)
+   * @param maxHeapMB        Maximum estimated size of finished roots kept in memory (zero or less for unlimited)
+   * @param jobFileDB        Store for evicted Jobs (can be null)
+   */
+  public JobDB(int maxFinishedRoots, long maxAgeMills, long maxHeapMB, JobFileDB jobFileDB) {
+    this.maxFinishedRoots = maxFinishedRoots;
+    this.maxAgeMills = maxAgeMills;
+    this.maxHeapBytes = maxHeapMB * 1024 * 1024;
+    this.jobFileDB = jobFileDB;
+
+    if (maxAgeMills > 0) {
+      ScheduledExecutorService evictionService = Executors.newSingleThreadScheduledExecutor();
+      evictionService.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          evict();
+        }
+      }, 1, 1, TimeUnit.MINUTES);
+    }
   }
   
-  public synchronized void update(Job job) {
-    jobs.put(job.getId(), job);
+  public void add(Job job) {
+    update(job);
   }
   
-  public synchronized Job get(String id) {
-    return jobs.get(id);
+  public void update(Job job) {
+    String rootId = job.getRootId();
+
+    RootJobs rootJobs = jobsByRoot.get(rootId);
+    if (rootJobs == null) {
+      RootJobs newRootJobs = new RootJobs();
+      rootJobs = jobsByRoot.putIfAbsent(rootId, newRootJobs);
+      if (rootJobs == null) {
+        rootJobs = newRootJobs;
+      }
+    }
+    synchronized (rootJobs) {
+      if (rootJobs.evicted || evictedRoots.getIfPresent(rootId) != null) {
+        if (rootJobs.jobIds.isEmpty()) {
+          jobsByRoot.remove(rootId, rootJobs);
+        }
+        if (jobFileDB != null) {
+          jobFileDB.save(Collections.singleton(job));
+        }
+        return;
+      }
+      jobs.put(job.getId(), job);
+      rootJobs.jobIds.add(job.getId());
+    }
+    if (job.isRoot() && job.getStatus() != null && isFinished(job.getStatus())) {
+      finished(job);
+    }
   }
   
-  public synchronized Set<Job> getJobs() {
-    Set<Job> jobSet = new HashSet<>();
-    for (Job job : jobs.values()) {
-      jobSet.add(job);
+  public Job get(String id) {
+    Job job = jobs.get(id);
+    if (job == null && jobFileDB != null) {
+      return jobFileDB.get(id);
     }
-    return jobSet;
+    return job;
   }
   
-  public synchronized Set<Job> getJobs(String rootId) {
+  /**
+   * Gets Jobs kept in memory
+   */
+  public Set<Job> getJobs() {
+    return new HashSet<>(jobs.values());
+  }
+  
+  /**
+   * Gets Jobs of the root. Returns empty set for evicted roots.
+   */
+  public Set<Job> getJobs(String rootId) {
     Set<Job> jobSet = new HashSet<>();
-    for (Job job : jobs.values()) {
-      if (job.getRootId().equals(rootId)) {
-        jobSet.add(job);
+    RootJobs rootJobs = jobsByRoot.get(rootId);
+    if (rootJobs == null) {
+      return jobSet;
+    }
+    synchronized (rootJobs) {
+      for (String jobId : rootJobs.jobIds) {
+        Job job = jobs.get(jobId);
+        if (job != null) {
+          jobSet.add(job);
+        }
       }
     }
     return jobSet;
   }
+
+  private void finished(Job rootJob) {
+    synchronized (finishedRoots) {
+      if (finishedRoots.containsKey(rootJob.getId())) {
+        return;
+      }
+      long size = maxHeapBytes > 0 ? estimateSize(rootJob.getRootId()) : 0;
+      finishedRoots.put(rootJob.getId(), new FinishedRoot(System.currentTimeMillis(), size));
+      finishedRootsSize += size;
+    }
+    evict();
+  }
+
+  private void evict() {
+    List<String> rootIds = new ArrayList<>();
+    synchronized (finishedRoots) {
+      long currentTime = System.currentTimeMillis();
+
+      Iterator<Map.Entry<String, FinishedRoot>> iterator = finishedRoots.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, FinishedRoot> entry = iterator.next();
+        boolean overCount = maxFinishedRoots > 0 && finishedRoots.size() > maxFinishedRoots;
+        boolean overAge = maxAgeMills > 0 && currentTime - entry.getValue().finishedAt > maxAgeMills;
+        boolean overHeap = maxHeapBytes > 0 && finishedRootsSize > maxHeapBytes;
+        if (!overCount && !overAge && !overHeap) {
+          break;
+        }
+        iterator.remove();
+        finishedRootsSize -= entry.getValue().size;
+        rootIds.add(entry.getKey());
+      }
+    }
+    for (String rootId : rootIds) {
+      evict(rootId);
+    }
+  }
+
+  private void evict(String rootId) {
+    RootJobs rootJobs = jobsByRoot.get(rootId);
+    if (rootJobs == null) {
+      return;
+    }
+    List<Job> evictedJobs = new ArrayList<>();
+    synchronized (rootJobs) {
+      rootJobs.evicted = true;
+      evictedRoots.put(rootId, Boolean.TRUE);
+      for (String jobId : rootJobs.jobIds) {
+        Job job = jobs.remove(jobId);
+        if (job != null) {
+          evictedJobs.add(job);
+        }
+      }
+      rootJobs.jobIds.clear();
+    }
+    jobsByRoot.remove(rootId, rootJobs);
+    if (jobFileDB != null) {
+      jobFileDB.save(evictedJobs);
+    }
+  }
+
+  /**
+   * Estimates heap size of root Jobs by size of their JSON
+   */
+  private long estimateSize(String rootId) {
+    long size = 0;
+    for (Job job : getJobs(rootId)) {
+      size += BeanSerializer.serializeFull(job).length() * 2;
+    }
+    return size;
+  }
+
+  private boolean isFinished(JobStatus status) {
+    switch (status) {
+    case COMPLETED:
+    case FAILED:
+    case ABORTED:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static class RootJobs {
+    final Set<String> jobIds = new HashSet<>();
+    boolean evicted = false;
+  }
+
+  private static class FinishedRoot {
+    final long finishedAt;
+    final long size;
+
+    FinishedRoot(long finishedAt, long size) {
+      this.finishedAt = finishedAt;
+      this.size = size;
+    }
+  }
+
 }
@@ -0,0 +1,89 @@
+package org.rabix.engine.rest.db;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.rabix.bindings.model.Job;
+import org.rabix.common.json.BeanSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk store for Jobs evicted from {@link JobDB}. One JSON file per Job, written in the background.
+ */
+public class JobFileDB {
+
+  private final static Logger logger = LoggerFactory.getLogger(JobFileDB.class);
+
+  private final File directory;
+
+  /**
+   * Jobs queued for writing, so they can be read before they hit the disk
+   */
+  private final Map<String, Job> pendingJobs = new ConcurrentHashMap<>();
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+  public JobFileDB(File directory) {
+    this.directory = directory;
+    if (!directory.exists() && !directory.mkdirs()) {
+      logger.error("Failed to create directory {}", directory.getAbsolutePath());
+    }
+  }
+
+  public void save(Collection<Job> jobs) {
+    final List<Job> batch = new ArrayList<>(jobs);
+    for (Job job : batch) {
+      pendingJobs.put(job.getId(), job);
+    }
+    executorService.submit(new Runnable() {
+      @Override
+      public void run() {
+        for (Job job : batch) {
+          try {
+            File file = getFile(job.getId());
+            File tmpFile = new File(directory, file.getName() + ".tmp");
+            BeanSerializer.serializeFull(tmpFile, job);
+            if (!tmpFile.renameTo(file)) {
+              // renameTo doesn't overwrite on every platform
+              file.delete();
+              tmpFile.renameTo(file);
+            }
+          } catch (Exception e) {
+            logger.error("Failed to save Job " + job.getId(), e);
+          } finally {
+            pendingJobs.remove(job.getId(), job);
+          }
+        }
+      }
+    });
+  }
+
+  public Job get(String id) {
+    Job job = pendingJobs.get(id);
+    if (job != null) {
+      return job;
+    }
+    File file = getFile(id);
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      return BeanSerializer.deserialize(FileUtils.readFileToString(file, "UTF-8"), Job.class);
+    } catch (Exception e) {
+      logger.error("Failed to read Job " + id, e);
+      return null;
+    }
+  }
+
+  private File getFile(String id) {
+    return new File(directory, id.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+  }
+
+}
@@ -4,6 +4,10 @@ public class JobServiceException extends Exception {
 
   private static final long serialVersionUID = -2835280587065759785L;
 
+  public JobServiceException(String message) {
+    super(message);
+  }
+
   public JobServiceException(String message, Throwable t) {
     super(message, t);
   }
@@ -85,6 +85,11 @@ public class JobServiceImpl implements JobService {
   public void update(Job job) throws JobServiceException {
     logger.debug("Update Job {}", job.getId());
     
+    if (isFinished(job.getStatus())) {
+      backendDispatcher.remove(job);
+    } else if (JobStatus.RUNNING.equals(job.getStatus())) {
+      backendDispatcher.started(job);
+    }
     JobRecord jobRecord = jobRecordService.find(job.getName(), job.getRootId());
     try {
       JobStatusEvent statusEvent = null;
@@ -160,6 +165,9 @@ public class JobServiceImpl implements JobService {
     logger.debug("Stop Job {}", id);
     
     Job job = jobDB.get(id);
+    if (job == null) {
+      throw new JobServiceException("Job " + id + " not found");
+    }
     if (job.isRoot()) {
       Set<Job> jobs = jobDB.getJobs(id);
       backendDispatcher.stop(jobs.toArray(new Job[jobs.size()]));
@@ -183,6 +191,17 @@ public class JobServiceImpl implements JobService {
     return jobDB.get(id);
   }
 
+  private static boolean isFinished(JobStatus jobStatus) {
+    switch (jobStatus) {
+    case COMPLETED:
+    case FAILED:
+    case ABORTED:
+      return true;
+    default:
+      return false;
+    }
+  }
+
   private class EngineStatusCallbackImpl implements EngineStatusCallback {
 
     private boolean stopOnFail;
@@ -268,17 +287,6 @@ public class JobServiceImpl implements JobService {
         }
       }
     }
-    
-    private boolean isFinished(JobStatus jobStatus) {
-      switch (jobStatus) {
-      case COMPLETED:
-      case FAILED:
-      case ABORTED:
-        return true;
-      default:
-        return false;
-      }
-    }
 
     @Override
     public void onJobRootCompleted(Job job) throws EngineStatusCallbackException {
@@ -292,6 +300,8 @@ public class JobServiceImpl implements JobService {
         }
       }
       
+      backendDispatcher.removeRoot(job);
+
       job = Job.cloneWithStatus(job, JobStatus.COMPLETED);
       job = JobHelper.fillOutputs(job, jobRecordService, variableRecordService);
       jobDB.update(job);
@@ -314,7 +324,7 @@ public class JobServiceImpl implements JobService {
         job = Job.cloneWithStatus(job, JobStatus.FAILED);
         jobDB.update(job);
 
-        backendDispatcher.remove(job);
+        backendDispatcher.removeRoot(job);
         stoppingRootIds.remove(job.getId());
         logger.info("Root Job {} failed. Failed {}.", job.getId(), failCount.incrementAndGet());
       }
@@ -0,0 +1,105 @@
+package org.rabix.engine.rest.backend;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.rabix.bindings.helper.URIHelper;
+import org.rabix.bindings.model.Job;
+import org.rabix.bindings.model.Job.JobStatus;
+import org.rabix.common.helper.ResourceHelper;
+import org.rabix.engine.rest.backend.stub.BackendStub;
+import org.rabix.transport.backend.HeartbeatInfo;
+import org.rabix.transport.backend.impl.BackendLocal;
+import org.rabix.transport.mechanism.impl.local.TransportPluginLocal;
+import org.rabix.transport.mechanism.impl.local.TransportQueueLocal;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class BackendDispatcherTest {
+
+  private final static long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+  private final static long SETTLE_MILLIS = 300;
+
+  @Test
+  public void testSentJobsStayReserved() throws Exception {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("backend.dispatcher.retry_period_ms", 20);
+    BackendDispatcher dispatcher = new BackendDispatcher(new MapConfiguration(properties));
+
+    FakeBackendStub backendStub = new FakeBackendStub("backend1");
+    dispatcher.addBackendStub(backendStub);
+    backendStub.heartbeat(4, 4000);
+
+    String app = URIHelper.createDataURI(ResourceHelper.readResource(BackendDispatcherTest.class, "tool.cwl"));
+    Job[] jobs = new Job[8];
+    for (int i = 0; i < jobs.length; i++) {
+      jobs[i] = new Job("job" + i, "root", "root", "job" + i, app, JobStatus.READY, null, null, null, null, null, null);
+    }
+    dispatcher.send(jobs);
+    awaitSent(backendStub, 4);
+
+    // the Backend hasn't received them yet, so it still reports everything free
+    backendStub.heartbeat(4, 4000);
+    awaitSent(backendStub, 4);
+
+    // two are running, but the last heartbeat is older than that
+    dispatcher.started(jobs[0]);
+    dispatcher.started(jobs[1]);
+    awaitSent(backendStub, 4);
+
+    // the running ones are covered by the heartbeat now, two are still in transit
+    backendStub.heartbeat(2, 3800);
+    awaitSent(backendStub, 4);
+
+    dispatcher.remove(Job.cloneWithStatus(jobs[0], JobStatus.COMPLETED));
+    backendStub.heartbeat(3, 3900);
+    awaitSent(backendStub, 5);
+  }
+
+  /**
+   * Waits until the expected number of Jobs is sent and checks that no more follow
+   */
+  private void awaitSent(FakeBackendStub backendStub, int expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (backendStub.sent.size() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(SETTLE_MILLIS);
+    Assert.assertEquals(backendStub.sent.size(), expected);
+  }
+
+  /**
+   * Backend that records sent Jobs. Heartbeats are set by the test.
+   */
+  private static class FakeBackendStub extends BackendStub<TransportQueueLocal, BackendLocal, TransportPluginLocal> {
+
+    private final List<Job> sent = new CopyOnWriteArrayList<>();
+    private Map<String, HeartbeatInfo> heartbeatInfo;
+
+    FakeBackendStub(String id) {
+      this.backend = new BackendLocal();
+      this.backend.setId(id);
+    }
+
+    @Override
+    public void start(Map<String, HeartbeatInfo> heartbeatInfo) {
+      this.heartbeatInfo = heartbeatInfo;
+    }
+
+    @Override
+    public void send(List<Job> jobs) {
+      sent.addAll(jobs);
+    }
+
+    void heartbeat(long cores, long memory) throws InterruptedException {
+      Thread.sleep(2); // newer timestamp
+      heartbeatInfo.put(backend.getId(), new HeartbeatInfo(backend.getId(), System.currentTimeMillis(), cores, memory));
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+package org.rabix.engine.rest.backend;
+
+import java.util.List;
+import java.util.Set;
+
+import org.rabix.bindings.model.Job;
+import org.rabix.bindings.model.Job.JobStatus;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class JobBackendMappingTest {
+
+  private final static int JOBS = 200000;
+  private final static int ROOTS = 1000;
+  private final static int BACKENDS = 8;
+
+  private JobBackendMapping mapping;
+
+  @BeforeMethod
+  public void setUp() {
+    mapping = new JobBackendMapping();
+    for (int i = 0; i < JOBS; i++) {
+      mapping.put(job("job" + i, "root" + (i % ROOTS)), "backend" + (i % BACKENDS));
+    }
+  }
+
+  @Test
+  public void testLookup() {
+    Assert.assertEquals(mapping.size(), JOBS);
+    Assert.assertTrue(mapping.contains("job42"));
+    Assert.assertEquals(mapping.getBackendId("job42"), "backend2");
+    Assert.assertNull(mapping.getBackendId("missing"));
+
+    // jobs of a root land on backends (root % 8)
+    Set<String> backendIds = mapping.getBackendIds("root3");
+    Assert.assertEquals(backendIds.size(), 1);
+    Assert.assertTrue(backendIds.contains("backend3"));
+    Assert.assertTrue(mapping.getBackendIds("missing").isEmpty());
+  }
+
+  @Test
+  public void testRemove() {
+    Job job = mapping.remove("job42");
+    Assert.assertEquals(job.getId(), "job42");
+    Assert.assertNull(mapping.remove("job42"));
+    Assert.assertFalse(mapping.contains("job42"));
+    Assert.assertEquals(mapping.size(), JOBS - 1);
+
+    for (int i = 42; i < JOBS; i += ROOTS) {
+      mapping.remove("job" + i);
+    }
+    Assert.assertTrue(mapping.getBackendIds("root42").isEmpty());
+  }
+
+  @Test
+  public void testRemoveByBackend() {
+    Assert.assertEquals(mapping.count("backend5"), JOBS / BACKENDS);
+    List<Job> jobs = mapping.removeByBackend("backend5");
+    Assert.assertEquals(mapping.count("backend5"), 0);
+    Assert.assertEquals(jobs.size(), JOBS / BACKENDS);
+    Assert.assertEquals(mapping.size(), JOBS - JOBS / BACKENDS);
+    Assert.assertFalse(mapping.contains("job5"));
+    Assert.assertTrue(mapping.getBackendIds("root5").isEmpty());
+    Assert.assertTrue(mapping.removeByBackend("backend5").isEmpty());
+  }
+
+  @Test
+  public void testRootFinished() {
+    for (int i = 7; i < JOBS; i += ROOTS) {
+      mapping.remove("job" + i);
+    }
+    Assert.assertTrue(mapping.getBackendIds("root7").isEmpty());
+    Assert.assertTrue(mapping.getUsedBackendIds("root7").contains("backend7"));
+
+    for (int i = 0; i < ROOTS; i++) {
+      mapping.removeByRoot("root" + i);
+    }
+    Assert.assertEquals(mapping.size(), 0);
+    Assert.assertTrue(mapping.getUsedBackendIds("root7").isEmpty());
+    Assert.assertTrue(mapping.getBackendIds("root8").isEmpty());
+    for (int i = 0; i < BACKENDS; i++) {
+      Assert.assertEquals(mapping.count("backend" + i), 0);
+    }
+  }
+
+  @Test
+  public void testReassign() {
+    mapping.put(Job.cloneWithStatus(mapping.remove("job1"), JobStatus.READY), "backend2");
+    Assert.assertEquals(mapping.getBackendId("job1"), "backend2");
+    Assert.assertEquals(mapping.size(), JOBS);
+    Assert.assertTrue(mapping.getBackendIds("root1").contains("backend2"));
+  }
+
+  private Job job(String id, String rootId) {
+    return new Job(id, rootId, rootId, id, null, JobStatus.RUNNING, null, null, null, null, null, null);
+  }
+
+}
@@ -0,0 +1,82 @@
+package org.rabix.engine.rest.db;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.rabix.bindings.model.Job;
+import org.rabix.bindings.model.Job.JobStatus;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class JobDBTest {
+
+  @Test
+  public void testGetJobsByRoot() {
+    JobDB jobDB = new JobDB(0, 0, 0, null);
+    jobDB.add(job("root1", "root1", JobStatus.RUNNING));
+    jobDB.add(job("root1.a", "root1", JobStatus.READY));
+    jobDB.add(job("root2", "root2", JobStatus.RUNNING));
+    jobDB.update(job("root1.a", "root1", JobStatus.COMPLETED));
+
+    Assert.assertEquals(jobDB.getJobs("root1").size(), 2);
+    Assert.assertEquals(jobDB.getJobs("root2").size(), 1);
+    Assert.assertTrue(jobDB.getJobs("missing").isEmpty());
+    Assert.assertEquals(jobDB.getJobs().size(), 3);
+    Assert.assertEquals(jobDB.get("root1.a").getStatus(), JobStatus.COMPLETED);
+  }
+
+  @Test
+  public void testEvictByCount() {
+    JobDB jobDB = new JobDB(2, 0, 0, null);
+    for (int i = 0; i < 5; i++) {
+      jobDB.add(job("root" + i, "root" + i, JobStatus.RUNNING));
+      jobDB.add(job("root" + i + ".a", "root" + i, JobStatus.COMPLETED));
+    }
+    jobDB.update(job("root0", "root0", JobStatus.COMPLETED));
+    jobDB.update(job("root1", "root1", JobStatus.FAILED));
+    jobDB.update(job("root2", "root2", JobStatus.COMPLETED));
+
+    Assert.assertNull(jobDB.get("root0"));
+    Assert.assertNull(jobDB.get("root0.a"));
+    Assert.assertTrue(jobDB.getJobs("root0").isEmpty());
+    Assert.assertNotNull(jobDB.get("root1"));
+    Assert.assertNotNull(jobDB.get("root2.a"));
+    Assert.assertEquals(jobDB.getJobs().size(), 8);
+
+    // late update of an evicted root is not kept
+    jobDB.update(job("root0.a", "root0", JobStatus.COMPLETED));
+    Assert.assertNull(jobDB.get("root0.a"));
+  }
+
+  @Test
+  public void testSpill() throws IOException, InterruptedException {
+    File directory = new File(System.getProperty("java.io.tmpdir"), "jobdb-" + System.nanoTime());
+    try {
+      JobDB jobDB = new JobDB(1, 0, 0, new JobFileDB(directory));
+      jobDB.add(job("root0", "root0", JobStatus.RUNNING));
+      jobDB.add(job("root0.a", "root0", JobStatus.COMPLETED));
+      jobDB.update(job("root0", "root0", JobStatus.COMPLETED));
+      jobDB.add(job("root1", "root1", JobStatus.FAILED));
+
+      Assert.assertTrue(jobDB.getJobs("root0").isEmpty());
+      Assert.assertEquals(jobDB.get("root0.a").getStatus(), JobStatus.COMPLETED);
+
+      for (int i = 0; i < 100 && !(new File(directory, "root0.json").exists() && new File(directory, "root0.a.json").exists()); i++) {
+        Thread.sleep(50);
+      }
+      JobFileDB jobFileDB = new JobFileDB(directory);
+      Assert.assertEquals(jobFileDB.get("root0").getStatus(), JobStatus.COMPLETED);
+      Assert.assertEquals(jobFileDB.get("root0.a").getRootId(), "root0");
+      Assert.assertNull(jobFileDB.get("root1"));
+    } finally {
+      FileUtils.deleteDirectory(directory);
+    }
+  }
+
+  private Job job(String id, String rootId, JobStatus status) {
+    return new Job(id, rootId, rootId, id, null, status, null, null, null, null, null, null);
+  }
+
+}
@@ -2,6 +2,7 @@ package org.rabix.engine;
 
 import org.rabix.engine.db.DAGNodeDB;
 import org.rabix.engine.db.ReadyJobGroupsDB;
+import org.rabix.engine.db.VariableValueStore;
 import org.rabix.engine.processor.EventProcessor;
 import org.rabix.engine.processor.dispatcher.EventDispatcherFactory;
 import org.rabix.engine.processor.handler.HandlerFactory;
@@ -26,6 +27,7 @@ public class EngineModule extends AbstractModule {
   protected void configure() {
     bind(DAGNodeDB.class).in(Scopes.SINGLETON);
     bind(ReadyJobGroupsDB.class).in(Scopes.SINGLETON);
+    bind(VariableValueStore.class).in(Scopes.SINGLETON);
     
     bind(JobRecordService.class).in(Scopes.SINGLETON);
     bind(VariableRecordService.class).in(Scopes.SINGLETON);
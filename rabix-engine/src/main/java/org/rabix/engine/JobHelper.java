@@ -10,8 +10,6 @@ import java.util.UUID;
 
 import org.rabix.bindings.BindingException;
 import org.rabix.bindings.Bindings;
-import org.rabix.bindings.BindingsFactory;
-import org.rabix.bindings.helper.URIHelper;
 import org.rabix.bindings.model.ApplicationPort;
 import org.rabix.bindings.model.Job;
 import org.rabix.bindings.model.Job.JobStatus;
@@ -103,16 +101,16 @@ public class JobHelper {
     }
     
     ContextRecord contextRecord = contextRecordService.find(job.getRootId());
-    String encodedApp = URIHelper.createDataURI(node.getApp().serialize());
+    String encodedApp = dagNodeDB.getEncodedApp(node, job.getRootId());
     
     Set<String> visiblePorts = findVisiblePorts(job, jobRecordService, linkRecordService, variableRecordService);
     Job newJob = new Job(job.getExternalId(), job.getParentId(), job.getRootId(), job.getId(), encodedApp, status, null, preprocesedInputs, null, contextRecord.getConfig(), null, visiblePorts);
     try {
       if (processVariables) {
-        Bindings bindings = BindingsFactory.create(encodedApp);
+        Bindings bindings = dagNodeDB.getBindings(node, job.getRootId());
         
         for (VariableRecord inputVariable : inputVariables) {
-          Object value = CloneHelper.deepCopy(inputVariable.getValue());
+          Object value = CloneHelper.immutableCopy(inputVariable.getValue());
           ApplicationPort port = node.getApp().getInput(inputVariable.getPortId());
           if (port == null) {
             continue;
@@ -152,12 +150,12 @@ public class JobHelper {
     Map<String, Object> inputs = new HashMap<>();
     List<VariableRecord> inputVariables = variableRecordService.find(job.getId(), LinkPortType.INPUT, job.getRootId());
     for (VariableRecord inputVariable : inputVariables) {
-      Object value = CloneHelper.deepCopy(inputVariable.getValue());
+      Object value = CloneHelper.immutableCopy(inputVariable.getValue());
       inputs.put(inputVariable.getPortId(), value);
     }
     
     ContextRecord contextRecord = contextRecordService.find(job.getRootId());
-    String encodedApp = URIHelper.createDataURI(node.getApp().serialize());
+    String encodedApp = dagNodeDB.getEncodedApp(node, job.getRootId());
     return new Job(job.getExternalId(), job.getParentId(), job.getRootId(), job.getId(), encodedApp, status, null, inputs, outputs, contextRecord.getConfig(), null, null);
   }
   
@@ -0,0 +1,166 @@
+package org.rabix.engine.db;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rabix.bindings.model.FileValue;
+import org.rabix.common.helper.JSONHelper;
+
+/**
+ * Compact binary encoding of JSON-like values. Values are tagged: maps, lists and scalars are written directly, other
+ * beans (files, directories) as JSON. Strings are UTF-8 prefixed with a variable length size, integers are zigzag
+ * varints.
+ */
+public class BinaryValueCodec {
+
+  private final static byte NULL = 0;
+  private final static byte STRING = 1;
+  private final static byte INTEGER = 2;
+  private final static byte LONG = 3;
+  private final static byte DOUBLE = 4;
+  private final static byte TRUE = 5;
+  private final static byte FALSE = 6;
+  private final static byte LIST = 7;
+  private final static byte MAP = 8;
+  private final static byte JSON = 9;
+
+  private BinaryValueCodec() {
+  }
+
+  public static void writeValue(DataOutput out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      writeVarLong(out, (Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      writeVarLong(out, (Long) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof List<?>) {
+      List<?> list = (List<?>) value;
+      out.writeByte(LIST);
+      writeVarLong(out, list.size());
+      for (Object item : list) {
+        writeValue(out, item);
+      }
+    } else if (value instanceof Map<?, ?> && isStringKeyed((Map<?, ?>) value)) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeByte(MAP);
+      writeVarLong(out, map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeString(out, (String) entry.getKey());
+        writeValue(out, entry.getValue());
+      }
+    } else {
+      out.writeByte(JSON);
+      writeString(out, JSONHelper.mapperWithoutIdentation.writeValueAsString(value));
+    }
+  }
+
+  public static Object readValue(DataInput in) throws IOException {
+    byte tag = in.readByte();
+    switch (tag) {
+    case NULL:
+      return null;
+    case STRING:
+      return readString(in);
+    case INTEGER:
+      return (int) readVarLong(in);
+    case LONG:
+      return readVarLong(in);
+    case DOUBLE:
+      return in.readDouble();
+    case TRUE:
+      return Boolean.TRUE;
+    case FALSE:
+      return Boolean.FALSE;
+    case LIST:
+      int listSize = (int) readVarLong(in);
+      List<Object> list = new ArrayList<>(listSize);
+      for (int i = 0; i < listSize; i++) {
+        list.add(readValue(in));
+      }
+      return list;
+    case MAP:
+      int mapSize = (int) readVarLong(in);
+      Map<String, Object> map = new LinkedHashMap<>(mapSize < 3 ? mapSize + 1 : (int) (mapSize / 0.75f + 1.0f));
+      for (int i = 0; i < mapSize; i++) {
+        String key = readString(in);
+        map.put(key, readValue(in));
+      }
+      return map;
+    case JSON:
+      return FileValue.deserialize(JSONHelper.mapperWithoutIdentation.readValue(readString(in), Object.class));
+    default:
+      throw new IOException("Unknown value tag " + tag);
+    }
+  }
+
+  private static boolean isStringKeyed(Map<?, ?> map) {
+    for (Object key : map.keySet()) {
+      if (!(key instanceof String)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static void writeString(DataOutput out, String value) throws IOException {
+    if (value == null) {
+      writeVarLong(out, -1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+
+  public static String readString(DataInput in) throws IOException {
+    int length = (int) readVarLong(in);
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes zigzag encoded varint (small negative values are short too)
+   */
+  private static void writeVarLong(DataOutput out, long value) throws IOException {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7FL) != 0) {
+      out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+      zigzag >>>= 7;
+    }
+    out.writeByte((int) zigzag);
+  }
+
+  private static long readVarLong(DataInput in) throws IOException {
+    long zigzag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      zigzag |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+}
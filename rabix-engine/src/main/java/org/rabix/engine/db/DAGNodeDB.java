@@ -2,7 +2,13 @@ package org.rabix.engine.db;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.rabix.bindings.BindingException;
+import org.rabix.bindings.Bindings;
+import org.rabix.bindings.BindingsFactory;
+import org.rabix.bindings.helper.URIHelper;
 import org.rabix.bindings.model.dag.DAGContainer;
 import org.rabix.bindings.model.dag.DAGNode;
 
@@ -13,8 +19,13 @@ public class DAGNodeDB {
 
   private final Map<String, Map<String, DAGNode>> nodes;
   
+  private final ConcurrentMap<String, ConcurrentMap<String, String>> encodedApps;
+  private final ConcurrentMap<String, ConcurrentMap<String, Bindings>> bindings;
+  
   public DAGNodeDB() {
     this.nodes = new HashMap<>();
+    this.encodedApps = new ConcurrentHashMap<>();
+    this.bindings = new ConcurrentHashMap<>();
   }
   
   /**
@@ -25,6 +36,40 @@ public class DAGNodeDB {
     return contextNodes == null ? null : contextNodes.get(id);
   }
   
+  /**
+   * Gets node's application encoded as data URI. The value is computed once per node and context.
+   */
+  public String getEncodedApp(DAGNode node, String contextId) {
+    ConcurrentMap<String, String> contextApps = getContextCache(encodedApps, contextId);
+    String encodedApp = contextApps.get(node.getId());
+    if (encodedApp == null) {
+      encodedApp = URIHelper.createDataURI(node.getApp().serialize());
+      contextApps.put(node.getId(), encodedApp);
+    }
+    return encodedApp;
+  }
+  
+  /**
+   * Gets {@link Bindings} resolved for node's application. The value is resolved once per node and context.
+   */
+  public Bindings getBindings(DAGNode node, String contextId) throws BindingException {
+    ConcurrentMap<String, Bindings> contextBindings = getContextCache(bindings, contextId);
+    Bindings nodeBindings = contextBindings.get(node.getId());
+    if (nodeBindings == null) {
+      nodeBindings = BindingsFactory.create(getEncodedApp(node, contextId));
+      contextBindings.put(node.getId(), nodeBindings);
+    }
+    return nodeBindings;
+  }
+  
+  /**
+   * Removes cached application payloads and {@link Bindings} for the context
+   */
+  public void invalidate(String contextId) {
+    encodedApps.remove(contextId);
+    bindings.remove(contextId);
+  }
+  
   /**
    * Loads node into the repository recursively
    */
@@ -55,4 +100,16 @@ public class DAGNodeDB {
     contextNodes.put(node.getId(), node);
   }
   
+  private <T> ConcurrentMap<String, T> getContextCache(ConcurrentMap<String, ConcurrentMap<String, T>> cache, String contextId) {
+    ConcurrentMap<String, T> contextCache = cache.get(contextId);
+    if (contextCache == null) {
+      contextCache = new ConcurrentHashMap<>();
+      ConcurrentMap<String, T> existing = cache.putIfAbsent(contextId, contextCache);
+      if (existing != null) {
+        contextCache = existing;
+      }
+    }
+    return contextCache;
+  }
+  
 }
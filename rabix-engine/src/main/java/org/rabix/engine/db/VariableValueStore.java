@@ -0,0 +1,277 @@
+package org.rabix.engine.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+/**
+ * Keeps large variable values outside of the heap, encoded with {@link BinaryValueCodec}.
+ *
+ * Values (maps and lists) estimated above the threshold are encoded and copied either to direct buffers (freed when the
+ * {@link StoredValue} is collected) or to a memory-mapped file per context (deleted with the context). Stored values are
+ * decoded on every read, so only complete values that are read a few times should be stored.
+ */
+public class VariableValueStore {
+
+  private final static Logger logger = LoggerFactory.getLogger(VariableValueStore.class);
+
+  public final static String THRESHOLD_KEY = "engine.variables.offheap.threshold";
+  public final static String TYPE_KEY = "engine.variables.offheap.type";
+  public final static String DIRECTORY_KEY = "engine.variables.offheap.directory";
+
+  private final static long REGION_SIZE = 64L * 1024 * 1024;
+  private final static String VALUE_FILE_SUFFIX = ".values";
+
+  public static enum Type {
+    DIRECT, MAPPED
+  }
+
+  private final long threshold;
+  private final Type type;
+  private final File directory;
+
+  private final ConcurrentMap<String, MappedValueFile> valueFiles = new ConcurrentHashMap<>();
+
+  @Inject
+  public VariableValueStore(Configuration configuration) {
+    this(configuration.getLong(THRESHOLD_KEY, 0L), Type.valueOf(configuration.getString(TYPE_KEY, Type.DIRECT.name()).toUpperCase()),
+        new File(configuration.getString(DIRECTORY_KEY, new File(System.getProperty("java.io.tmpdir"), "rabix-values").getAbsolutePath())));
+  }
+
+  /**
+   * @param threshold Encoded size (in bytes) above which values are stored. Zero disables the store.
+   * @param type      Storage type
+   * @param directory Directory for memory-mapped files
+   */
+  public VariableValueStore(long threshold, Type type, File directory) {
+    this.threshold = threshold;
+    this.type = type;
+    this.directory = directory;
+  }
+
+  public boolean isEnabled() {
+    return threshold > 0;
+  }
+
+  /**
+   * Stores value if it's large enough. Returns {@link StoredValue} or the value itself.
+   */
+  public Object store(String contextId, Object value) {
+    if (!isEnabled() || !(value instanceof Map<?, ?> || value instanceof List<?>) || estimate(value, threshold) < threshold) {
+      return value;
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(threshold * 2, Integer.MAX_VALUE - 8));
+      DataOutputStream out = new DataOutputStream(bytes);
+      BinaryValueCodec.writeValue(out, value);
+      out.flush();
+      if (bytes.size() < threshold) {
+        return value;
+      }
+      byte[] encoded = bytes.toByteArray();
+
+      ByteBuffer buffer;
+      switch (type) {
+      case MAPPED:
+        buffer = getValueFile(contextId).append(encoded);
+        break;
+      case DIRECT:
+      default:
+        buffer = ByteBuffer.allocateDirect(encoded.length);
+        buffer.put(encoded);
+        buffer.flip();
+        break;
+      }
+      return new StoredValue(buffer.asReadOnlyBuffer());
+    } catch (IOException | OutOfMemoryError e) {
+      logger.warn("Failed to store value of context {}. Value stays on heap.", contextId, e);
+      return value;
+    }
+  }
+
+  /**
+   * Releases values of the context
+   */
+  public void delete(String contextId) {
+    MappedValueFile valueFile = valueFiles.remove(contextId);
+    if (valueFile != null) {
+      valueFile.delete();
+    }
+  }
+
+  private MappedValueFile getValueFile(String contextId) throws IOException {
+    MappedValueFile valueFile = valueFiles.get(contextId);
+    if (valueFile == null) {
+      synchronized (valueFiles) {
+        valueFile = valueFiles.get(contextId);
+        if (valueFile == null) {
+          if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory " + directory.getAbsolutePath());
+          }
+          valueFile = new MappedValueFile(new File(directory, contextId + VALUE_FILE_SUFFIX));
+          valueFiles.put(contextId, valueFile);
+        }
+      }
+    }
+    return valueFile;
+  }
+
+  /**
+   * Rough encoded size. Stops walking the value once the limit is reached.
+   */
+  private static long estimate(Object value, long limit) {
+    if (value == null || value instanceof Boolean) {
+      return 1;
+    }
+    if (value instanceof String) {
+      return ((String) value).length() + 2;
+    }
+    if (value instanceof Number) {
+      return 9;
+    }
+    long size = 5;
+    if (value instanceof Map<?, ?>) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size += estimate(entry.getKey(), limit) + estimate(entry.getValue(), limit - size);
+        if (size >= limit) {
+          return size;
+        }
+      }
+      return size;
+    }
+    if (value instanceof List<?>) {
+      for (Object item : (List<?>) value) {
+        size += estimate(item, limit - size);
+        if (size >= limit) {
+          return size;
+        }
+      }
+      return size;
+    }
+    // beans (files, directories) are written as JSON
+    return 128;
+  }
+
+  /**
+   * Encoded value. It is decoded into new mutable maps and lists on each call.
+   */
+  public static class StoredValue {
+
+    private final ByteBuffer buffer;
+
+    StoredValue(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    public Object decode() {
+      try {
+        return BinaryValueCodec.readValue(new DataInputStream(new ByteBufferInputStream(buffer.duplicate())));
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to decode stored value", e);
+      }
+    }
+
+    public int getSize() {
+      return buffer.capacity();
+    }
+
+    @Override
+    public String toString() {
+      return "StoredValue [size=" + buffer.capacity() + "]";
+    }
+  }
+
+  /**
+   * Append-only memory-mapped file. The file is mapped in regions, values never cross a region.
+   */
+  private static class MappedValueFile {
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+
+    private MappedByteBuffer region;
+    private long regionStart = 0;
+
+    MappedValueFile(File file) throws IOException {
+      this.file = file;
+      this.randomAccessFile = new RandomAccessFile(file, "rw");
+      this.channel = randomAccessFile.getChannel();
+    }
+
+    synchronized ByteBuffer append(byte[] encoded) throws IOException {
+      if (region == null || region.remaining() < encoded.length) {
+        long start = region == null ? 0 : regionStart + region.position();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.max(REGION_SIZE, encoded.length));
+        regionStart = start;
+      }
+      int offset = region.position();
+      region.put(encoded);
+
+      ByteBuffer slice = region.duplicate();
+      slice.position(offset);
+      slice.limit(offset + encoded.length);
+      return slice.slice();
+    }
+
+    synchronized void delete() {
+      region = null;
+      try {
+        channel.close();
+        randomAccessFile.close();
+      } catch (IOException e) {
+        logger.warn("Failed to close value file {}", file.getAbsolutePath(), e);
+      }
+      if (!file.delete()) {
+        logger.warn("Failed to delete value file {}", file.getAbsolutePath());
+      }
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+
+}
@@ -10,7 +10,8 @@ public interface Event {
     INPUT_UPDATE,
     OUTPUT_UPDATE,
     JOB_STATUS_UPDATE,
-    CONTEXT_STATUS_UPDATE
+    CONTEXT_STATUS_UPDATE,
+    INPUT_BATCH_UPDATE
   }
 
   /**
@@ -0,0 +1,81 @@
+package org.rabix.engine.event.impl;
+
+import java.util.List;
+
+import org.rabix.engine.event.Event;
+
+/**
+ * Carries input updates for many jobs of the same context, so they are dispatched (and journaled) as one event. Used by
+ * scatter to deliver inputs to all newly created scattered jobs.
+ *
+ * Updates are plain (not look ahead) {@link InputUpdateEvent}s with the context and event group of the batch.
+ */
+public class InputBatchUpdateEvent implements Event {
+
+  private final String contextId;
+  private final String eventGroupId;
+  
+  private final List<InputUpdateEvent> events;
+  
+  public InputBatchUpdateEvent(String contextId, List<InputUpdateEvent> events, String eventGroupId) {
+    this.contextId = contextId;
+    this.events = events;
+    this.eventGroupId = eventGroupId;
+  }
+  
+  public List<InputUpdateEvent> getEvents() {
+    return events;
+  }
+  
+  @Override
+  public EventType getType() {
+    return EventType.INPUT_BATCH_UPDATE;
+  }
+
+  @Override
+  public String getContextId() {
+    return contextId;
+  }
+
+  @Override
+  public String getEventGroupId() {
+    return eventGroupId;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((contextId == null) ? 0 : contextId.hashCode());
+    result = prime * result + ((events == null) ? 0 : events.hashCode());
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    InputBatchUpdateEvent other = (InputBatchUpdateEvent) obj;
+    if (contextId == null) {
+      if (other.contextId != null)
+        return false;
+    } else if (!contextId.equals(other.contextId))
+      return false;
+    if (events == null) {
+      if (other.events != null)
+        return false;
+    } else if (!events.equals(other.events))
+      return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "InputBatchUpdateEvent [contextId=" + contextId + ", events=" + (events != null ? events.size() : 0) + "]";
+  }
+
+}
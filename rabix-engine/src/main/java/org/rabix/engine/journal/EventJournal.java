@@ -0,0 +1,32 @@
+package org.rabix.engine.journal;
+
+import org.rabix.engine.event.Event;
+
+/**
+ * Journal of every event handled by the engine (external and generated ones), kept per context in the order the events
+ * were handled. Replaying a journal through the handlers rebuilds the context without running any tools.
+ */
+public interface EventJournal {
+
+  public static enum Type {
+    NONE, FILE
+  }
+
+  /**
+   * Records event before it is handled. INIT event starts a new journal for its context.
+   */
+  void record(Event event) throws EventJournalException;
+
+  /**
+   * Closes journal of a finished context
+   */
+  void finished(String contextId);
+
+  /**
+   * Flushes buffered events
+   */
+  void flush();
+
+  Type getType();
+
+}
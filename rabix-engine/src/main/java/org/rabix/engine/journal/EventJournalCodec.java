@@ -0,0 +1,159 @@
+package org.rabix.engine.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.rabix.bindings.model.dag.DAGNode;
+import org.rabix.common.helper.JSONHelper;
+import org.rabix.engine.db.BinaryValueCodec;
+import org.rabix.engine.event.Event;
+import org.rabix.engine.event.Event.EventType;
+import org.rabix.engine.event.impl.ContextStatusEvent;
+import org.rabix.engine.event.impl.InitEvent;
+import org.rabix.engine.event.impl.InputBatchUpdateEvent;
+import org.rabix.engine.event.impl.InputUpdateEvent;
+import org.rabix.engine.event.impl.JobStatusEvent;
+import org.rabix.engine.event.impl.OutputUpdateEvent;
+import org.rabix.engine.model.ContextRecord.ContextStatus;
+import org.rabix.engine.service.JobRecordService.JobState;
+
+/**
+ * Binary event encoding used by journals.
+ *
+ * A journal starts with {@link #MAGIC} and {@link #VERSION}, followed by records. Each record is the event type ordinal,
+ * context and event group IDs and type specific fields. Strings are UTF-8 prefixed with a variable length size, integers
+ * are zigzag varints and values are encoded by {@link BinaryValueCodec}.
+ */
+public class EventJournalCodec {
+
+  public final static int MAGIC = 0x524A4E4C;
+  public final static byte VERSION = 1;
+
+  private final static EventType[] types = EventType.values();
+  private final static JobState[] jobStates = JobState.values();
+  private final static ContextStatus[] contextStatuses = ContextStatus.values();
+
+  private EventJournalCodec() {
+  }
+
+  public static void writeHeader(DataOutput out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+  }
+
+  public static void readHeader(DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not an event journal");
+    }
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported event journal version " + version);
+    }
+  }
+
+  public static void write(DataOutput out, Event event) throws IOException {
+    out.writeByte(event.getType().ordinal());
+    BinaryValueCodec.writeString(out, event.getContextId());
+    BinaryValueCodec.writeString(out, event.getEventGroupId());
+
+    switch (event.getType()) {
+    case INIT:
+      InitEvent initEvent = (InitEvent) event;
+      BinaryValueCodec.writeString(out, JSONHelper.mapperWithoutIdentation.writeValueAsString(initEvent.getNode()));
+      BinaryValueCodec.writeValue(out, initEvent.getValue());
+      BinaryValueCodec.writeValue(out, initEvent.getConfig());
+      break;
+    case JOB_STATUS_UPDATE:
+      JobStatusEvent jobStatusEvent = (JobStatusEvent) event;
+      BinaryValueCodec.writeString(out, jobStatusEvent.getJobId());
+      out.writeByte(jobStatusEvent.getState().ordinal());
+      BinaryValueCodec.writeValue(out, jobStatusEvent.getResult());
+      break;
+    case INPUT_UPDATE:
+      InputUpdateEvent inputEvent = (InputUpdateEvent) event;
+      BinaryValueCodec.writeString(out, inputEvent.getJobId());
+      BinaryValueCodec.writeString(out, inputEvent.getPortId());
+      BinaryValueCodec.writeValue(out, inputEvent.getValue());
+      out.writeBoolean(inputEvent.isLookAhead());
+      BinaryValueCodec.writeValue(out, inputEvent.getNumberOfScattered());
+      BinaryValueCodec.writeValue(out, inputEvent.getPosition());
+      break;
+    case OUTPUT_UPDATE:
+      OutputUpdateEvent outputEvent = (OutputUpdateEvent) event;
+      BinaryValueCodec.writeString(out, outputEvent.getJobId());
+      BinaryValueCodec.writeString(out, outputEvent.getPortId());
+      BinaryValueCodec.writeValue(out, outputEvent.getValue());
+      out.writeBoolean(outputEvent.isFromScatter());
+      BinaryValueCodec.writeValue(out, outputEvent.getNumberOfScattered());
+      BinaryValueCodec.writeValue(out, outputEvent.getPosition());
+      break;
+    case CONTEXT_STATUS_UPDATE:
+      out.writeByte(((ContextStatusEvent) event).getStatus().ordinal());
+      break;
+    case INPUT_BATCH_UPDATE:
+      List<InputUpdateEvent> inputEvents = ((InputBatchUpdateEvent) event).getEvents();
+      BinaryValueCodec.writeValue(out, inputEvents.size());
+      for (InputUpdateEvent batchEvent : inputEvents) {
+        BinaryValueCodec.writeString(out, batchEvent.getJobId());
+        BinaryValueCodec.writeString(out, batchEvent.getPortId());
+        BinaryValueCodec.writeValue(out, batchEvent.getValue());
+        BinaryValueCodec.writeValue(out, batchEvent.getPosition());
+      }
+      break;
+    default:
+      throw new IOException("Unknown event type " + event.getType());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public static Event read(DataInput in) throws IOException {
+    EventType type = types[in.readUnsignedByte()];
+    String contextId = BinaryValueCodec.readString(in);
+    String eventGroupId = BinaryValueCodec.readString(in);
+
+    switch (type) {
+    case INIT:
+      DAGNode node = JSONHelper.mapperWithoutIdentation.readValue(BinaryValueCodec.readString(in), DAGNode.class);
+      Map<String, Object> value = (Map<String, Object>) BinaryValueCodec.readValue(in);
+      Map<String, Object> config = (Map<String, Object>) BinaryValueCodec.readValue(in);
+      return new InitEvent(config, contextId, node, value);
+    case JOB_STATUS_UPDATE:
+      String jobId = BinaryValueCodec.readString(in);
+      JobState state = jobStates[in.readUnsignedByte()];
+      return new JobStatusEvent(jobId, contextId, state, (Map<String, Object>) BinaryValueCodec.readValue(in), eventGroupId);
+    case INPUT_UPDATE:
+      String inputJobId = BinaryValueCodec.readString(in);
+      String inputPortId = BinaryValueCodec.readString(in);
+      Object inputValue = BinaryValueCodec.readValue(in);
+      boolean lookAhead = in.readBoolean();
+      Integer inputScattered = (Integer) BinaryValueCodec.readValue(in);
+      return new InputUpdateEvent(contextId, inputJobId, inputPortId, inputValue, lookAhead, inputScattered, (Integer) BinaryValueCodec.readValue(in), eventGroupId);
+    case OUTPUT_UPDATE:
+      String outputJobId = BinaryValueCodec.readString(in);
+      String outputPortId = BinaryValueCodec.readString(in);
+      Object outputValue = BinaryValueCodec.readValue(in);
+      boolean fromScatter = in.readBoolean();
+      Integer outputScattered = (Integer) BinaryValueCodec.readValue(in);
+      return new OutputUpdateEvent(contextId, outputJobId, outputPortId, outputValue, fromScatter, outputScattered, (Integer) BinaryValueCodec.readValue(in), eventGroupId);
+    case CONTEXT_STATUS_UPDATE:
+      return new ContextStatusEvent(contextId, contextStatuses[in.readUnsignedByte()]);
+    case INPUT_BATCH_UPDATE:
+      int size = (Integer) BinaryValueCodec.readValue(in);
+      List<InputUpdateEvent> batchEvents = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        String batchJobId = BinaryValueCodec.readString(in);
+        String batchPortId = BinaryValueCodec.readString(in);
+        Object batchValue = BinaryValueCodec.readValue(in);
+        batchEvents.add(new InputUpdateEvent(contextId, batchJobId, batchPortId, batchValue, (Integer) BinaryValueCodec.readValue(in), eventGroupId));
+      }
+      return new InputBatchUpdateEvent(contextId, batchEvents, eventGroupId);
+    default:
+      throw new IOException("Unknown event type " + type);
+    }
+  }
+
+}
@@ -0,0 +1,22 @@
+package org.rabix.engine.journal;
+
+public class EventJournalException extends Exception {
+
+  /**
+   * 
+   */
+  private static final long serialVersionUID = 4417205837116624853L;
+
+  public EventJournalException(String message) {
+    super(message);
+  }
+
+  public EventJournalException(Throwable throwable) {
+    super(throwable);
+  }
+
+  public EventJournalException(String message, Throwable throwable) {
+    super(message, throwable);
+  }
+
+}
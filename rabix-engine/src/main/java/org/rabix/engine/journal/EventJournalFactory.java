@@ -0,0 +1,36 @@
+package org.rabix.engine.journal;
+
+import java.io.File;
+
+import org.apache.commons.configuration.Configuration;
+import org.rabix.engine.journal.impl.FileEventJournal;
+import org.rabix.engine.journal.impl.NoOpEventJournal;
+
+public class EventJournalFactory {
+
+  /**
+   * Creates {@link EventJournal} from configuration. File journal is used if <code>engine.journal.directory</code> is set.
+   */
+  public static EventJournal create(Configuration configuration) {
+    String directory = configuration.getString("engine.journal.directory", null);
+    String defaultType = directory != null ? EventJournal.Type.FILE.name() : EventJournal.Type.NONE.name();
+    EventJournal.Type type = EventJournal.Type.valueOf(configuration.getString("engine.journal.type", defaultType).toUpperCase());
+
+    switch (type) {
+    case NONE:
+      return new NoOpEventJournal();
+    case FILE:
+      if (directory == null) {
+        throw new RuntimeException("Failed to create EventJournal. engine.journal.directory is not set.");
+      }
+      try {
+        return new FileEventJournal(new File(directory));
+      } catch (EventJournalException e) {
+        throw new RuntimeException("Failed to create EventJournal " + type, e);
+      }
+    default:
+      throw new RuntimeException("Failed to create EventJournal " + type);
+    }
+  }
+
+}
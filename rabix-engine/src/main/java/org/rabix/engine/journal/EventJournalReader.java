@@ -0,0 +1,67 @@
+package org.rabix.engine.journal;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.rabix.engine.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads events from a journal file in the order they were recorded
+ */
+public class EventJournalReader implements Closeable {
+
+  private final static Logger logger = LoggerFactory.getLogger(EventJournalReader.class);
+
+  private final File file;
+  private final DataInputStream in;
+
+  public EventJournalReader(File file) throws EventJournalException {
+    this.file = file;
+    try {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+      EventJournalCodec.readHeader(in);
+    } catch (IOException e) {
+      close();
+      throw new EventJournalException("Failed to open event journal " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * Reads next event. Returns null at the end of the journal (a record torn by a crash counts as the end).
+   */
+  public Event next() throws EventJournalException {
+    try {
+      in.mark(1);
+      if (in.read() == -1) {
+        return null;
+      }
+      in.reset();
+      return EventJournalCodec.read(in);
+    } catch (EOFException e) {
+      logger.warn("Event journal {} ends with an incomplete event", file.getAbsolutePath());
+      return null;
+    } catch (IOException e) {
+      throw new EventJournalException("Failed to read event journal " + file.getAbsolutePath(), e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (in == null) {
+      return;
+    }
+    try {
+      in.close();
+    } catch (IOException e) {
+      // do nothing
+    }
+  }
+
+}
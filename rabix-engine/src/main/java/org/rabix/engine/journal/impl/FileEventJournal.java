@@ -0,0 +1,173 @@
+package org.rabix.engine.journal.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.rabix.engine.event.Event;
+import org.rabix.engine.event.Event.EventType;
+import org.rabix.engine.journal.EventJournal;
+import org.rabix.engine.journal.EventJournalCodec;
+import org.rabix.engine.journal.EventJournalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * One binary journal file per context (<code>contextId.journal</code>). Events of a context are mostly handled by its
+ * event processor thread, but context invalidation and synchronous sends from other threads record events too, so
+ * every journal is written, flushed and closed under its own lock. Journals are buffered and flushed by
+ * {@link #flush()} and when the context finishes. Late events of a finished context are not recorded.
+ */
+public class FileEventJournal implements EventJournal {
+
+  private final static Logger logger = LoggerFactory.getLogger(FileEventJournal.class);
+
+  public final static String JOURNAL_FILE_SUFFIX = ".journal";
+
+  private final static int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * How many finished contexts are remembered to drop their late events
+   */
+  private final static int FINISHED_CONTEXTS_SIZE = 10000;
+
+  private final File directory;
+  private final ConcurrentMap<String, Journal> journals = new ConcurrentHashMap<>();
+  private final Cache<String, Boolean> finishedContexts = CacheBuilder.newBuilder().maximumSize(FINISHED_CONTEXTS_SIZE).build();
+
+  public FileEventJournal(File directory) throws EventJournalException {
+    this.directory = directory;
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new EventJournalException("Failed to create directory " + directory.getAbsolutePath());
+    }
+  }
+
+  @Override
+  public void record(Event event) throws EventJournalException {
+    String contextId = event.getContextId();
+    boolean init = event.getType().equals(EventType.INIT);
+    if (init) {
+      // INIT starts the context from scratch (it is recorded again if the context is recovered)
+      finishedContexts.invalidate(contextId);
+    }
+    try {
+      while (true) {
+        Journal journal = getJournal(contextId);
+        synchronized (journal) {
+          if (!init && finishedContexts.getIfPresent(contextId) != null) {
+            logger.debug("Context {} has finished. Event {} is not recorded.", contextId, event);
+            if (journals.remove(contextId, journal)) {
+              journal.close();
+            }
+            return;
+          }
+          if (journal.closed) {
+            continue; // removed and closed by finished() meanwhile
+          }
+          if (journal.stream == null || init) {
+            journal.closeStream();
+            journal.stream = open(contextId, !init);
+          }
+          EventJournalCodec.write(journal.stream, event);
+          return;
+        }
+      }
+    } catch (IOException e) {
+      throw new EventJournalException("Failed to record event " + event, e);
+    }
+  }
+
+  @Override
+  public void finished(String contextId) {
+    finishedContexts.put(contextId, Boolean.TRUE);
+    Journal journal = journals.remove(contextId);
+    if (journal != null) {
+      synchronized (journal) {
+        journal.close();
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    for (Journal journal : journals.values()) {
+      synchronized (journal) {
+        if (journal.stream == null) {
+          continue;
+        }
+        try {
+          journal.stream.flush();
+        } catch (IOException e) {
+          logger.error("Failed to flush event journal", e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Type getType() {
+    return Type.FILE;
+  }
+
+  public File getJournalFile(String contextId) {
+    return new File(directory, contextId + JOURNAL_FILE_SUFFIX);
+  }
+
+  /**
+   * Gets journal of the context. Only one is created even if several threads record its first events at once.
+   */
+  private Journal getJournal(String contextId) {
+    Journal journal = journals.get(contextId);
+    if (journal == null) {
+      Journal created = new Journal();
+      journal = journals.putIfAbsent(contextId, created);
+      if (journal == null) {
+        journal = created;
+      }
+    }
+    return journal;
+  }
+
+  private DataOutputStream open(String contextId, boolean append) throws IOException {
+    File file = getJournalFile(contextId);
+    boolean exists = append && file.exists() && file.length() > 0;
+    DataOutputStream journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append), BUFFER_SIZE));
+    if (!exists) {
+      EventJournalCodec.writeHeader(journal);
+    }
+    return journal;
+  }
+
+  /**
+   * Journal stream of one context. Opened on the first recorded event and guarded by its own monitor.
+   */
+  private static class Journal {
+    DataOutputStream stream;
+    boolean closed;
+
+    void close() {
+      closed = true;
+      closeStream();
+    }
+
+    void closeStream() {
+      if (stream == null) {
+        return;
+      }
+      try {
+        stream.close();
+      } catch (IOException e) {
+        logger.error("Failed to close event journal", e);
+      }
+      stream = null;
+    }
+  }
+
+}
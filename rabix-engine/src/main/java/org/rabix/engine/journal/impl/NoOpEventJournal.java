@@ -0,0 +1,25 @@
+package org.rabix.engine.journal.impl;
+
+import org.rabix.engine.event.Event;
+import org.rabix.engine.journal.EventJournal;
+
+public class NoOpEventJournal implements EventJournal {
+
+  @Override
+  public void record(Event event) {
+  }
+
+  @Override
+  public void finished(String contextId) {
+  }
+
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public Type getType() {
+    return Type.NONE;
+  }
+
+}
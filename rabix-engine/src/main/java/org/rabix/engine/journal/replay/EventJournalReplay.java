@@ -0,0 +1,237 @@
+package org.rabix.engine.journal.replay;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.MapConfiguration;
+import org.rabix.engine.EngineModule;
+import org.rabix.engine.event.Event;
+import org.rabix.engine.event.Event.EventType;
+import org.rabix.engine.journal.EventJournalException;
+import org.rabix.engine.journal.EventJournalReader;
+import org.rabix.engine.journal.impl.FileEventJournal;
+import org.rabix.engine.processor.EventProcessor;
+import org.rabix.engine.processor.handler.EventHandlerException;
+import org.rabix.engine.processor.handler.HandlerFactory;
+import org.rabix.engine.status.impl.NoOpEngineStatusCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import com.google.inject.util.Modules;
+
+/**
+ * Replays event journals offline. Every recorded event is handled directly by {@link HandlerFactory} handlers in the
+ * recorded order, nothing is sent to backends. Events generated by the handlers are matched against the journal, so
+ * unmatched events mean that current handlers don't behave the way the recorded ones did.
+ */
+public class EventJournalReplay {
+
+  private final static Logger logger = LoggerFactory.getLogger(EventJournalReplay.class);
+
+  private final HandlerFactory handlerFactory;
+  private final ReplayEventProcessor eventProcessor;
+
+  @Inject
+  public EventJournalReplay(HandlerFactory handlerFactory, ReplayEventProcessor eventProcessor) {
+    this.handlerFactory = handlerFactory;
+    this.eventProcessor = eventProcessor;
+    this.handlerFactory.initialize(new NoOpEngineStatusCallback());
+  }
+
+  /**
+   * Creates replay with its own engine (journaling disabled)
+   */
+  public static EventJournalReplay create() {
+    Injector injector = Guice.createInjector(Modules.override(new EngineModule()).with(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(Configuration.class).toInstance(new MapConfiguration(new HashMap<String, Object>()));
+        bind(ReplayEventProcessor.class).in(Scopes.SINGLETON);
+        bind(EventProcessor.class).to(ReplayEventProcessor.class);
+      }
+    }));
+    return injector.getInstance(EventJournalReplay.class);
+  }
+
+  /**
+   * Replays one journal. Replay stops at the first event that fails.
+   */
+  public ReplayStatistics replay(File journalFile) throws EventJournalException {
+    ReplayStatistics statistics = new ReplayStatistics(journalFile);
+    eventProcessor.reset();
+
+    EventJournalReader reader = new EventJournalReader(journalFile);
+    try {
+      Event event;
+      while ((event = reader.next()) != null) {
+        boolean generated = eventProcessor.consume(event);
+        long start = System.nanoTime();
+        try {
+          handlerFactory.get(event.getType()).handle(event);
+        } catch (EventHandlerException | RuntimeException e) {
+          logger.error("Failed to replay event {}", event, e);
+          statistics.failed = event;
+          break;
+        }
+        statistics.add(event.getType(), generated, System.nanoTime() - start);
+      }
+    } finally {
+      reader.close();
+    }
+    statistics.unmatched = eventProcessor.getUnmatchedCount();
+    return statistics;
+  }
+
+  public static void main(String[] commandLineArguments) {
+    Options options = new Options();
+    options.addOption("h", "help", false, "help");
+
+    List<File> journalFiles = new ArrayList<>();
+    try {
+      CommandLineParser commandLineParser = new DefaultParser();
+      CommandLine commandLine = commandLineParser.parse(options, commandLineArguments);
+      if (commandLine.hasOption("h") || commandLine.getArgList().isEmpty()) {
+        printUsageAndExit(options);
+      }
+      for (String path : commandLine.getArgList()) {
+        File file = new File(path);
+        if (file.isDirectory()) {
+          File[] files = file.listFiles();
+          Arrays.sort(files);
+          for (File child : files) {
+            if (child.getName().endsWith(FileEventJournal.JOURNAL_FILE_SUFFIX)) {
+              journalFiles.add(child);
+            }
+          }
+        } else if (file.exists()) {
+          journalFiles.add(file);
+        } else {
+          System.err.println(String.format("Journal %s does not exist.", path));
+          printUsageAndExit(options);
+        }
+      }
+    } catch (ParseException e) {
+      logger.error("Encountered exception while parsing command line arguments.", e);
+      printUsageAndExit(options);
+    }
+
+    EventJournalReplay replay = create();
+    boolean diverged = false;
+    for (File journalFile : journalFiles) {
+      try {
+        ReplayStatistics statistics = replay.replay(journalFile);
+        System.out.println(statistics);
+        diverged = diverged || statistics.failed != null || statistics.unmatched > 0;
+      } catch (EventJournalException e) {
+        logger.error("Failed to replay journal {}", journalFile, e);
+        diverged = true;
+      }
+    }
+    System.exit(diverged ? 1 : 0);
+  }
+
+  private static void printUsageAndExit(Options options) {
+    new HelpFormatter().printHelp("replay <journal or directory>... [OPTION]", options);
+    System.exit(10);
+  }
+
+  /**
+   * Counts and handling times per event type
+   */
+  public static class ReplayStatistics {
+
+    private final File journalFile;
+
+    private final Map<EventType, Long> counts = new EnumMap<>(EventType.class);
+    private final Map<EventType, Long> nanos = new EnumMap<>(EventType.class);
+
+    private long externalCount = 0;
+    private long generatedCount = 0;
+    private int unmatched = 0;
+    private Event failed;
+
+    public ReplayStatistics(File journalFile) {
+      this.journalFile = journalFile;
+    }
+
+    void add(EventType type, boolean generated, long elapsed) {
+      Long count = counts.get(type);
+      counts.put(type, count != null ? count + 1 : 1L);
+      Long total = nanos.get(type);
+      nanos.put(type, total != null ? total + elapsed : elapsed);
+      if (generated) {
+        generatedCount++;
+      } else {
+        externalCount++;
+      }
+    }
+
+    public long getCount(EventType type) {
+      Long count = counts.get(type);
+      return count != null ? count : 0;
+    }
+
+    public long getNanos(EventType type) {
+      Long total = nanos.get(type);
+      return total != null ? total : 0;
+    }
+
+    public long getExternalCount() {
+      return externalCount;
+    }
+
+    public long getGeneratedCount() {
+      return generatedCount;
+    }
+
+    /**
+     * Number of events generated by handlers during replay that the journal doesn't contain
+     */
+    public int getUnmatchedCount() {
+      return unmatched;
+    }
+
+    /**
+     * Event that failed to replay (null if all events were replayed)
+     */
+    public Event getFailed() {
+      return failed;
+    }
+
+    @Override
+    public String toString() {
+      long totalNanos = 0;
+      for (Long total : nanos.values()) {
+        totalNanos += total;
+      }
+      StringBuilder builder = new StringBuilder();
+      builder.append(String.format("%s: %d event(s), %d external, %d generated, %d unmatched, %.1f ms%n", journalFile.getName(), externalCount + generatedCount, externalCount, generatedCount, unmatched, totalNanos / 1e6));
+      for (EventType type : counts.keySet()) {
+        long count = getCount(type);
+        builder.append(String.format("  %-22s %10d %12.1f ms %10.1f us/event%n", type, count, getNanos(type) / 1e6, getNanos(type) / 1e3 / count));
+      }
+      if (failed != null) {
+        builder.append("  failed at ").append(failed);
+      }
+      return builder.toString();
+    }
+  }
+
+}
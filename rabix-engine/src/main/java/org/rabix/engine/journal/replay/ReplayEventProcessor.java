@@ -0,0 +1,61 @@
+package org.rabix.engine.journal.replay;
+
+import java.util.List;
+
+import org.rabix.engine.event.Event;
+import org.rabix.engine.processor.EventProcessor;
+import org.rabix.engine.status.EngineStatusCallback;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+/**
+ * {@link EventProcessor} used by replay. Events generated by handlers are not processed (the journal already holds them
+ * in the order they were handled), they are only remembered so they can be matched against the journal.
+ */
+public class ReplayEventProcessor implements EventProcessor {
+
+  private final Multiset<Event> generated = HashMultiset.create();
+
+  @Override
+  public void start(List<IterationCallback> iterationCallbacks, EngineStatusCallback engineStatusCallback) {
+  }
+
+  @Override
+  public void stop() {
+  }
+
+  @Override
+  public boolean isRunning() {
+    return false;
+  }
+
+  @Override
+  public void send(Event event) {
+    generated.add(event);
+  }
+
+  @Override
+  public void addToQueue(Event event) {
+    generated.add(event);
+  }
+
+  /**
+   * Checks if event was generated by a handler (and hasn't been matched yet)
+   */
+  public boolean consume(Event event) {
+    return generated.remove(event);
+  }
+
+  /**
+   * Number of generated events that haven't been found in the journal
+   */
+  public int getUnmatchedCount() {
+    return generated.size();
+  }
+
+  public void reset() {
+    generated.clear();
+  }
+
+}
@@ -1,11 +1,15 @@
 package org.rabix.engine.model;
 
+import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.rabix.bindings.model.LinkMerge;
 import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.rabix.engine.db.VariableValueStore;
+import org.rabix.engine.db.VariableValueStore.StoredValue;
 
 public class VariableRecord {
 
@@ -25,6 +29,12 @@ public class VariableRecord {
   private boolean isDefault = true;
   private Object transform;
 
+  /**
+   * Flattened prefix of the wrapped value (for merge_flattened). Only appended to, so views handed out stay valid.
+   */
+  private List<Object> merged;
+  private int mergedCount; // number of value elements in the flattened prefix
+
   public VariableRecord(String contextId, String jobId, String portId, LinkPortType type, Object value, LinkMerge linkMerge) {  
     this.jobId = jobId;
     this.portId = portId;
@@ -50,6 +60,9 @@ public class VariableRecord {
   @SuppressWarnings("unchecked")
   public void addValue(Object value, Integer position) {
     numberOfTimesUpdated++;
+    if (this.value instanceof StoredValue) {
+      this.value = ((StoredValue) this.value).decode();
+    }
     if (isDefault) {
       this.value = null;
       isDefault = false;
@@ -58,23 +71,28 @@ public class VariableRecord {
       if (position == 1) {
         this.value = value;
       } else {
-        List<Object> valueList = new ArrayList<>();
+        List<Object> valueList = new ArrayList<>(position);
         expand(valueList, position);
         valueList.set(position - 1, value);
         this.value = valueList;
         this.isWrapped = true;
       }
+      this.merged = null;
     } else {
       if (isWrapped) {
         expand((List<Object>) this.value, position);
         ((List<Object>) this.value).set(position - 1, value);
+        if (position <= mergedCount) {
+          this.merged = null; // already flattened element has changed
+        }
       } else {
-        List<Object> valueList = new ArrayList<>();
+        List<Object> valueList = new ArrayList<>(Math.max(position, 2));
         valueList.add(this.value);
         expand(valueList, position);
         valueList.set(position - 1, value);
         this.value = valueList;
         this.isWrapped = true;
+        this.merged = null;
       }
     }
   }
@@ -82,12 +100,54 @@ public class VariableRecord {
   public Object linkMerge() {
     switch (linkMerge) {
     case merge_nested:
-      return this.value;
+      return loadValue();
     case merge_flattened:
-      return mergeFlatten(this.value);
+      if (value instanceof StoredValue) {
+        return mergeFlatten(loadValue());
+      }
+      if (isWrapped && value instanceof List<?>) {
+        return mergeFlattenIncremental();
+      }
+      return mergeFlatten(value);
     default:
-      return this.value;
+      return loadValue();
+    }
+  }
+
+  /**
+   * Flattens elements added since the last call and returns a read-only view of the flattened value
+   */
+  @SuppressWarnings("unchecked")
+  private List<Object> mergeFlattenIncremental() {
+    List<Object> valueList = (List<Object>) value;
+    if (merged == null) {
+      merged = new ArrayList<>(valueList.size());
+      mergedCount = 0;
     }
+    for (; mergedCount < valueList.size(); mergedCount++) {
+      flattenInto(valueList.get(mergedCount), merged);
+    }
+    return new MergedView(merged, merged.size());
+  }
+
+  /**
+   * Moves value to the store if it's large enough. It is decoded when read or updated.
+   */
+  public void offload(VariableValueStore valueStore) {
+    if (!(value instanceof StoredValue)) {
+      this.value = valueStore.store(contextId, value);
+      if (this.value instanceof StoredValue) {
+        this.merged = null;
+      }
+    }
+  }
+
+  public boolean isOffloaded() {
+    return value instanceof StoredValue;
+  }
+
+  private Object loadValue() {
+    return value instanceof StoredValue ? ((StoredValue) value).decode() : value;
   }
 
   private <T> void expand(List<T> list, Integer position) {
@@ -101,7 +161,6 @@ public class VariableRecord {
     return;
   }
 
-  @SuppressWarnings("unchecked")
   private Object mergeFlatten(Object value) {
     if (value == null) {
       return null;
@@ -110,19 +169,20 @@ public class VariableRecord {
       return value;
     }
     List<Object> flattenedValues = new ArrayList<>();
+    for (Object subvalue : ((List<?>) value)) {
+      flattenInto(subvalue, flattenedValues);
+    }
+    return flattenedValues;
+  }
+
+  private void flattenInto(Object value, List<Object> flattenedValues) {
     if (value instanceof List<?>) {
       for (Object subvalue : ((List<?>) value)) {
-        Object flattenedSubvalue = mergeFlatten(subvalue);
-        if (flattenedSubvalue instanceof List<?>) {
-          flattenedValues.addAll((Collection<? extends Object>) flattenedSubvalue);
-        } else {
-          flattenedValues.add(flattenedSubvalue);
-        }
+        flattenInto(subvalue, flattenedValues);
       }
     } else {
       flattenedValues.add(value);
     }
-    return flattenedValues;
   }
 
   public String getJobId() {
@@ -155,13 +215,14 @@ public class VariableRecord {
 
   public Object getValue() {
     if (linkMerge == null) {
-      return this.value;
+      return loadValue();
     }
     return linkMerge();
   }
 
   public void setValue(Object value) {
     this.value = value;
+    this.merged = null;
   }
 
   public boolean isWrapped() {
@@ -186,4 +247,33 @@ public class VariableRecord {
         + ", value=" + value + ", isWrapped=" + isWrapped + ", numberOfGlobals=" + numberOfGlobals + ", linkMerge=" + linkMerge + "]";
   }
 
+  /**
+   * Read-only view of the first <code>size</code> elements of a list that is only appended to
+   */
+  private static class MergedView extends AbstractList<Object> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = -1572096480921483815L;
+
+    private final List<Object> list;
+    private final int size;
+
+    MergedView(List<Object> list, int size) {
+      this.list = list;
+      this.size = size;
+    }
+
+    @Override
+    public Object get(int index) {
+      if (index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return list.get(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
 }
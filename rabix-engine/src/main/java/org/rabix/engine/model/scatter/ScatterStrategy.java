@@ -1,6 +1,5 @@
 package org.rabix.engine.model.scatter;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import org.rabix.bindings.BindingException;
@@ -17,6 +16,6 @@ public interface ScatterStrategy {
   
   List<RowMapping> enabled() throws BindingException;
   
-  LinkedList<Object> values(String jobId, String portId, String contextId);
+  List<Object> values(String jobId, String portId, String contextId);
   
 }
@@ -0,0 +1,167 @@
+package org.rabix.engine.model.scatter.impl;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.rabix.bindings.BindingException;
+import org.rabix.bindings.model.ScatterMethod;
+import org.rabix.bindings.model.dag.DAGLinkPort;
+import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.rabix.bindings.model.dag.DAGNode;
+import org.rabix.common.helper.InternalSchemaHelper;
+import org.rabix.engine.model.VariableRecord;
+import org.rabix.engine.model.scatter.RowMapping;
+import org.rabix.engine.model.scatter.ScatterStrategy;
+import org.rabix.engine.service.VariableRecordService;
+
+/**
+ * Base for strategies that address scattered values by (1-based) position.
+ *
+ * Rows are identified by the position of the scattered job. New rows are queued by {@link #addRow(int)} and handed out
+ * by {@link #enabled()} until they are committed. {@link RowMapping}s are created only when the list is read.
+ */
+abstract class IndexedScatterStrategy implements ScatterStrategy {
+
+  protected final String[] ports;
+  protected final ScatterMethod scatterMethod;
+  protected final VariableRecordService variableRecordService;
+
+  private int[] pending = new int[16];
+  private int pendingCount = 0;
+  private final BitSet committed = new BitSet();
+
+  protected IndexedScatterStrategy(DAGNode dagNode, VariableRecordService variableRecordService) {
+    List<String> scatterPorts = new ArrayList<>();
+    for (DAGLinkPort port : dagNode.getInputPorts()) {
+      if (port.isScatter()) {
+        scatterPorts.add(port.getId());
+      }
+    }
+    this.ports = scatterPorts.toArray(new String[scatterPorts.size()]);
+    this.scatterMethod = dagNode.getScatterMethod();
+    this.variableRecordService = variableRecordService;
+  }
+
+  public ScatterMethod getScatterMethod() {
+    return scatterMethod;
+  }
+
+  /**
+   * Creates mapping for the row at the given position
+   */
+  protected abstract RowMapping rowMapping(int position);
+
+  protected int portIndex(String port) {
+    for (int i = 0; i < ports.length; i++) {
+      if (ports[i].equals(port)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Port " + port + " is not scattered");
+  }
+
+  protected void addRow(int position) {
+    if (pendingCount == pending.length) {
+      pending = Arrays.copyOf(pending, pending.length * 2);
+    }
+    pending[pendingCount++] = position;
+  }
+
+  /**
+   * Output value of the scattered job at the given position
+   */
+  protected Object output(String jobId, int position, String portId, String contextId) {
+    String scatteredJobId = InternalSchemaHelper.scatterId(jobId, position);
+    VariableRecord variableRecord = variableRecordService.find(scatteredJobId, portId, LinkPortType.OUTPUT, contextId);
+    return variableRecord != null ? variableRecord.getValue() : null;
+  }
+
+  @Override
+  public List<RowMapping> enabled() throws BindingException {
+    if (ports.length == 0) {
+      throw new BindingException("There are no scattered ports");
+    }
+    compact();
+    return new EnabledRows(Arrays.copyOf(pending, pendingCount));
+  }
+
+  @Override
+  public void commit(List<RowMapping> mappings) {
+    if (mappings instanceof EnabledRows && ((EnabledRows) mappings).getStrategy() == this) {
+      for (int position : ((EnabledRows) mappings).positions) {
+        committed.set(position);
+      }
+    } else {
+      for (RowMapping mapping : mappings) {
+        committed.set(mapping.getIndex());
+      }
+    }
+    compact();
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return ScatterMethod.isBlocking(scatterMethod);
+  }
+
+  private void compact() {
+    int count = 0;
+    for (int i = 0; i < pendingCount; i++) {
+      if (!committed.get(pending[i])) {
+        pending[count++] = pending[i];
+      }
+    }
+    pendingCount = count;
+  }
+
+  protected static Object[] grow(Object[] array, int size) {
+    if (array == null) {
+      return new Object[Math.max(size, 16)];
+    }
+    if (array.length >= size) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(size, array.length * 2));
+  }
+
+  protected static int[] grow(int[] array, int size) {
+    if (array == null) {
+      return new int[Math.max(size, 16)];
+    }
+    if (array.length >= size) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(size, array.length * 2));
+  }
+
+  /**
+   * Enabled rows. Mappings are created on access.
+   */
+  private class EnabledRows extends AbstractList<RowMapping> implements RandomAccess {
+
+    private final int[] positions;
+
+    EnabledRows(int[] positions) {
+      this.positions = positions;
+    }
+
+    IndexedScatterStrategy getStrategy() {
+      return IndexedScatterStrategy.this;
+    }
+
+    @Override
+    public RowMapping get(int index) {
+      return rowMapping(positions[index]);
+    }
+
+    @Override
+    public int size() {
+      return positions.length;
+    }
+  }
+
+}
@@ -1,235 +1,196 @@
 package org.rabix.engine.model.scatter.impl;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
-import org.rabix.bindings.BindingException;
 import org.rabix.bindings.model.ScatterMethod;
-import org.rabix.bindings.model.dag.DAGLinkPort;
-import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
 import org.rabix.bindings.model.dag.DAGNode;
-import org.rabix.common.helper.InternalSchemaHelper;
-import org.rabix.engine.model.VariableRecord;
 import org.rabix.engine.model.scatter.PortMapping;
 import org.rabix.engine.model.scatter.RowMapping;
-import org.rabix.engine.model.scatter.ScatterStrategy;
 import org.rabix.engine.service.VariableRecordService;
 
-public class ScatterCartesianStrategy implements ScatterStrategy {
+import com.google.common.base.Preconditions;
+
+/**
+ * Cross product of scattered ports (in declaration order).
+ *
+ * Combinations are created incrementally, when a position of a port is enabled it's combined only with the positions
+ * already enabled on the other ports. Positions of a combination are stored in a flat array addressed by the scattered
+ * job position, and job positions are stored in a tree of arrays addressed by port positions, so combinations are
+ * visited in order without sorting.
+ */
+public class ScatterCartesianStrategy extends IndexedScatterStrategy {
+
+  private final Object[][] values;
+  private final BitSet[] enabledPositions;
+  private final int[][] positions;
+  private final int[] positionCounts;
+
+  /**
+   * Positions of each combination, ports.length entries per combination
+   */
+  private int[] combinations = new int[0];
+  private int combinationCount = 0;
+
+  /**
+   * Job positions by port positions. Levels are Object[] for all ports except the last one, which is int[].
+   */
+  private final Object[] root = new Object[1];
 
-  private LinkedList<Combination> combinations;
-
-  private Map<String, LinkedList<Object>> values;
-  private Map<String, LinkedList<Integer>> positions;
-
-  private final ScatterMethod scatterMethod;
-  private final VariableRecordService variableRecordService;
-  
   public ScatterCartesianStrategy(DAGNode dagNode, VariableRecordService variableRecordService) {
-    this.values = new HashMap<>();
-    this.positions = new HashMap<>();
-    this.combinations = new LinkedList<>();
-    this.scatterMethod = dagNode.getScatterMethod();
-    this.variableRecordService = variableRecordService;
-    initialize(dagNode);
-  }
-
-  public ScatterMethod getScatterMethod() {
-    return scatterMethod;
-  }
-  
-  public void initialize(DAGNode dagNode) {
-    for (DAGLinkPort port : dagNode.getInputPorts()) {
-      if (port.isScatter()) {
-        values.put(port.getId(), new LinkedList<Object>());
-        positions.put(port.getId(), new LinkedList<Integer>());
-      }
+    super(dagNode, variableRecordService);
+    this.values = new Object[ports.length][];
+    this.positions = new int[ports.length][];
+    this.positionCounts = new int[ports.length];
+    this.enabledPositions = new BitSet[ports.length];
+    for (int i = 0; i < ports.length; i++) {
+      values[i] = new Object[0];
+      positions[i] = new int[0];
+      enabledPositions[i] = new BitSet();
     }
   }
 
   @Override
   public void enable(String port, Object value, Integer position) {
-    LinkedList<Integer> positionList = positions.get(port);
-    positionList = expand(positionList, position);
-    positionList.set(position - 1, position);
-    positions.put(port, positionList);
-
-    LinkedList<Object> valueList = values.get(port);
-    valueList = expand(valueList, position);
-    valueList.set(position - 1, value);
-    values.put(port, valueList);
+    Preconditions.checkNotNull(port);
+    Preconditions.checkNotNull(position);
+
+    int portIndex = portIndex(port);
+    values[portIndex] = grow(values[portIndex], position);
+    values[portIndex][position - 1] = value;
+
+    if (!enabledPositions[portIndex].get(position)) {
+      enabledPositions[portIndex].set(position);
+      positions[portIndex] = grow(positions[portIndex], positionCounts[portIndex] + 1);
+      positions[portIndex][positionCounts[portIndex]++] = position;
+      combine(portIndex, position);
+    }
   }
 
-  @Override
-  public LinkedList<Object> values(String jobId, String portId, String contextId) {
-    Collections.sort(combinations, new Comparator<Combination>() {
-      @Override
-      public int compare(Combination o1, Combination o2) {
-        return o1.indexes.toString().compareTo(o2.indexes.toString());
-      }
-    });
-
-    if (scatterMethod.equals(ScatterMethod.flat_crossproduct)) {
-      LinkedList<Object> result = new LinkedList<>();
-      for (Combination combination : combinations) {
-        String scatteredJobId = InternalSchemaHelper.scatterId(jobId, combination.position);
-        VariableRecord variableRecord = variableRecordService.find(scatteredJobId, portId, LinkPortType.OUTPUT, contextId);
-        result.addLast(variableRecord.getValue());
+  /**
+   * Creates combinations of the new position with enabled positions of other ports
+   */
+  private void combine(int portIndex, int position) {
+    for (int i = 0; i < ports.length; i++) {
+      if (i != portIndex && positionCounts[i] == 0) {
+        return;
       }
-      return result;
     }
-    if (scatterMethod.equals(ScatterMethod.nested_crossproduct)) {
-      LinkedList<Object> result = new LinkedList<>();
-      
-      int position = 1;
-      LinkedList<Object> subresult = new LinkedList<>();
-      for (Combination combination : combinations) {
-        if (combination.indexes.get(0) != position) {
-          result.addLast(subresult);
-          subresult = new LinkedList<>();
-          position++;
+    int[] cursor = new int[ports.length];
+    int[] combination = new int[ports.length];
+    while (true) {
+      for (int i = 0; i < ports.length; i++) {
+        combination[i] = i == portIndex ? position : positions[i][cursor[i]];
+      }
+      add(combination);
+
+      int i = ports.length - 1;
+      for (; i >= 0; i--) {
+        if (i == portIndex) {
+          continue;
         }
-        String scatteredJobId = InternalSchemaHelper.scatterId(jobId, combination.position);
-        VariableRecord variableRecord = variableRecordService.find(scatteredJobId, portId, LinkPortType.OUTPUT, contextId);
-        subresult.addLast(variableRecord.getValue());
+        if (++cursor[i] < positionCounts[i]) {
+          break;
+        }
+        cursor[i] = 0;
+      }
+      if (i < 0) {
+        return;
       }
-      result.addLast(subresult);
-      return result;
-    }
-    return null;
-  }
-  
-  private <T> LinkedList<T> expand(LinkedList<T> list, Integer position) {
-    if (list == null) {
-      list = new LinkedList<>();
-    }
-    int initialSize = list.size();
-    if (initialSize >= position) {
-      return list;
-    }
-    for (int i = 0; i < position - initialSize; i++) {
-      list.add(null);
     }
-    return list;
   }
 
-  private LinkedList<LinkedList<Integer>> cartesianProduct(LinkedList<LinkedList<Integer>> lists) throws BindingException {
-    if (lists.size() < 2) {
-      throw new BindingException("Can't have a product of fewer than two lists (got " + lists.size() + ")");
+  private void add(int[] combination) {
+    Object[] parent = root;
+    int slot = 0;
+    for (int i = 0; i < ports.length - 1; i++) {
+      Object[] level = grow((Object[]) parent[slot], combination[i]);
+      parent[slot] = level;
+      parent = level;
+      slot = combination[i] - 1;
     }
-    return cartesianProduct(0, lists);
-  }
-
-  private LinkedList<LinkedList<Integer>> cartesianProduct(int index, List<LinkedList<Integer>> lists) {
-    LinkedList<LinkedList<Integer>> result = new LinkedList<LinkedList<Integer>>();
-    if (index == lists.size()) {
-      result.add(new LinkedList<Integer>());
-    } else {
-      for (Integer obj : lists.get(index)) {
-        for (LinkedList<Integer> list : cartesianProduct(index + 1, lists)) {
-          list.addFirst(obj);
-          result.add(list);
-        }
-      }
+    int last = combination[ports.length - 1];
+    int[] jobPositions = grow((int[]) parent[slot], last);
+    parent[slot] = jobPositions;
+    if (jobPositions[last - 1] != 0) {
+      return;
     }
-    return result;
+    int jobPosition = ++combinationCount;
+    jobPositions[last - 1] = jobPosition;
+
+    combinations = grow(combinations, combinationCount * ports.length);
+    System.arraycopy(combination, 0, combinations, (jobPosition - 1) * ports.length, ports.length);
+    addRow(jobPosition);
   }
 
   @Override
-  public void commit(List<RowMapping> mappings) {
-    for (RowMapping mapping : mappings) {
-      for (Combination combination : combinations) {
-        if (combination.position == mapping.getIndex()) {
-          combination.enabled = true;
-        }
-      }
+  protected RowMapping rowMapping(int position) {
+    int offset = (position - 1) * ports.length;
+    List<PortMapping> portMappings = new ArrayList<>(ports.length);
+    for (int i = 0; i < ports.length; i++) {
+      portMappings.add(new PortMapping(ports[i], values[i][combinations[offset + i] - 1]));
     }
+    return new RowMapping(position, portMappings);
   }
 
   @Override
   public int enabledCount() {
-    return combinations.size();
+    return combinationCount;
   }
 
   @Override
-  public List<RowMapping> enabled() throws BindingException {
-    List<RowMapping> result = new LinkedList<>();
-    LinkedList<LinkedList<Integer>> mapping = new LinkedList<>();
-    for (Entry<String, LinkedList<Integer>> positionEntry : positions.entrySet()) {
-      mapping.add(positionEntry.getValue());
+  public List<Object> values(String jobId, String portId, String contextId) {
+    if (ports.length == 0 || root[0] == null) {
+      return new ArrayList<>();
     }
-    LinkedList<LinkedList<Integer>> newMapping = cartesianProduct(mapping);
-
-    for (int i = 0; i < newMapping.size(); i++) {
-      LinkedList<Integer> indexes = newMapping.get(i);
-      if (!hasNull(indexes)) {
-        Combination combination = getCombination(indexes);
-        if (combination == null) {
-          combination = new Combination(combinations.size() + 1, false, indexes);
-          combinations.add(combination);
-        }
-        if (!combination.enabled) {
-          List<PortMapping> portMappings = new LinkedList<>();
-
-          int positionIndex = 1;
-          for (Entry<String, LinkedList<Object>> valueEntry : values.entrySet()) {
-            String port = valueEntry.getKey();
-            int position = combination.indexes.get(positionIndex - 1);
-            Object value = valueEntry.getValue().get(position - 1);
-            portMappings.add(new PortMapping(port, value));
-            positionIndex++;
+    if (scatterMethod.equals(ScatterMethod.flat_crossproduct)) {
+      List<Object> result = new ArrayList<>(combinationCount);
+      collect(root[0], 0, jobId, portId, contextId, result);
+      return result;
+    }
+    if (scatterMethod.equals(ScatterMethod.nested_crossproduct)) {
+      List<Object> result = new ArrayList<>();
+      if (ports.length == 1) {
+        int[] jobPositions = (int[]) root[0];
+        for (int jobPosition : jobPositions) {
+          if (jobPosition != 0) {
+            List<Object> subresult = new ArrayList<>(1);
+            subresult.add(output(jobId, jobPosition, portId, contextId));
+            result.add(subresult);
           }
-          result.add(new RowMapping(combination.position, portMappings));
         }
+        return result;
       }
-    }
-    return result;
-  }
-
-  private boolean hasNull(LinkedList<Integer> list) {
-    for (Integer value : list) {
-      if (value == null) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  private Combination getCombination(LinkedList<Integer> indexes) {
-    for (Combination combination : combinations) {
-      if (combination.indexes.toString().equals(indexes.toString())) {
-        return combination;
+      for (Object child : (Object[]) root[0]) {
+        if (child != null) {
+          List<Object> subresult = new ArrayList<>();
+          collect(child, 1, jobId, portId, contextId, subresult);
+          result.add(subresult);
+        }
       }
+      return result;
     }
     return null;
   }
 
-  private class Combination {
-    int position;
-    boolean enabled;
-    LinkedList<Integer> indexes;
-
-    public Combination(int position, boolean enabled, LinkedList<Integer> indexes) {
-      this.position = position;
-      this.enabled = enabled;
-      this.indexes = indexes;
+  /**
+   * Collects outputs of combinations under the node in position order
+   */
+  private void collect(Object node, int depth, String jobId, String portId, String contextId, List<Object> result) {
+    if (depth == ports.length - 1) {
+      for (int jobPosition : (int[]) node) {
+        if (jobPosition != 0) {
+          result.add(output(jobId, jobPosition, portId, contextId));
+        }
+      }
+      return;
     }
-
-    @Override
-    public String toString() {
-      return "Combination [position=" + position + ", enabled=" + enabled + ", indexes=" + indexes + "]";
+    for (Object child : (Object[]) node) {
+      if (child != null) {
+        collect(child, depth + 1, jobId, portId, contextId, result);
+      }
     }
-    
-  }
-
-  @Override
-  public boolean isBlocking() {
-    return ScatterMethod.isBlocking(scatterMethod);
   }
 
 }
@@ -18,7 +18,7 @@ public class SyncEventDispatcher implements EventDispatcher {
   
   @Override
   public void send(Event event) throws EventHandlerException {
-    handlerFactory.get(event.getType()).handle(event);
+    handlerFactory.handle(event);
   }
 
   @Override
@@ -1,9 +1,19 @@
 package org.rabix.engine.processor.handler;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.configuration.Configuration;
 import org.rabix.engine.event.Event;
 import org.rabix.engine.event.Event.EventType;
+import org.rabix.engine.event.impl.ContextStatusEvent;
+import org.rabix.engine.journal.EventJournal;
+import org.rabix.engine.journal.EventJournalException;
+import org.rabix.engine.journal.EventJournalFactory;
+import org.rabix.engine.model.ContextRecord.ContextStatus;
 import org.rabix.engine.processor.handler.impl.ContextStatusEventHandler;
 import org.rabix.engine.processor.handler.impl.InitEventHandler;
+import org.rabix.engine.processor.handler.impl.InputBatchEventHandler;
 import org.rabix.engine.processor.handler.impl.InputEventHandler;
 import org.rabix.engine.processor.handler.impl.JobStatusEventHandler;
 import org.rabix.engine.processor.handler.impl.OutputEventHandler;
@@ -15,17 +25,31 @@ public class HandlerFactory {
 
   private final InitEventHandler initEventHandler;
   private final InputEventHandler inputEventHandler;
+  private final InputBatchEventHandler inputBatchEventHandler;
   private final OutputEventHandler outputEventHandler;
   private final JobStatusEventHandler statusEventHandler;
   private final ContextStatusEventHandler contextStatusEventHandler;
   
+  private final EventJournal eventJournal;
+  
+  private final List<ContextListener> contextListeners = new CopyOnWriteArrayList<>();
+  
+  /**
+   * Notified after a context has completed or failed
+   */
+  public static interface ContextListener {
+    void onContextFinished(String contextId);
+  }
+  
   @Inject
-  public HandlerFactory(InitEventHandler initEventHandler, InputEventHandler inputEventHandler, OutputEventHandler outputEventHandler, JobStatusEventHandler statusEventHandler, ContextStatusEventHandler contextStatusEventHandler) {
+  public HandlerFactory(InitEventHandler initEventHandler, InputEventHandler inputEventHandler, InputBatchEventHandler inputBatchEventHandler, OutputEventHandler outputEventHandler, JobStatusEventHandler statusEventHandler, ContextStatusEventHandler contextStatusEventHandler, Configuration configuration) {
     this.initEventHandler = initEventHandler;
     this.inputEventHandler = inputEventHandler;
+    this.inputBatchEventHandler = inputBatchEventHandler;
     this.outputEventHandler = outputEventHandler;
     this.statusEventHandler = statusEventHandler;
     this.contextStatusEventHandler = contextStatusEventHandler;
+    this.eventJournal = EventJournalFactory.create(configuration);
   }
   
   /**
@@ -36,6 +60,39 @@ public class HandlerFactory {
     this.outputEventHandler.initialize(engineStatusCallback);
   }
   
+  public void addContextListener(ContextListener listener) {
+    this.contextListeners.add(listener);
+  }
+  
+  /**
+   * Records event in the {@link EventJournal} and handles it. Every completed or failed context goes through here.
+   */
+  public void handle(Event event) throws EventHandlerException {
+    try {
+      eventJournal.record(event);
+    } catch (EventJournalException e) {
+      throw new EventHandlerException("Failed to record event " + event, e);
+    }
+    get(event.getType()).handle(event);
+
+    if (event.getType().equals(EventType.CONTEXT_STATUS_UPDATE)) {
+      ContextStatus status = ((ContextStatusEvent) event).getStatus();
+      if (ContextStatus.COMPLETED.equals(status) || ContextStatus.FAILED.equals(status)) {
+        eventJournal.finished(event.getContextId());
+        for (ContextListener listener : contextListeners) {
+          listener.onContextFinished(event.getContextId());
+        }
+      }
+    }
+  }
+  
+  /**
+   * Flushes buffered journal events
+   */
+  public void flushJournal() {
+    eventJournal.flush();
+  }
+  
   @SuppressWarnings("unchecked")
   public <T extends Event> EventHandler<T> get(EventType eventType) {
     switch (eventType) {
@@ -49,6 +106,8 @@ public class HandlerFactory {
       return (EventHandler<T>) statusEventHandler;
     case CONTEXT_STATUS_UPDATE:
       return (EventHandler<T>) contextStatusEventHandler;
+    case INPUT_BATCH_UPDATE:
+      return (EventHandler<T>) inputBatchEventHandler;
     default:
       throw new RuntimeException("There's no EventHandler for event type " + eventType);
     }
@@ -0,0 +1,29 @@
+package org.rabix.engine.processor.handler.impl;
+
+import org.rabix.engine.event.impl.InputBatchUpdateEvent;
+import org.rabix.engine.event.impl.InputUpdateEvent;
+import org.rabix.engine.processor.handler.EventHandler;
+import org.rabix.engine.processor.handler.EventHandlerException;
+
+import com.google.inject.Inject;
+
+/**
+ * Handles {@link InputBatchUpdateEvent} events. Updates are handled in order by {@link InputEventHandler}.
+ */
+public class InputBatchEventHandler implements EventHandler<InputBatchUpdateEvent> {
+
+  private final InputEventHandler inputEventHandler;
+
+  @Inject
+  public InputBatchEventHandler(InputEventHandler inputEventHandler) {
+    this.inputEventHandler = inputEventHandler;
+  }
+
+  @Override
+  public void handle(InputBatchUpdateEvent event) throws EventHandlerException {
+    for (InputUpdateEvent inputEvent : event.getEvents()) {
+      inputEventHandler.handle(inputEvent);
+    }
+  }
+
+}
@@ -100,6 +100,9 @@ public class InputEventHandler implements EventHandler<InputUpdateEvent> {
   
   private void update(JobRecord job, VariableRecord variable) {
     jobService.update(job);
+    if (job.isInputPortReady(variable.getPortId())) {
+      variableService.offload(variable);
+    }
     variableService.update(variable);
   }
   
@@ -168,6 +168,7 @@ public class JobStatusEventHandler implements EventHandler<JobStatusEvent> {
     variableRecordService.delete(rootId);
     linkRecordService.delete(rootId);
     jobGroupsDB.delete(rootId);
+    dagNodeDB.invalidate(rootId);
   }
   
   /**
@@ -78,6 +78,9 @@ public class OutputEventHandler implements EventHandler<OutputUpdateEvent> {
     VariableRecord sourceVariable = variableService.find(event.getJobId(), event.getPortId(), LinkPortType.OUTPUT, event.getContextId());
     sourceJob.decrementPortCounter(event.getPortId(), LinkPortType.OUTPUT);
     sourceVariable.addValue(event.getValue(), event.getPosition());
+    if (sourceJob.isOutputPortReady(event.getPortId())) {
+      variableService.offload(sourceVariable);
+    }
     jobService.update(sourceJob);
     
     if (sourceJob.isCompleted()) {
@@ -97,7 +100,7 @@ public class OutputEventHandler implements EventHandler<OutputUpdateEvent> {
         Map<String, Object> outputs = new HashMap<>();
         List<VariableRecord> outputVariables = variableService.find(sourceJob.getId(), LinkPortType.OUTPUT, sourceJob.getRootId());
         for (VariableRecord outputVariable : outputVariables) {
-          Object value = CloneHelper.deepCopy(outputVariable.getValue());
+          Object value = CloneHelper.immutableCopy(outputVariable.getValue());
           outputs.put(outputVariable.getPortId(), value);
         }
         if(sourceJob.isRoot() && sourceJob.isContainer()) {
@@ -228,7 +231,7 @@ public class OutputEventHandler implements EventHandler<OutputUpdateEvent> {
     Map<String, Object> outputs = new HashMap<>();
     List<VariableRecord> outputVariables = variableService.find(jobRecord.getId(), LinkPortType.OUTPUT, jobRecord.getRootId());
     for (VariableRecord outputVariable : outputVariables) {
-      Object value = CloneHelper.deepCopy(outputVariable.getValue());
+      Object value = CloneHelper.immutableCopy(outputVariable.getValue());
       outputs.put(outputVariable.getPortId(), value);
     }
     return JobHelper.createRootJob(jobRecord, status, jobService, variableService, linkService, contextService, dagNodeDB, outputs);
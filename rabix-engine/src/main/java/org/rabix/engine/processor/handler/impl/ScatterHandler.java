@@ -13,11 +13,11 @@ import org.rabix.bindings.model.dag.DAGNode;
 import org.rabix.common.helper.InternalSchemaHelper;
 import org.rabix.engine.db.DAGNodeDB;
 import org.rabix.engine.event.Event;
+import org.rabix.engine.event.impl.InputBatchUpdateEvent;
 import org.rabix.engine.event.impl.InputUpdateEvent;
 import org.rabix.engine.model.JobRecord;
 import org.rabix.engine.model.LinkRecord;
 import org.rabix.engine.model.VariableRecord;
-import org.rabix.engine.model.JobRecord.PortCounter;
 import org.rabix.engine.model.scatter.RowMapping;
 import org.rabix.engine.model.scatter.ScatterStrategy;
 import org.rabix.engine.model.scatter.ScatterStrategyFactory;
@@ -68,12 +68,14 @@ public class ScatterHandler {
 
     if (isLookAhead) {
       int numberOfScattered = getNumberOfScattered(job, numberOfScatteredFromEvent);
-      createScatteredJobs(job, event, portId, value, node, numberOfScattered, position);
+      job.getScatterStrategy().enable(portId, value, position);
+      createScatteredJobs(job, event, node, numberOfScattered);
       return;
     }
 
     if (value == null) {
-      createScatteredJobs(job, event, portId, value, node, 1, position);
+      job.getScatterStrategy().enable(portId, value, position);
+      createScatteredJobs(job, event, node, 1);
       return;
     }
     
@@ -95,9 +97,12 @@ public class ScatterHandler {
       values = (List<Object>) value;
     }
     
+    // all values are enabled first, so the new rows are created in one pass
+    ScatterStrategy scatterStrategy = job.getScatterStrategy();
     for (int i = 0; i < values.size(); i++) {
-      createScatteredJobs(job, event, portId, values.get(i), node, values.size(), usePositionFromEvent ? position : i + 1);
+      scatterStrategy.enable(portId, values.get(i), usePositionFromEvent ? position : i + 1);
     }
+    createScatteredJobs(job, event, node, values.size());
   }
   
   public JobRecord createJobRecord(String id, String parentId, DAGNode node, boolean isScattered, String contextId) {
@@ -111,12 +116,15 @@ public class ScatterHandler {
     if (ScatterMethod.isBlocking(node.getScatterMethod())) {
       isBlocking = true;
     }
-    return new JobRecord(contextId, id, JobRecordService.generateUniqueId(), parentId, JobState.PENDING, node instanceof DAGContainer, isScattered, false, isBlocking);
+    return new JobRecord(contextId, id, JobRecordService.generateUniqueId(contextId, id), parentId, JobState.PENDING, node instanceof DAGContainer, isScattered, false, isBlocking);
   }
   
-  private void createScatteredJobs(JobRecord job, Event event, String port, Object value, DAGNode node, Integer numberOfScattered, Integer position) throws EventHandlerException {
+  /**
+   * Creates scattered jobs for all rows enabled by the strategy. The inputs of new jobs are sent as one
+   * {@link InputBatchUpdateEvent}.
+   */
+  private void createScatteredJobs(JobRecord job, Event event, DAGNode node, Integer numberOfScattered) throws EventHandlerException {
     ScatterStrategy scatterStrategy = job.getScatterStrategy();
-    scatterStrategy.enable(port, value, position);
     
     List<RowMapping> mappings = null;
     try {
@@ -126,69 +134,75 @@ public class ScatterHandler {
     }
     scatterStrategy.commit(mappings);
     
+    if (mappings.isEmpty()) {
+      return;
+    }
+    
     int oldScatteredNumber = job.getNumberOfGlobalOutputs();
-    int newScatteredNumber = job.getNumberOfGlobalOutputs();
+    int newScatteredNumber = getNumberOfScattered(job, numberOfScattered);
+    
+    // the wrapper is updated once for all rows
+    job.setState(JobState.RUNNING);
+    job.setScatterWrapper(true);
+    job.resetOutputPortCounters(newScatteredNumber);
+    jobRecordService.update(job);
+    
+    List<DAGLinkPort> inputPorts = node.getInputPorts();
+    List<DAGLinkPort> outputPorts = node.getOutputPorts();
     
+    // values of ready non-scattered ports are the same for all rows
+    Object[] readyValues = new Object[inputPorts.size()];
+    boolean[] ready = new boolean[inputPorts.size()];
+    for (int i = 0; i < inputPorts.size(); i++) {
+      DAGLinkPort inputPort = inputPorts.get(i);
+      if (!inputPort.isScatter() && job.getInputCounter(inputPort.getId()) != null && job.isInputPortReady(inputPort.getId())) {
+        VariableRecord variable = variableRecordService.find(job.getId(), inputPort.getId(), LinkPortType.INPUT, job.getRootId());
+        readyValues[i] = variable.getValue();
+        ready[i] = true;
+      }
+    }
+    
+    List<InputUpdateEvent> events = new ArrayList<>(mappings.size() * inputPorts.size());
     for (RowMapping mapping : mappings) {
-      job.setState(JobState.RUNNING);
-      jobRecordService.update(job);
-
-      List<Event> events = new ArrayList<>();
-
       String jobNId = InternalSchemaHelper.scatterId(job.getId(), mapping.getIndex());
       JobRecord jobN = createJobRecord(jobNId, job.getExternalId(), node, true, job.getRootId());
        
-      for (DAGLinkPort inputPort : node.getInputPorts()) {
+      for (int i = 0; i < inputPorts.size(); i++) {
+        DAGLinkPort inputPort = inputPorts.get(i);
         Object defaultValue = node.getDefaults().get(inputPort.getId());
         VariableRecord variableN = new VariableRecord(job.getRootId(), jobNId, inputPort.getId(), LinkPortType.INPUT, defaultValue, node.getLinkMerge(inputPort.getId(), inputPort.getType()));
-        variableN.setNumberGlobals(getNumberOfScattered(job, numberOfScattered));
+        variableN.setNumberGlobals(newScatteredNumber);
         variableRecordService.create(variableN);
 
-        PortCounter inputPortCounter = job.getInputCounter(inputPort.getId());
-        if (inputPortCounter == null) {
+        if (job.getInputCounter(inputPort.getId()) == null) {
           continue;
         }
+        jobN.incrementPortCounter(inputPort, LinkPortType.INPUT);
         
-        if (jobN.getState().equals(JobState.PENDING)) {
-          jobN.incrementPortCounter(inputPort, LinkPortType.INPUT);
-        }
         LinkRecord link = new LinkRecord(job.getRootId(), job.getId(), inputPort.getId(), LinkPortType.INPUT, jobNId, inputPort.getId(), LinkPortType.INPUT, 1);
         linkRecordService.create(link);
 
         if (inputPort.isScatter()) {
-          Event eventInputPort = new InputUpdateEvent(job.getRootId(), jobNId, inputPort.getId(), mapping.getValue(inputPort.getId()), 1, event.getEventGroupId());
-          events.add(eventInputPort);
-        } else {
-          if (job.isInputPortReady(inputPort.getId())) {
-            VariableRecord variable = variableRecordService.find(job.getId(), inputPort.getId(), LinkPortType.INPUT, job.getRootId());
-            events.add(new InputUpdateEvent(job.getRootId(), jobNId, inputPort.getId(), variable.getValue(), 1, event.getEventGroupId()));
-          }
+          events.add(new InputUpdateEvent(job.getRootId(), jobNId, inputPort.getId(), mapping.getValue(inputPort.getId()), 1, event.getEventGroupId()));
+        } else if (ready[i]) {
+          events.add(new InputUpdateEvent(job.getRootId(), jobNId, inputPort.getId(), readyValues[i], 1, event.getEventGroupId()));
         }
       }
-      for (DAGLinkPort outputPort : node.getOutputPorts()) {
+      for (DAGLinkPort outputPort : outputPorts) {
         VariableRecord variableN = new VariableRecord(job.getRootId(), jobNId, outputPort.getId(), LinkPortType.OUTPUT, null, node.getLinkMerge(outputPort.getId(), outputPort.getType()));
-        variableN.setNumberGlobals(getNumberOfScattered(job, numberOfScattered));
+        variableN.setNumberGlobals(newScatteredNumber);
         variableRecordService.create(variableN);
         jobN.incrementPortCounter(outputPort, LinkPortType.OUTPUT);
 
         LinkRecord link = new LinkRecord(job.getRootId(), jobNId, outputPort.getId(), LinkPortType.OUTPUT, job.getId(), outputPort.getId(), LinkPortType.OUTPUT, null);
         linkRecordService.create(link);
       }
-
-      job.setState(JobState.RUNNING);
-      job.setScatterWrapper(true);
-      
-      newScatteredNumber = getNumberOfScattered(job, numberOfScattered);
-      
-      job.resetOutputPortCounters(newScatteredNumber);
-      jobRecordService.update(job);
-      
       jobN.setNumberOfGlobalOutputs(newScatteredNumber);
       jobRecordService.create(jobN);
-
-      for (Event subevent : events) {
-        eventProcessor.send(subevent);
-      }
+    }
+    
+    if (!events.isEmpty()) {
+      eventProcessor.send(new InputBatchUpdateEvent(job.getRootId(), events, event.getEventGroupId()));
     }
     
     if (newScatteredNumber > oldScatteredNumber) {
@@ -7,7 +7,10 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.rabix.engine.event.Event;
 import org.rabix.engine.event.Event.EventType;
@@ -33,13 +36,51 @@ public class EventProcessorImpl implements EventProcessor {
 
   private static final Logger logger = LoggerFactory.getLogger(EventProcessorImpl.class);
   
-  public final static long SLEEP = 100;
+  /**
+   * Marks event processor threads, so events generated by handlers can be told apart from external ones
+   */
+  private static final ThreadLocal<Boolean> processorThread = new ThreadLocal<>();
+
+  /**
+   * How long {@link #stop()} waits for the event being handled
+   */
+  private static final long STOP_TIMEOUT_SECONDS = 60;
+
+  /**
+   * Queued by {@link #stop()} to wake up the blocking take. Events already handed to handlers are never interrupted.
+   */
+  private static final Event STOP_EVENT = new Event() {
+    @Override
+    public EventType getType() {
+      return null;
+    }
+
+    @Override
+    public String getContextId() {
+      return null;
+    }
+
+    @Override
+    public String getEventGroupId() {
+      return null;
+    }
+  };
   
   private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
   private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 
   private final AtomicBoolean stop = new AtomicBoolean(false);
   private final AtomicBoolean running = new AtomicBoolean(false);
+  
+  /**
+   * Events queued but not handled yet (including the one being handled). {@link #awaitIdle()} waits on idleLock.
+   */
+  private final AtomicInteger pendingCount = new AtomicInteger(0);
+  private final Object idleLock = new Object();
+  
+  private final AtomicLong processedCount = new AtomicLong(0);
+  private long lastProcessedCount = 0;
+  private long lastRateTime = System.nanoTime();
 
   private final HandlerFactory handlerFactory;
   private final EventDispatcher eventDispatcher;
@@ -61,14 +102,19 @@ public class EventProcessorImpl implements EventProcessor {
     executorService.execute(new Runnable() {
       @Override
       public void run() {
+        processorThread.set(Boolean.TRUE);
         Event event = null;
         while (!stop.get()) {
+          event = null;
           try {
             event = events.poll();
             if (event == null) {
               running.set(false);
-              Thread.sleep(SLEEP);
-              continue;
+              handlerFactory.flushJournal();
+              event = events.take(); // blocks until an event arrives or the processor is stopped
+            }
+            if (event == STOP_EVENT) {
+              break;
             }
             ContextRecord context = contextRecordService.find(event.getContextId());
             if (context != null && context.getStatus().equals(ContextStatus.FAILED)) {
@@ -76,7 +122,8 @@ public class EventProcessorImpl implements EventProcessor {
               continue;
             }
             running.set(true);
-            handlerFactory.get(event.getType()).handle(event);
+            handlerFactory.handle(event);
+            processedCount.incrementAndGet();
 
             Integer iteration = iterations.get(event.getContextId());
             if (iteration == null) {
@@ -90,6 +137,11 @@ public class EventProcessorImpl implements EventProcessor {
               }
             }
             iterations.put(event.getContextId(), iteration);
+          } catch (InterruptedException e) {
+            if (stop.get()) {
+              break;
+            }
+            logger.warn("EventProcessor interrupted while waiting for events.");
           } catch (Exception e) {
             logger.error("EventProcessor failed to process event {}.", event, e);
             try {
@@ -98,28 +150,118 @@ public class EventProcessorImpl implements EventProcessor {
               logger.error("Failed to invalidate Context {}.", event.getContextId(), ehe);
               stop();
             }
+          } finally {
+            if (event != null && event != STOP_EVENT) {
+              eventDone();
+            }
           }
         }
+        running.set(false);
+        handlerFactory.flushJournal();
       }
     });
   }
   
+  /**
+   * Marks a dequeued event as done and wakes up {@link #awaitIdle()} callers once nothing is pending
+   */
+  private void eventDone() {
+    if (pendingCount.decrementAndGet() == 0) {
+      synchronized (idleLock) {
+        idleLock.notifyAll();
+      }
+    }
+  }
+  
   /**
    * Invalidates context 
    */
   private void invalidateContext(String contextId) throws EventHandlerException {
-    handlerFactory.get(Event.EventType.CONTEXT_STATUS_UPDATE).handle(new ContextStatusEvent(contextId, ContextStatus.FAILED));
+    handlerFactory.handle(new ContextStatusEvent(contextId, ContextStatus.FAILED));
   }
   
+  /**
+   * Stops the processor after the event being handled. The journal is flushed by the processor thread on exit.
+   */
   @Override
   public void stop() {
-    stop.set(true);
-    running.set(false);
+    if (!stop.compareAndSet(false, true)) {
+      return;
+    }
+    events.add(STOP_EVENT);
+    executorService.shutdown();
+    synchronized (idleLock) {
+      idleLock.notifyAll();
+    }
+    if (isProcessorThread()) {
+      return;
+    }
+    try {
+      if (!executorService.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        logger.warn("EventProcessor didn't stop in {} seconds.", STOP_TIMEOUT_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   public boolean isRunning() {
     return running.get();
   }
+  
+  /**
+   * Checks if every queued event has been handled. A stopped processor won't handle anything more, so it's idle too.
+   */
+  public boolean isIdle() {
+    return pendingCount.get() == 0 || stop.get();
+  }
+  
+  /**
+   * Blocks until the processor is idle or stopped
+   */
+  public void awaitIdle() throws InterruptedException {
+    synchronized (idleLock) {
+      while (pendingCount.get() > 0 && !stop.get()) {
+        idleLock.wait();
+      }
+    }
+  }
+  
+  /**
+   * Checks if the current thread is an event processor thread
+   */
+  public static boolean isProcessorThread() {
+    return Boolean.TRUE.equals(processorThread.get());
+  }
+  
+  /**
+   * Number of events waiting in the queue
+   */
+  public int getQueueSize() {
+    return events.size();
+  }
+  
+  public long getProcessedCount() {
+    return processedCount.get();
+  }
+  
+  /**
+   * Events processed per second since the previous sample
+   */
+  public synchronized double getEventsPerSecond() {
+    double seconds = (System.nanoTime() - lastRateTime) / 1e9;
+    return seconds > 0 ? (processedCount.get() - lastProcessedCount) / seconds : 0;
+  }
+
+  /**
+   * Events processed per second since the previous sample. Starts a new sample.
+   */
+  public synchronized double sampleEventsPerSecond() {
+    double rate = getEventsPerSecond();
+    lastRateTime = System.nanoTime();
+    lastProcessedCount = processedCount.get();
+    return rate;
+  }
 
   public void send(Event event) throws EventHandlerException {
     if (stop.get()) {
@@ -136,6 +278,7 @@ public class EventProcessorImpl implements EventProcessor {
     if (stop.get()) {
       return;
     }
+    pendingCount.incrementAndGet();
     this.events.add(event);
   }
 
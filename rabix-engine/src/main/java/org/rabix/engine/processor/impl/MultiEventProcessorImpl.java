@@ -1,14 +1,31 @@
 package org.rabix.engine.processor.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.configuration.Configuration;
 import org.rabix.engine.event.Event;
+import org.rabix.engine.event.Event.EventType;
 import org.rabix.engine.processor.EventProcessor;
 import org.rabix.engine.processor.handler.EventHandlerException;
+import org.rabix.engine.processor.handler.HandlerFactory;
+import org.rabix.engine.processor.placement.EventProcessorLoad;
+import org.rabix.engine.processor.placement.PlacementPolicy;
+import org.rabix.engine.processor.placement.PlacementPolicyFactory;
+import org.rabix.engine.processor.placement.impl.HashPlacementPolicy;
+import org.rabix.engine.service.JobRecordService;
 import org.rabix.engine.status.EngineStatusCallback;
+import org.rabix.engine.status.impl.RecoveryEngineStatusCallback;
+import org.rabix.engine.store.EventStore;
+import org.rabix.engine.store.EventStoreException;
+import org.rabix.engine.store.EventStoreFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,26 +35,62 @@ import com.google.inject.Provider;
 public class MultiEventProcessorImpl implements EventProcessor {
 
   private final static Logger logger = LoggerFactory.getLogger(MultiEventProcessorImpl.class);
-  
+
   private int eventProcessorCount;
-  
+
   private final ConcurrentMap<Integer, EventProcessorImpl> eventProcessors;
 
+  private final PlacementPolicy placementPolicy;
+  private final JobRecordService jobRecordService;
+  private final EventStore eventStore;
+
+  private final ConcurrentMap<String, Integer> placements = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, Set<String>> rootsPerProcessor = new ConcurrentHashMap<>();
+
+  private final long statisticsPeriod;
+  private final ScheduledExecutorService statisticsService = Executors.newSingleThreadScheduledExecutor();
+
   private volatile boolean isRunning = false;
-  
+
   @Inject
-  public MultiEventProcessorImpl(Provider<EventProcessorImpl> singleEventProcessorProvider, Configuration configuration) {
+  public MultiEventProcessorImpl(Provider<EventProcessorImpl> singleEventProcessorProvider, HandlerFactory handlerFactory, JobRecordService jobRecordService, Configuration configuration) {
+    this.jobRecordService = jobRecordService;
     this.eventProcessorCount = configuration.getInt("bunny.event_processor.count", Runtime.getRuntime().availableProcessors());
+    this.statisticsPeriod = configuration.getLong("bunny.event_processor.statistics_period", 0L);
+
+    String placement = configuration.getString("bunny.event_processor.placement", PlacementPolicy.Type.HASH.name());
+    this.placementPolicy = PlacementPolicyFactory.create(PlacementPolicy.Type.valueOf(placement.toUpperCase()));
+    this.eventStore = EventStoreFactory.create(configuration);
+
     this.eventProcessors = new ConcurrentHashMap<>(eventProcessorCount);
     for (int i = 0; i < eventProcessorCount; i++) {
       this.eventProcessors.put(i, singleEventProcessorProvider.get());
+      this.rootsPerProcessor.put(i, Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()));
     }
+    handlerFactory.addContextListener(new HandlerFactory.ContextListener() {
+      @Override
+      public void onContextFinished(String contextId) {
+        release(contextId);
+      }
+    });
   }
 
   @Override
   public void start(List<IterationCallback> iterationCallbacks, EngineStatusCallback engineStatusCallback) {
+    RecoveryEngineStatusCallback recoveryCallback = new RecoveryEngineStatusCallback(engineStatusCallback, jobRecordService, eventStore);
     for (EventProcessorImpl singleEventProcessor : eventProcessors.values()) {
-      singleEventProcessor.start(iterationCallbacks, engineStatusCallback);
+      singleEventProcessor.start(iterationCallbacks, recoveryCallback);
+    }
+    recover(recoveryCallback);
+    if (statisticsPeriod > 0) {
+      statisticsService.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          for (EventProcessorLoad load : getLoads(true)) {
+            logger.info("EventProcessor {}: queue size {}, roots {}, live records {}, events/s {}", load.getIndex(), load.getQueueSize(), load.getRootCount(), load.getLiveRecordCount(), String.format("%.1f", load.getEventsPerSecond()));
+          }
+        }
+      }, statisticsPeriod, statisticsPeriod, TimeUnit.SECONDS);
     }
     this.isRunning = true;
   }
@@ -47,35 +100,154 @@ public class MultiEventProcessorImpl implements EventProcessor {
     for (EventProcessorImpl eventProcessor : eventProcessors.values()) {
       eventProcessor.stop();
     }
+    statisticsService.shutdownNow();
+    eventStore.close();
     this.isRunning = false;
   }
 
   @Override
   public void send(Event event) throws EventHandlerException {
-    getEventProcessor(event.getContextId()).send(event);
+    if (!EventProcessorImpl.isProcessorThread()) {
+      try {
+        eventStore.append(event);
+      } catch (EventStoreException e) {
+        throw new EventHandlerException("Failed to store event " + event, e);
+      }
+    }
+    getEventProcessor(event).send(event);
   }
 
   @Override
   public void addToQueue(Event event) {
-    getEventProcessor(event.getContextId()).addToQueue(event);
+    if (!EventProcessorImpl.isProcessorThread()) {
+      try {
+        eventStore.append(event);
+      } catch (EventStoreException e) {
+        logger.error("Failed to store event " + event, e);
+      }
+    }
+    getEventProcessor(event).addToQueue(event);
   }
-  
+
   @Override
   public boolean isRunning() {
     return isRunning;
   }
 
   /**
-   * Gets {@link EventProcessor} based on Root ID
-   * TODO: discuss load balancing algorithm 
-   * 
+   * Gets current per-processor loads. Events per second are measured since the previous statistics sample.
+   */
+  public List<EventProcessorLoad> getLoads() {
+    return getLoads(false);
+  }
+
+  private List<EventProcessorLoad> getLoads(boolean sampleRate) {
+    List<EventProcessorLoad> loads = new ArrayList<>(eventProcessorCount);
+    for (int i = 0; i < eventProcessorCount; i++) {
+      EventProcessorImpl eventProcessor = eventProcessors.get(i);
+      Set<String> roots = rootsPerProcessor.get(i);
+
+      long liveRecordCount = 0;
+      for (String rootId : roots) {
+        liveRecordCount += jobRecordService.count(rootId);
+      }
+      double eventsPerSecond = sampleRate ? eventProcessor.sampleEventsPerSecond() : eventProcessor.getEventsPerSecond();
+      loads.add(new EventProcessorLoad(i, eventProcessor.getQueueSize(), roots.size(), liveRecordCount, eventsPerSecond));
+    }
+    return loads;
+  }
+
+  /**
+   * Gets {@link EventProcessor} for the event's root.
+   * Roots are placed by {@link PlacementPolicy} when they start and stay on the same processor until they finish.
+   */
+  private EventProcessor getEventProcessor(Event event) {
+    return getEventProcessor(event.getContextId(), event.getType().equals(EventType.INIT));
+  }
+
+  /**
+   * Gets {@link EventProcessor} based on Root ID.
+   * Unknown (or already finished) roots aren't placed, their events go to the processor picked by hash.
+   *
    * @param rootId  Root ID
+   * @param place   place the root if it's not placed yet
    * @return        EventProcessor instance
    */
-  private EventProcessor getEventProcessor(String rootId) {
-    int index = Math.abs(rootId.hashCode() % eventProcessorCount);
-    logger.debug("Root Job {} goes to EventProcessor {}", rootId, index);
+  private EventProcessor getEventProcessor(String rootId, boolean place) {
+    Integer index = placements.get(rootId);
+    if (index == null && place) {
+      synchronized (placements) {
+        index = placements.get(rootId);
+        if (index == null) {
+          index = placementPolicy.place(rootId, getLoads(false));
+          rootsPerProcessor.get(index).add(rootId);
+          placements.put(rootId, index);
+          logger.debug("Root Job {} goes to EventProcessor {}", rootId, index);
+        }
+      }
+    }
+    if (index == null) {
+      logger.debug("Root Job {} isn't placed. Event goes to EventProcessor by hash.", rootId);
+      index = HashPlacementPolicy.place(rootId, eventProcessorCount);
+    }
     return eventProcessors.get(index);
   }
-  
+
+  /**
+   * Replays events of unfinished contexts from {@link EventStore}. Events are replayed one at a time, each after
+   * everything the previous one caused has been handled, the same order they had when they were sent.
+   */
+  private void recover(RecoveryEngineStatusCallback recoveryCallback) {
+    List<Event> events;
+    try {
+      events = eventStore.load();
+    } catch (EventStoreException e) {
+      logger.error("Failed to load events. Nothing will be recovered.", e);
+      return;
+    }
+    if (events.isEmpty()) {
+      return;
+    }
+    logger.info("Recovering {} event(s)", events.size());
+    recoveryCallback.startRecovery();
+    try {
+      for (Event event : events) {
+        getEventProcessor(event.getContextId(), true).addToQueue(event);
+        awaitIdle();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("Recovery interrupted.");
+    }
+    recoveryCallback.finishRecovery();
+  }
+
+  /**
+   * Waits until no processor has pending events. Handlers can queue events on other processors, so all of them are
+   * checked again after waiting.
+   */
+  private void awaitIdle() throws InterruptedException {
+    boolean idle = false;
+    while (!idle) {
+      idle = true;
+      for (EventProcessorImpl eventProcessor : eventProcessors.values()) {
+        if (!eventProcessor.isIdle()) {
+          idle = false;
+          eventProcessor.awaitIdle();
+        }
+      }
+    }
+  }
+
+  /**
+   * Releases the root's placement once its context has completed or failed
+   */
+  private void release(String rootId) {
+    eventStore.finished(rootId);
+    Integer index = placements.remove(rootId);
+    if (index != null) {
+      rootsPerProcessor.get(index).remove(rootId);
+    }
+  }
+
 }
@@ -0,0 +1,47 @@
+package org.rabix.engine.processor.placement;
+
+/**
+ * Snapshot of the load of a single event processor
+ */
+public class EventProcessorLoad {
+
+  private final int index;
+  private final int queueSize;
+  private final int rootCount;
+  private final long liveRecordCount;
+  private final double eventsPerSecond;
+
+  public EventProcessorLoad(int index, int queueSize, int rootCount, long liveRecordCount, double eventsPerSecond) {
+    this.index = index;
+    this.queueSize = queueSize;
+    this.rootCount = rootCount;
+    this.liveRecordCount = liveRecordCount;
+    this.eventsPerSecond = eventsPerSecond;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public int getRootCount() {
+    return rootCount;
+  }
+
+  public long getLiveRecordCount() {
+    return liveRecordCount;
+  }
+
+  public double getEventsPerSecond() {
+    return eventsPerSecond;
+  }
+
+  @Override
+  public String toString() {
+    return "EventProcessorLoad [index=" + index + ", queueSize=" + queueSize + ", rootCount=" + rootCount + ", liveRecordCount=" + liveRecordCount + ", eventsPerSecond=" + eventsPerSecond + "]";
+  }
+
+}
@@ -0,0 +1,26 @@
+package org.rabix.engine.processor.placement;
+
+import java.util.List;
+
+/**
+ * Decides which event processor owns a root. The decision is made once per root, 
+ * all events of the root are processed by the chosen processor afterwards.
+ */
+public interface PlacementPolicy {
+
+  public static enum Type {
+    HASH, LEAST_LOADED
+  }
+  
+  /**
+   * Places the root
+   * 
+   * @param rootId  Root ID
+   * @param loads   Current loads, one per processor, ordered by index
+   * @return        Index of the chosen processor
+   */
+  int place(String rootId, List<EventProcessorLoad> loads);
+  
+  Type getType();
+  
+}
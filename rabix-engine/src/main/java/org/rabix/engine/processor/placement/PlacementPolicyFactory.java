@@ -0,0 +1,19 @@
+package org.rabix.engine.processor.placement;
+
+import org.rabix.engine.processor.placement.impl.HashPlacementPolicy;
+import org.rabix.engine.processor.placement.impl.LeastLoadedPlacementPolicy;
+
+public class PlacementPolicyFactory {
+
+  public static PlacementPolicy create(PlacementPolicy.Type type) {
+    switch (type) {
+    case HASH:
+      return new HashPlacementPolicy();
+    case LEAST_LOADED:
+      return new LeastLoadedPlacementPolicy();
+    default:
+      throw new RuntimeException("Failed to create PlacementPolicy " + type);
+    }
+  }
+  
+}
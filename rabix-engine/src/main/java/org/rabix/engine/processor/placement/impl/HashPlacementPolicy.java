@@ -0,0 +1,30 @@
+package org.rabix.engine.processor.placement.impl;
+
+import java.util.List;
+
+import org.rabix.engine.processor.placement.EventProcessorLoad;
+import org.rabix.engine.processor.placement.PlacementPolicy;
+
+/**
+ * Places roots by Root ID hash, regardless of the load
+ */
+public class HashPlacementPolicy implements PlacementPolicy {
+
+  @Override
+  public int place(String rootId, List<EventProcessorLoad> loads) {
+    return place(rootId, loads.size());
+  }
+
+  /**
+   * Index of the processor the root hashes to
+   */
+  public static int place(String rootId, int processorCount) {
+    return Math.abs(rootId.hashCode() % processorCount);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.HASH;
+  }
+
+}
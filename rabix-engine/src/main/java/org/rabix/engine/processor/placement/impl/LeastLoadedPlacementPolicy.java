@@ -0,0 +1,39 @@
+package org.rabix.engine.processor.placement.impl;
+
+import java.util.List;
+
+import org.rabix.engine.processor.placement.EventProcessorLoad;
+import org.rabix.engine.processor.placement.PlacementPolicy;
+
+/**
+ * Places roots on the processor with the smallest queue depth plus live record count.
+ * Ties go to the processor that owns fewer roots.
+ */
+public class LeastLoadedPlacementPolicy implements PlacementPolicy {
+
+  @Override
+  public int place(String rootId, List<EventProcessorLoad> loads) {
+    EventProcessorLoad best = null;
+    for (EventProcessorLoad load : loads) {
+      if (best == null || isLess(load, best)) {
+        best = load;
+      }
+    }
+    return best.getIndex();
+  }
+  
+  private boolean isLess(EventProcessorLoad load, EventProcessorLoad other) {
+    long weight = load.getQueueSize() + load.getLiveRecordCount();
+    long otherWeight = other.getQueueSize() + other.getLiveRecordCount();
+    if (weight != otherWeight) {
+      return weight < otherWeight;
+    }
+    return load.getRootCount() < other.getRootCount();
+  }
+
+  @Override
+  public Type getType() {
+    return Type.LEAST_LOADED;
+  }
+
+}
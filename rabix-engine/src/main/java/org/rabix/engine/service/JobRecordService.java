@@ -1,7 +1,12 @@
 package org.rabix.engine.service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -18,12 +23,15 @@ public class JobRecordService {
     FAILED
   }
 
-  private ConcurrentMap<String, List<JobRecord>> jobRecordsPerContext = new ConcurrentHashMap<String, List<JobRecord>>();
+  private ConcurrentMap<String, JobRecordIndex> jobRecordsPerContext = new ConcurrentHashMap<String, JobRecordIndex>();
 
-  public static String generateUniqueId() {
-    return UUID.randomUUID().toString();
+  /**
+   * Generates the same ID every time the Job is created in its context, so Jobs rebuilt by recovery keep their IDs
+   */
+  public static String generateUniqueId(String contextId, String jobId) {
+    return UUID.nameUUIDFromBytes((contextId + "/" + jobId).getBytes(StandardCharsets.UTF_8)).toString();
   }
-  
+
   public void create(JobRecord jobRecord) {
     getJobRecords(jobRecord.getRootId()).add(jobRecord);
   }
@@ -31,73 +39,146 @@ public class JobRecordService {
   public void delete(String rootId) {
     jobRecordsPerContext.remove(rootId);
   }
-  
+
   public void update(JobRecord jobRecord) {
-    for (JobRecord jr : getJobRecords(jobRecord.getRootId())) {
-      if (jr.getId().equals(jobRecord.getId())) {
-        jr.setState(jobRecord.getState());
-        jr.setContainer(jobRecord.isContainer());
-        jr.setScattered(jobRecord.isScattered());
-        jr.setInputCounters(jobRecord.getInputCounters());
-        jr.setOutputCounters(jobRecord.getOutputCounters());
-        jr.setScatterWrapper(jobRecord.isScatterWrapper());
-        jr.setScatterStrategy(jobRecord.getScatterStrategy());
-        return;
-      }
+    JobRecordIndex index = getJobRecords(jobRecord.getRootId());
+
+    JobRecord jr = index.get(jobRecord.getId());
+    if (jr == null) {
+      return;
     }
+    jr.setState(jobRecord.getState());
+    jr.setContainer(jobRecord.isContainer());
+    jr.setScattered(jobRecord.isScattered());
+    jr.setInputCounters(jobRecord.getInputCounters());
+    jr.setOutputCounters(jobRecord.getOutputCounters());
+    jr.setScatterWrapper(jobRecord.isScatterWrapper());
+    jr.setScatterStrategy(jobRecord.getScatterStrategy());
+    index.reindexState(jr);
   }
-  
+
   public List<JobRecord> find(String contextId) {
-    return getJobRecords(contextId);
+    return getJobRecords(contextId).all();
   }
-  
+
   public List<JobRecord> findReady(String contextId) {
-    List<JobRecord> result = new ArrayList<>();
-    
-    for (JobRecord jr : getJobRecords(contextId)) {
-      if (jr.getState().equals(JobState.READY) && jr.getRootId().equals(contextId)) {
-        result.add(jr);
-      }
-    }
-    return result;
+    return getJobRecords(contextId).findByState(JobState.READY);
   }
-  
+
   public List<JobRecord> findByParent(String parentId, String contextId) {
-    List<JobRecord> result = new ArrayList<>();
+    return getJobRecords(contextId).findByParent(parentId);
+  }
+
+  public JobRecord find(String id, String contextId) {
+    return getJobRecords(contextId).get(id);
+  }
+
+  public JobRecord findRoot(String contextId) {
+    return getJobRecords(contextId).getRoot();
+  }
+
+  /**
+   * Returns the number of live {@link JobRecord}s for the context
+   */
+  public int count(String contextId) {
+    JobRecordIndex index = jobRecordsPerContext.get(contextId);
+    return index != null ? index.size() : 0;
+  }
 
-    for (JobRecord jr : getJobRecords(contextId)) {
-      if (jr.getParentId() != null && jr.getParentId().equals(parentId)) {
-        result.add(jr);
+  private JobRecordIndex getJobRecords(String contextId) {
+    JobRecordIndex index = jobRecordsPerContext.get(contextId);
+    if (index == null) {
+      index = new JobRecordIndex();
+      JobRecordIndex existing = jobRecordsPerContext.putIfAbsent(contextId, index);
+      if (existing != null) {
+        index = existing;
       }
     }
-    return result;
+    return index;
   }
-  
-  public JobRecord find(String id, String contextId) {
-    for (JobRecord jr : getJobRecords(contextId)) {
-      if (jr.getId().equals(id) && jr.getRootId().equals(contextId)) {
-        return jr;
+
+  /**
+   * Per-context {@link JobRecord} storage indexed by ID, parent ID and {@link JobState}
+   */
+  private static class JobRecordIndex {
+
+    private final ConcurrentMap<String, JobRecord> byId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<JobRecord>> byParent = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, JobState> indexedStates = new ConcurrentHashMap<>();
+    private final Map<JobState, Set<JobRecord>> byState = new EnumMap<>(JobState.class);
+
+    private volatile JobRecord root;
+
+    JobRecordIndex() {
+      for (JobState state : JobState.values()) {
+        byState.put(state, Collections.newSetFromMap(new ConcurrentHashMap<JobRecord, Boolean>()));
       }
     }
-    return null;
-  }
-  
-  public JobRecord findRoot(String contextId) {
-    for (JobRecord jr : getJobRecords(contextId)) {
-      if (jr.isMaster() && jr.getRootId().equals(contextId)) {
-        return jr;
+
+    void add(JobRecord jobRecord) {
+      if (byId.putIfAbsent(jobRecord.getId(), jobRecord) != null) {
+        return;
+      }
+      if (jobRecord.getParentId() != null) {
+        Set<JobRecord> children = byParent.get(jobRecord.getParentId());
+        if (children == null) {
+          children = Collections.newSetFromMap(new ConcurrentHashMap<JobRecord, Boolean>());
+          Set<JobRecord> existing = byParent.putIfAbsent(jobRecord.getParentId(), children);
+          if (existing != null) {
+            children = existing;
+          }
+        }
+        children.add(jobRecord);
+      }
+      if (jobRecord.isMaster()) {
+        root = jobRecord;
       }
+      reindexState(jobRecord);
     }
-    return null;
-  }
-  
-  private List<JobRecord> getJobRecords(String contextId) {
-    List<JobRecord> jobRecordList = jobRecordsPerContext.get(contextId);
-    if (jobRecordList == null) {
-      jobRecordList = new ArrayList<>();
-      jobRecordsPerContext.put(contextId, jobRecordList);
+
+    synchronized void reindexState(JobRecord jobRecord) {
+      JobState newState = jobRecord.getState();
+      JobState oldState = indexedStates.put(jobRecord.getId(), newState);
+      if (oldState != null && !oldState.equals(newState)) {
+        byState.get(oldState).remove(jobRecord);
+      }
+      byState.get(newState).add(jobRecord);
+    }
+
+    JobRecord get(String id) {
+      return byId.get(id);
+    }
+
+    JobRecord getRoot() {
+      return root;
+    }
+
+    int size() {
+      return byId.size();
+    }
+
+    List<JobRecord> all() {
+      return new ArrayList<>(byId.values());
+    }
+
+    List<JobRecord> findByParent(String parentId) {
+      Set<JobRecord> children = byParent.get(parentId);
+      if (children == null) {
+        return new ArrayList<>();
+      }
+      return new ArrayList<>(children);
+    }
+
+    List<JobRecord> findByState(JobState state) {
+      List<JobRecord> result = new ArrayList<>();
+      for (JobRecord jr : byState.get(state)) {
+        // records can be mutated in place before they are re-indexed
+        if (jr.getState().equals(state)) {
+          result.add(jr);
+        }
+      }
+      return result;
     }
-    return jobRecordList;
   }
-  
+
 }
@@ -1,6 +1,7 @@
 package org.rabix.engine.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -10,67 +11,161 @@ import org.rabix.engine.model.LinkRecord;
 
 public class LinkRecordService {
 
-  private ConcurrentMap<String, List<LinkRecord>> linkRecordsPerContext = new ConcurrentHashMap<String, List<LinkRecord>>();
+  private ConcurrentMap<String, LinkRecordIndex> linkRecordsPerContext = new ConcurrentHashMap<String, LinkRecordIndex>();
 
   public void create(LinkRecord link) {
-    getLinkRecords(link.getContextId()).add(link);
+    getIndex(link.getContextId()).add(link);
   }
 
   public void delete(String rootId) {
     linkRecordsPerContext.remove(rootId);
   }
-  
+
   public List<LinkRecord> findBySourceJobId(String jobId, String contextId) {
+    LinkRecordIndex index = getIndex(contextId);
+
     List<LinkRecord> result = new ArrayList<>();
-    for (LinkRecord lr : getLinkRecords(contextId)) {
-      if (lr.getSourceJobId().equals(jobId) && lr.getContextId().equals(contextId)) {
-        result.add(lr);
-      }
+    for (LinkPortType varType : LinkPortType.values()) {
+      result.addAll(index.find(index.bySourceJob, new LinkKey(jobId, null, varType)));
     }
     return result;
   }
-  
+
   public List<LinkRecord> findBySourceAndSourceType(String jobId, LinkPortType varType, String contextId) {
-    List<LinkRecord> result = new ArrayList<>();
-    for (LinkRecord lr : getLinkRecords(contextId)) {
-      if (lr.getSourceJobId().equals(jobId) && lr.getSourceVarType().equals(varType) && lr.getContextId().equals(contextId)) {
-        result.add(lr);
-      }
-    }
-    return result;
+    LinkRecordIndex index = getIndex(contextId);
+    return index.find(index.bySourceJob, new LinkKey(jobId, null, varType));
   }
-  
+
   public List<LinkRecord> findBySource(String jobId, String portId, String contextId) {
-    List<LinkRecord> result = new ArrayList<>();
-    for (LinkRecord lr : getLinkRecords(contextId)) {
-      if (lr.getSourceJobId().equals(jobId) && lr.getSourceJobPort().equals(portId) && lr.getContextId().equals(contextId)) {
-        result.add(lr);
-      }
-    }
-    return result;
+    LinkRecordIndex index = getIndex(contextId);
+    return index.find(index.bySourcePort, new LinkKey(jobId, portId, null));
   }
-  
+
   public List<LinkRecord> findBySourceAndDestinationType(String jobId, String portId, LinkPortType varType, String contextId) {
     List<LinkRecord> result = new ArrayList<>();
-    for (LinkRecord lr : getLinkRecords(contextId)) {
-      if (lr.getSourceJobId().equals(jobId) && lr.getSourceJobPort().equals(portId) && lr.getDestinationVarType().equals(varType) && lr.getContextId().equals(contextId)) {
+    for (LinkRecord lr : findBySource(jobId, portId, contextId)) {
+      if (lr.getDestinationVarType().equals(varType)) {
         result.add(lr);
       }
     }
     return result;
   }
 
+  public List<LinkRecord> findByDestination(String jobId, String portId, String contextId) {
+    LinkRecordIndex index = getIndex(contextId);
+    return index.find(index.byDestinationPort, new LinkKey(jobId, portId, null));
+  }
+
   public List<LinkRecord> find(String contextId) {
-    return getLinkRecords(contextId);
+    return getIndex(contextId).all();
+  }
+
+  private LinkRecordIndex getIndex(String contextId) {
+    LinkRecordIndex index = linkRecordsPerContext.get(contextId);
+    if (index == null) {
+      index = new LinkRecordIndex();
+      LinkRecordIndex existing = linkRecordsPerContext.putIfAbsent(contextId, index);
+      if (existing != null) {
+        index = existing;
+      }
+    }
+    return index;
   }
-  
-  private List<LinkRecord> getLinkRecords(String contextId) {
-    List<LinkRecord> linkList = linkRecordsPerContext.get(contextId);
-    if (linkList == null) {
-      linkList = new ArrayList<>();
-      linkRecordsPerContext.put(contextId, linkList);
+
+  /**
+   * Per-context {@link LinkRecord} storage keyed by source job (and type), source port and destination port
+   */
+  private static class LinkRecordIndex {
+
+    private final List<LinkRecord> records = Collections.synchronizedList(new ArrayList<LinkRecord>());
+    private final ConcurrentMap<LinkKey, List<LinkRecord>> bySourceJob = new ConcurrentHashMap<>();
+    private final ConcurrentMap<LinkKey, List<LinkRecord>> bySourcePort = new ConcurrentHashMap<>();
+    private final ConcurrentMap<LinkKey, List<LinkRecord>> byDestinationPort = new ConcurrentHashMap<>();
+
+    void add(LinkRecord link) {
+      records.add(link);
+      put(bySourceJob, new LinkKey(link.getSourceJobId(), null, link.getSourceVarType()), link);
+      put(bySourcePort, new LinkKey(link.getSourceJobId(), link.getSourceJobPort(), null), link);
+      put(byDestinationPort, new LinkKey(link.getDestinationJobId(), link.getDestinationJobPort(), null), link);
+    }
+
+    List<LinkRecord> find(ConcurrentMap<LinkKey, List<LinkRecord>> map, LinkKey key) {
+      List<LinkRecord> links = map.get(key);
+      if (links == null) {
+        return new ArrayList<>();
+      }
+      synchronized (links) {
+        return new ArrayList<>(links);
+      }
+    }
+
+    List<LinkRecord> all() {
+      synchronized (records) {
+        return new ArrayList<>(records);
+      }
+    }
+
+    private void put(ConcurrentMap<LinkKey, List<LinkRecord>> map, LinkKey key, LinkRecord link) {
+      List<LinkRecord> links = map.get(key);
+      if (links == null) {
+        links = Collections.synchronizedList(new ArrayList<LinkRecord>());
+        List<LinkRecord> existing = map.putIfAbsent(key, links);
+        if (existing != null) {
+          links = existing;
+        }
+      }
+      links.add(link);
     }
-    return linkList;
   }
-  
+
+  /**
+   * Composite (jobId, portId, type) key. Unused parts are null.
+   */
+  private static class LinkKey {
+
+    private final String jobId;
+    private final String portId;
+    private final LinkPortType type;
+
+    LinkKey(String jobId, String portId, LinkPortType type) {
+      this.jobId = jobId;
+      this.portId = portId;
+      this.type = type;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + ((jobId == null) ? 0 : jobId.hashCode());
+      result = prime * result + ((portId == null) ? 0 : portId.hashCode());
+      result = prime * result + ((type == null) ? 0 : type.hashCode());
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (obj == null)
+        return false;
+      if (getClass() != obj.getClass())
+        return false;
+      LinkKey other = (LinkKey) obj;
+      if (jobId == null) {
+        if (other.jobId != null)
+          return false;
+      } else if (!jobId.equals(other.jobId))
+        return false;
+      if (portId == null) {
+        if (other.portId != null)
+          return false;
+      } else if (!portId.equals(other.portId))
+        return false;
+      if (type != other.type)
+        return false;
+      return true;
+    }
+  }
+
 }
@@ -1,48 +1,70 @@
 package org.rabix.engine.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.rabix.engine.db.VariableValueStore;
 import org.rabix.engine.model.VariableRecord;
 
+import com.google.inject.Inject;
+
 public class VariableRecordService {
 
-  private ConcurrentMap<String, List<VariableRecord>> variableRecordsPerContext = new ConcurrentHashMap<String, List<VariableRecord>>();
+  private ConcurrentMap<String, VariableRecordIndex> variableRecordsPerContext = new ConcurrentHashMap<String, VariableRecordIndex>();
+
+  private final VariableValueStore valueStore;
+
+  public VariableRecordService() {
+    this(new VariableValueStore(0, VariableValueStore.Type.DIRECT, null));
+  }
+
+  @Inject
+  public VariableRecordService(VariableValueStore valueStore) {
+    this.valueStore = valueStore;
+  }
 
   public void create(VariableRecord variableRecord) {
-    getVariableRecords(variableRecord.getContextId()).add(variableRecord);
+    offload(variableRecord);
+    getIndex(variableRecord.getContextId()).add(variableRecord);
   }
-  
+
   public void delete(String rootId) {
     variableRecordsPerContext.remove(rootId);
+    valueStore.delete(rootId);
   }
 
   public void update(VariableRecord variableRecord) {
-    for (VariableRecord vr : getVariableRecords(variableRecord.getContextId())) {
-      if (vr.getJobId().equals(variableRecord.getJobId()) && vr.getPortId().equals(variableRecord.getPortId()) && vr.getType().equals(variableRecord.getType()) && vr.getContextId().equals(variableRecord.getContextId())) {
-        vr.setValue(variableRecord.getValue());
-        return;
-      }
+    VariableRecord vr = getIndex(variableRecord.getContextId()).get(variableRecord.getJobId(), variableRecord.getPortId(), variableRecord.getType());
+    if (vr != null && vr != variableRecord) {
+      vr.setValue(variableRecord.getValue());
+      offload(vr);
     }
   }
-  
-  public List<VariableRecord> find(String jobId, LinkPortType type, String contextId) {
-    List<VariableRecord> result = new ArrayList<>();
-    for (VariableRecord vr : getVariableRecords(contextId)) {
-      if (vr.getJobId().equals(jobId) && vr.getType().equals(type) && vr.getContextId().equals(contextId)) {
-        result.add(vr);
-      }
+
+  /**
+   * Moves large value of a complete variable off heap (if enabled)
+   */
+  public void offload(VariableRecord variableRecord) {
+    if (valueStore.isEnabled()) {
+      variableRecord.offload(valueStore);
     }
-    return result;
   }
-  
+
+  public List<VariableRecord> find(String jobId, LinkPortType type, String contextId) {
+    return getIndex(contextId).find(jobId, type);
+  }
+
   public List<VariableRecord> find(String jobId, String portId, String contextId) {
+    VariableRecordIndex index = getIndex(contextId);
+
     List<VariableRecord> result = new ArrayList<>();
-    for (VariableRecord vr : getVariableRecords(contextId)) {
-      if (vr.getJobId().equals(jobId) && vr.getPortId().equals(portId) && vr.getContextId().equals(contextId)) {
+    for (LinkPortType type : LinkPortType.values()) {
+      VariableRecord vr = index.get(jobId, portId, type);
+      if (vr != null) {
         result.add(vr);
       }
     }
@@ -50,35 +72,127 @@ public class VariableRecordService {
   }
 
   public VariableRecord find(String jobId, String portId, LinkPortType type, String contextId) {
-    for (VariableRecord vr : getVariableRecords(contextId)) {
-      if (vr.getJobId().equals(jobId) && vr.getPortId().equals(portId) && vr.getType().equals(type) && vr.getContextId().equals(contextId)) {
-        return vr;
-      }
-    }
-    return null;
+    return getIndex(contextId).get(jobId, portId, type);
   }
 
   public List<VariableRecord> findByJobId(String jobId, LinkPortType type, String contextId) {
-    List<VariableRecord> result = new ArrayList<>();
-    for (VariableRecord vr : getVariableRecords(contextId)) {
-      if (vr.getJobId().equals(jobId) && vr.getType().equals(type) && vr.getContextId().equals(contextId)) {
-        result.add(vr);
-      }
-    }
-    return result;
+    return getIndex(contextId).find(jobId, type);
   }
 
   public List<VariableRecord> find(String contextId) {
     return getVariableRecords(contextId);
   }
-  
+
   public List<VariableRecord> getVariableRecords(String contextId) {
-    List<VariableRecord> variableList = variableRecordsPerContext.get(contextId);
-    if (variableList == null) {
-      variableList = new ArrayList<>();
-      variableRecordsPerContext.put(contextId, variableList);
+    return getIndex(contextId).all();
+  }
+
+  private VariableRecordIndex getIndex(String contextId) {
+    VariableRecordIndex index = variableRecordsPerContext.get(contextId);
+    if (index == null) {
+      index = new VariableRecordIndex();
+      VariableRecordIndex existing = variableRecordsPerContext.putIfAbsent(contextId, index);
+      if (existing != null) {
+        index = existing;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Per-context {@link VariableRecord} storage keyed by (jobId, portId, type) and (jobId, type)
+   */
+  private static class VariableRecordIndex {
+
+    private final List<VariableRecord> records = Collections.synchronizedList(new ArrayList<VariableRecord>());
+    private final ConcurrentMap<VariableKey, VariableRecord> byPort = new ConcurrentHashMap<>();
+    private final ConcurrentMap<VariableKey, List<VariableRecord>> byJob = new ConcurrentHashMap<>();
+
+    void add(VariableRecord variableRecord) {
+      records.add(variableRecord);
+      byPort.putIfAbsent(new VariableKey(variableRecord.getJobId(), variableRecord.getPortId(), variableRecord.getType()), variableRecord);
+
+      VariableKey jobKey = new VariableKey(variableRecord.getJobId(), null, variableRecord.getType());
+      List<VariableRecord> jobVariables = byJob.get(jobKey);
+      if (jobVariables == null) {
+        jobVariables = Collections.synchronizedList(new ArrayList<VariableRecord>());
+        List<VariableRecord> existing = byJob.putIfAbsent(jobKey, jobVariables);
+        if (existing != null) {
+          jobVariables = existing;
+        }
+      }
+      jobVariables.add(variableRecord);
+    }
+
+    VariableRecord get(String jobId, String portId, LinkPortType type) {
+      return byPort.get(new VariableKey(jobId, portId, type));
+    }
+
+    List<VariableRecord> find(String jobId, LinkPortType type) {
+      List<VariableRecord> jobVariables = byJob.get(new VariableKey(jobId, null, type));
+      if (jobVariables == null) {
+        return new ArrayList<>();
+      }
+      synchronized (jobVariables) {
+        return new ArrayList<>(jobVariables);
+      }
+    }
+
+    List<VariableRecord> all() {
+      synchronized (records) {
+        return new ArrayList<>(records);
+      }
+    }
+  }
+
+  /**
+   * Composite (jobId, portId, type) key. Port is null for per-job keys.
+   */
+  private static class VariableKey {
+
+    private final String jobId;
+    private final String portId;
+    private final LinkPortType type;
+
+    VariableKey(String jobId, String portId, LinkPortType type) {
+      this.jobId = jobId;
+      this.portId = portId;
+      this.type = type;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + ((jobId == null) ? 0 : jobId.hashCode());
+      result = prime * result + ((portId == null) ? 0 : portId.hashCode());
+      result = prime * result + ((type == null) ? 0 : type.hashCode());
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (obj == null)
+        return false;
+      if (getClass() != obj.getClass())
+        return false;
+      VariableKey other = (VariableKey) obj;
+      if (jobId == null) {
+        if (other.jobId != null)
+          return false;
+      } else if (!jobId.equals(other.jobId))
+        return false;
+      if (portId == null) {
+        if (other.portId != null)
+          return false;
+      } else if (!portId.equals(other.portId))
+        return false;
+      if (type != other.type)
+        return false;
+      return true;
     }
-    return variableList;
   }
-  
+
 }
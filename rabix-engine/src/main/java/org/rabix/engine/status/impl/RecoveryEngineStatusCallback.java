@@ -0,0 +1,123 @@
+package org.rabix.engine.status.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.rabix.bindings.model.Job;
+import org.rabix.engine.model.JobRecord;
+import org.rabix.engine.service.JobRecordService;
+import org.rabix.engine.service.JobRecordService.JobState;
+import org.rabix.engine.status.EngineStatusCallback;
+import org.rabix.engine.status.EngineStatusCallbackException;
+import org.rabix.engine.store.EventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wraps {@link EngineStatusCallback} while events are replayed from {@link EventStore}.
+ *
+ * Ready Jobs are held back during recovery. Afterwards, the ones that are still READY (no Backend reported them as
+ * started) are dispatched again. Finished roots are marked in the store.
+ */
+public class RecoveryEngineStatusCallback implements EngineStatusCallback {
+
+  private final static Logger logger = LoggerFactory.getLogger(RecoveryEngineStatusCallback.class);
+
+  private final EngineStatusCallback engineStatusCallback;
+  private final JobRecordService jobRecordService;
+  private final EventStore eventStore;
+
+  private volatile boolean recovering = false;
+  private final Map<String, Job> readyJobs = new LinkedHashMap<>();
+
+  public RecoveryEngineStatusCallback(EngineStatusCallback engineStatusCallback, JobRecordService jobRecordService, EventStore eventStore) {
+    this.engineStatusCallback = engineStatusCallback;
+    this.jobRecordService = jobRecordService;
+    this.eventStore = eventStore;
+  }
+
+  public void startRecovery() {
+    recovering = true;
+  }
+
+  /**
+   * Ends recovery and dispatches Jobs that are still READY
+   */
+  public void finishRecovery() {
+    List<Job> jobs;
+    synchronized (readyJobs) {
+      recovering = false;
+      jobs = new ArrayList<>(readyJobs.values());
+      readyJobs.clear();
+    }
+    int count = 0;
+    for (Job job : jobs) {
+      JobRecord jobRecord = jobRecordService.find(job.getName(), job.getRootId());
+      if (jobRecord == null || !JobState.READY.equals(jobRecord.getState())) {
+        continue;
+      }
+      try {
+        engineStatusCallback.onJobReady(job);
+        count++;
+      } catch (EngineStatusCallbackException e) {
+        logger.error("Failed to dispatch recovered Job " + job.getId(), e);
+      }
+    }
+    logger.info("Recovery finished. {} ready Job(s) dispatched.", count);
+  }
+
+  @Override
+  public void onJobReady(Job job) throws EngineStatusCallbackException {
+    synchronized (readyJobs) {
+      if (recovering) {
+        readyJobs.put(job.getRootId() + "/" + job.getName(), job);
+        return;
+      }
+    }
+    engineStatusCallback.onJobReady(job);
+  }
+
+  @Override
+  public void onJobsReady(Set<Job> jobs) throws EngineStatusCallbackException {
+    synchronized (readyJobs) {
+      if (recovering) {
+        for (Job job : jobs) {
+          readyJobs.put(job.getRootId() + "/" + job.getName(), job);
+        }
+        return;
+      }
+    }
+    engineStatusCallback.onJobsReady(jobs);
+  }
+
+  @Override
+  public void onJobCompleted(Job job) throws EngineStatusCallbackException {
+    engineStatusCallback.onJobCompleted(job);
+  }
+
+  @Override
+  public void onJobFailed(Job job) throws EngineStatusCallbackException {
+    engineStatusCallback.onJobFailed(job);
+  }
+
+  @Override
+  public void onJobRootCompleted(Job rootJob) throws EngineStatusCallbackException {
+    eventStore.finished(rootJob.getRootId());
+    engineStatusCallback.onJobRootCompleted(rootJob);
+  }
+
+  @Override
+  public void onJobRootPartiallyCompleted(Job rootJob) throws EngineStatusCallbackException {
+    engineStatusCallback.onJobRootPartiallyCompleted(rootJob);
+  }
+
+  @Override
+  public void onJobRootFailed(Job rootJob) throws EngineStatusCallbackException {
+    eventStore.finished(rootJob.getRootId());
+    engineStatusCallback.onJobRootFailed(rootJob);
+  }
+
+}
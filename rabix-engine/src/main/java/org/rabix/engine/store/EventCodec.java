@@ -0,0 +1,127 @@
+package org.rabix.engine.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rabix.bindings.model.FileValue;
+import org.rabix.bindings.model.dag.DAGNode;
+import org.rabix.common.helper.JSONHelper;
+import org.rabix.engine.event.Event;
+import org.rabix.engine.event.Event.EventType;
+import org.rabix.engine.event.impl.ContextStatusEvent;
+import org.rabix.engine.event.impl.InitEvent;
+import org.rabix.engine.event.impl.InputBatchUpdateEvent;
+import org.rabix.engine.event.impl.InputUpdateEvent;
+import org.rabix.engine.event.impl.JobStatusEvent;
+import org.rabix.engine.event.impl.OutputUpdateEvent;
+import org.rabix.engine.model.ContextRecord.ContextStatus;
+import org.rabix.engine.service.JobRecordService.JobState;
+
+/**
+ * Encodes events as single-line JSON
+ */
+public class EventCodec {
+
+  private EventCodec() {
+  }
+
+  public static String encode(Event event) throws EventStoreException {
+    Map<String, Object> map = new HashMap<>();
+    map.put("type", event.getType().name());
+    map.put("contextId", event.getContextId());
+    map.put("eventGroupId", event.getEventGroupId());
+
+    switch (event.getType()) {
+    case INIT:
+      InitEvent initEvent = (InitEvent) event;
+      map.put("node", initEvent.getNode());
+      map.put("value", initEvent.getValue());
+      map.put("config", initEvent.getConfig());
+      break;
+    case JOB_STATUS_UPDATE:
+      JobStatusEvent jobStatusEvent = (JobStatusEvent) event;
+      map.put("jobId", jobStatusEvent.getJobId());
+      map.put("state", jobStatusEvent.getState().name());
+      map.put("result", jobStatusEvent.getResult());
+      break;
+    case INPUT_UPDATE:
+      InputUpdateEvent inputEvent = (InputUpdateEvent) event;
+      map.put("jobId", inputEvent.getJobId());
+      map.put("portId", inputEvent.getPortId());
+      map.put("value", inputEvent.getValue());
+      map.put("lookAhead", inputEvent.isLookAhead());
+      map.put("numberOfScattered", inputEvent.getNumberOfScattered());
+      map.put("position", inputEvent.getPosition());
+      break;
+    case OUTPUT_UPDATE:
+      OutputUpdateEvent outputEvent = (OutputUpdateEvent) event;
+      map.put("jobId", outputEvent.getJobId());
+      map.put("portId", outputEvent.getPortId());
+      map.put("value", outputEvent.getValue());
+      map.put("fromScatter", outputEvent.isFromScatter());
+      map.put("numberOfScattered", outputEvent.getNumberOfScattered());
+      map.put("position", outputEvent.getPosition());
+      break;
+    case CONTEXT_STATUS_UPDATE:
+      map.put("status", ((ContextStatusEvent) event).getStatus().name());
+      break;
+    case INPUT_BATCH_UPDATE:
+      List<Map<String, Object>> inputs = new ArrayList<>();
+      for (InputUpdateEvent batchEvent : ((InputBatchUpdateEvent) event).getEvents()) {
+        Map<String, Object> input = new HashMap<>();
+        input.put("jobId", batchEvent.getJobId());
+        input.put("portId", batchEvent.getPortId());
+        input.put("value", batchEvent.getValue());
+        input.put("position", batchEvent.getPosition());
+        inputs.add(input);
+      }
+      map.put("events", inputs);
+      break;
+    default:
+      throw new EventStoreException("Unknown event type " + event.getType());
+    }
+    try {
+      return JSONHelper.mapperWithoutIdentation.writeValueAsString(map);
+    } catch (IOException e) {
+      throw new EventStoreException("Failed to encode event " + event, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public static Event decode(String line) throws EventStoreException {
+    Map<String, Object> map;
+    try {
+      map = JSONHelper.mapperWithoutIdentation.readValue(line, Map.class);
+    } catch (IOException e) {
+      throw new EventStoreException("Failed to decode event " + line, e);
+    }
+    String contextId = (String) map.get("contextId");
+    String eventGroupId = (String) map.get("eventGroupId");
+
+    switch (EventType.valueOf((String) map.get("type"))) {
+    case INIT:
+      DAGNode node = JSONHelper.mapperWithoutIdentation.convertValue(map.get("node"), DAGNode.class);
+      return new InitEvent((Map<String, Object>) map.get("config"), contextId, node, (Map<String, Object>) FileValue.deserialize(map.get("value")));
+    case JOB_STATUS_UPDATE:
+      return new JobStatusEvent((String) map.get("jobId"), contextId, JobState.valueOf((String) map.get("state")), (Map<String, Object>) FileValue.deserialize(map.get("result")), eventGroupId);
+    case INPUT_UPDATE:
+      return new InputUpdateEvent(contextId, (String) map.get("jobId"), (String) map.get("portId"), FileValue.deserialize(map.get("value")), (Boolean) map.get("lookAhead"), (Integer) map.get("numberOfScattered"), (Integer) map.get("position"), eventGroupId);
+    case OUTPUT_UPDATE:
+      return new OutputUpdateEvent(contextId, (String) map.get("jobId"), (String) map.get("portId"), FileValue.deserialize(map.get("value")), (Boolean) map.get("fromScatter"), (Integer) map.get("numberOfScattered"), (Integer) map.get("position"), eventGroupId);
+    case CONTEXT_STATUS_UPDATE:
+      return new ContextStatusEvent(contextId, ContextStatus.valueOf((String) map.get("status")));
+    case INPUT_BATCH_UPDATE:
+      List<InputUpdateEvent> batchEvents = new ArrayList<>();
+      for (Map<String, Object> input : (List<Map<String, Object>>) map.get("events")) {
+        batchEvents.add(new InputUpdateEvent(contextId, (String) input.get("jobId"), (String) input.get("portId"), FileValue.deserialize(input.get("value")), (Integer) input.get("position"), eventGroupId));
+      }
+      return new InputBatchUpdateEvent(contextId, batchEvents, eventGroupId);
+    default:
+      throw new EventStoreException("Unknown event " + line);
+    }
+  }
+
+}
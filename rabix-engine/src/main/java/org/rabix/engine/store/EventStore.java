@@ -0,0 +1,37 @@
+package org.rabix.engine.store;
+
+import java.util.List;
+
+import org.rabix.engine.event.Event;
+
+/**
+ * Durable log of events that enter the engine from outside (Job submissions and Job status updates from Backends).
+ * Everything else the engine keeps in memory (records, DAG nodes, ready groups) is derived from these events, so
+ * running contexts are rebuilt by replaying them.
+ */
+public interface EventStore {
+
+  public static enum Type {
+    NONE, FILE
+  }
+
+  /**
+   * Gets events of contexts that weren't finished when the store was last closed (or crashed), in order of arrival
+   */
+  List<Event> load() throws EventStoreException;
+
+  /**
+   * Appends event. Returns when the event is durable (if the store is configured to wait for it).
+   */
+  void append(Event event) throws EventStoreException;
+
+  /**
+   * Marks context as finished. Its events are dropped from the store.
+   */
+  void finished(String contextId);
+
+  void close();
+
+  Type getType();
+
+}
@@ -0,0 +1,22 @@
+package org.rabix.engine.store;
+
+public class EventStoreException extends Exception {
+
+  /**
+   * 
+   */
+  private static final long serialVersionUID = -2938561127415946208L;
+
+  public EventStoreException(String message) {
+    super(message);
+  }
+
+  public EventStoreException(Throwable throwable) {
+    super(throwable);
+  }
+
+  public EventStoreException(String message, Throwable throwable) {
+    super(message, throwable);
+  }
+
+}
@@ -0,0 +1,40 @@
+package org.rabix.engine.store;
+
+import java.io.File;
+
+import org.apache.commons.configuration.Configuration;
+import org.rabix.engine.store.impl.FileEventStore;
+import org.rabix.engine.store.impl.NoOpEventStore;
+
+public class EventStoreFactory {
+
+  public static final long DEFAULT_SNAPSHOT_THRESHOLD = 100000;
+
+  /**
+   * Creates {@link EventStore} from configuration. File store is used if <code>engine.store.directory</code> is set.
+   */
+  public static EventStore create(Configuration configuration) {
+    String directory = configuration.getString("engine.store.directory", null);
+    String defaultType = directory != null ? EventStore.Type.FILE.name() : EventStore.Type.NONE.name();
+    EventStore.Type type = EventStore.Type.valueOf(configuration.getString("engine.store.type", defaultType).toUpperCase());
+
+    switch (type) {
+    case NONE:
+      return new NoOpEventStore();
+    case FILE:
+      if (directory == null) {
+        throw new RuntimeException("Failed to create EventStore. engine.store.directory is not set.");
+      }
+      boolean sync = configuration.getBoolean("engine.store.sync", true);
+      long snapshotThreshold = configuration.getLong("engine.store.snapshot_threshold", DEFAULT_SNAPSHOT_THRESHOLD);
+      try {
+        return new FileEventStore(new File(directory), sync, snapshotThreshold);
+      } catch (EventStoreException e) {
+        throw new RuntimeException("Failed to create EventStore " + type, e);
+      }
+    default:
+      throw new RuntimeException("Failed to create EventStore " + type);
+    }
+  }
+
+}
@@ -0,0 +1,357 @@
+package org.rabix.engine.store.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.rabix.common.helper.JSONHelper;
+import org.rabix.engine.event.Event;
+import org.rabix.engine.event.Event.EventType;
+import org.rabix.engine.store.EventCodec;
+import org.rabix.engine.store.EventStore;
+import org.rabix.engine.store.EventStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log plus snapshot, both one JSON event per line.
+ *
+ * Events are written by a single writer thread that drains all pending appends, writes them and syncs the file once
+ * (group commit). Once the log reaches the snapshot threshold, events of live contexts are written to a new snapshot
+ * and a new log is started. The snapshot header holds the generation of the log that follows it, so a crash at any
+ * point leaves either the old or the new (snapshot, log) pair.
+ */
+public class FileEventStore implements EventStore {
+
+  private final static Logger logger = LoggerFactory.getLogger(FileEventStore.class);
+
+  private final static String SNAPSHOT_FILE = "snapshot.log";
+  private final static String SNAPSHOT_TMP_FILE = "snapshot.tmp";
+  private final static String LOG_FILE_PREFIX = "events-";
+  private final static String LOG_FILE_SUFFIX = ".log";
+
+  private final static String GENERATION_KEY = "generation";
+  private final static String FINISHED_KEY = "finished";
+
+  private final File directory;
+  private final boolean sync;
+  private final long snapshotThreshold;
+
+  private final BlockingQueue<Write> writes = new LinkedBlockingQueue<>();
+
+  /**
+   * Encoded events per live context. Used by the writer thread only (after recovery).
+   */
+  private final Map<String, List<String>> liveEvents = new LinkedHashMap<>();
+  private List<String> recoveredEvents;
+
+  private long generation = 0;
+  private long logSize = 0;
+  private FileOutputStream logStream;
+  private Writer logWriter;
+
+  private final Thread writerThread;
+  private volatile boolean closed = false;
+  private volatile IOException failure;
+
+  public FileEventStore(File directory, boolean sync, long snapshotThreshold) throws EventStoreException {
+    this.directory = directory;
+    this.sync = sync;
+    this.snapshotThreshold = snapshotThreshold;
+
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new EventStoreException("Failed to create directory " + directory.getAbsolutePath());
+    }
+    try {
+      recover();
+      recoveredEvents = new ArrayList<>();
+      for (List<String> contextEvents : liveEvents.values()) {
+        recoveredEvents.addAll(contextEvents);
+      }
+      snapshot();
+    } catch (IOException e) {
+      throw new EventStoreException("Failed to open event store " + directory.getAbsolutePath(), e);
+    }
+
+    writerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        write();
+      }
+    }, "EventStoreWriter");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  @Override
+  public synchronized List<Event> load() throws EventStoreException {
+    if (recoveredEvents == null) {
+      return Collections.emptyList();
+    }
+    List<Event> events = new ArrayList<>(recoveredEvents.size());
+    for (String line : recoveredEvents) {
+      events.add(EventCodec.decode(line));
+    }
+    recoveredEvents = null;
+    return events;
+  }
+
+  @Override
+  public void append(Event event) throws EventStoreException {
+    if (closed) {
+      throw new EventStoreException("Event store is closed");
+    }
+    Write write = new Write(event.getContextId(), EventCodec.encode(event), event.getType().equals(EventType.INIT));
+    writes.add(write);
+    if (closed && writes.remove(write)) {
+      // closed concurrently, the writer may have exited already
+      throw new EventStoreException("Event store is closed");
+    }
+    if (sync) {
+      try {
+        write.done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new EventStoreException("Interrupted while appending event " + event);
+      }
+      if (write.rejected) {
+        throw new EventStoreException("Event store is closed");
+      }
+      if (failure != null) {
+        throw new EventStoreException("Failed to append event " + event, failure);
+      }
+    }
+  }
+
+  @Override
+  public void finished(String contextId) {
+    if (!closed) {
+      writes.add(new Write(contextId, null, false));
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // releases appends queued after the writer has exited
+    List<Write> stragglers = new ArrayList<>();
+    writes.drainTo(stragglers);
+    for (Write write : stragglers) {
+      write.rejected = true;
+      write.done.countDown();
+    }
+    try {
+      logWriter.close();
+    } catch (IOException e) {
+      logger.error("Failed to close event log", e);
+    }
+  }
+
+  @Override
+  public Type getType() {
+    return Type.FILE;
+  }
+
+  /**
+   * Writer thread loop. Each batch is written and synced once.
+   */
+  private void write() {
+    List<Write> batch = new ArrayList<>();
+    while (!closed || !writes.isEmpty()) {
+      try {
+        Write first = writes.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        writes.drainTo(batch);
+
+        if (failure == null) {
+          try {
+            for (Write write : batch) {
+              String line = apply(write);
+              if (line != null) {
+                logWriter.write(line);
+                logWriter.write('\n');
+                logSize++;
+              }
+            }
+            logWriter.flush();
+            if (sync) {
+              logStream.getFD().sync();
+            }
+            if (logSize >= snapshotThreshold) {
+              snapshot();
+            }
+          } catch (IOException e) {
+            logger.error("Failed to write events. Event store is disabled.", e);
+            failure = e;
+          }
+        }
+      } catch (InterruptedException e) {
+        // keep draining until closed
+      } finally {
+        for (Write write : batch) {
+          write.done.countDown();
+        }
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Applies write to live events and returns the line to log (if any). Events of unknown (finished) contexts are
+   * ignored unless they start a context.
+   */
+  private String apply(Write write) throws IOException {
+    if (write.line == null) {
+      if (liveEvents.remove(write.contextId) == null) {
+        return null;
+      }
+      return JSONHelper.mapperWithoutIdentation.writeValueAsString(Collections.singletonMap(FINISHED_KEY, write.contextId));
+    }
+    List<String> contextEvents = liveEvents.get(write.contextId);
+    if (contextEvents == null) {
+      if (!write.init) {
+        return null;
+      }
+      contextEvents = new ArrayList<>();
+      liveEvents.put(write.contextId, contextEvents);
+    }
+    contextEvents.add(write.line);
+    return write.line;
+  }
+
+  /**
+   * Reads the latest snapshot and the log that follows it
+   */
+  private void recover() throws IOException {
+    File snapshotFile = new File(directory, SNAPSHOT_FILE);
+    if (snapshotFile.exists()) {
+      List<String> lines = readLines(snapshotFile);
+      if (!lines.isEmpty()) {
+        generation = ((Number) JSONHelper.readMap(lines.get(0)).get(GENERATION_KEY)).longValue();
+        for (String line : lines.subList(1, lines.size())) {
+          recover(line);
+        }
+      }
+    }
+    File logFile = getLogFile(generation);
+    if (logFile.exists()) {
+      for (String line : readLines(logFile)) {
+        recover(line);
+      }
+    }
+    logger.info("Recovered {} live context(s) from {}", liveEvents.size(), directory.getAbsolutePath());
+  }
+
+  private void recover(String line) throws IOException {
+    Map<String, Object> map;
+    try {
+      map = JSONHelper.readMap(line);
+    } catch (Exception e) {
+      // last line can be torn by a crash
+      logger.warn("Skipping corrupted event log entry {}", line);
+      return;
+    }
+    if (map.containsKey(FINISHED_KEY)) {
+      apply(new Write((String) map.get(FINISHED_KEY), null, false));
+    } else {
+      apply(new Write((String) map.get("contextId"), line, EventType.INIT.name().equals(map.get("type"))));
+    }
+  }
+
+  /**
+   * Writes events of live contexts to a new snapshot and starts a new log
+   */
+  private void snapshot() throws IOException {
+    long nextGeneration = generation + 1;
+
+    File tmpFile = new File(directory, SNAPSHOT_TMP_FILE);
+    try (FileOutputStream snapshotStream = new FileOutputStream(tmpFile)) {
+      Writer snapshotWriter = new BufferedWriter(new OutputStreamWriter(snapshotStream, "UTF-8"));
+      snapshotWriter.write(JSONHelper.mapperWithoutIdentation.writeValueAsString(Collections.singletonMap(GENERATION_KEY, nextGeneration)));
+      snapshotWriter.write('\n');
+      for (List<String> contextEvents : liveEvents.values()) {
+        for (String line : contextEvents) {
+          snapshotWriter.write(line);
+          snapshotWriter.write('\n');
+        }
+      }
+      snapshotWriter.flush();
+      snapshotStream.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), new File(directory, SNAPSHOT_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    if (logWriter != null) {
+      logWriter.close();
+    }
+    File oldLogFile = getLogFile(generation);
+    generation = nextGeneration;
+    logStream = new FileOutputStream(getLogFile(generation), true);
+    logWriter = new BufferedWriter(new OutputStreamWriter(logStream, "UTF-8"));
+    logSize = 0;
+
+    if (oldLogFile.exists() && !oldLogFile.delete()) {
+      logger.warn("Failed to delete old event log {}", oldLogFile.getAbsolutePath());
+    }
+    logger.debug("Event store snapshot {} written", generation);
+  }
+
+  private File getLogFile(long generation) {
+    return new File(directory, LOG_FILE_PREFIX + generation + LOG_FILE_SUFFIX);
+  }
+
+  private List<String> readLines(File file) throws IOException {
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          lines.add(line);
+        }
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Pending write. Line is null for finished contexts.
+   */
+  private static class Write {
+    final String contextId;
+    final String line;
+    final boolean init;
+    final CountDownLatch done = new CountDownLatch(1);
+    volatile boolean rejected = false;
+
+    Write(String contextId, String line, boolean init) {
+      this.contextId = contextId;
+      this.line = line;
+      this.init = init;
+    }
+  }
+
+}
@@ -0,0 +1,33 @@
+package org.rabix.engine.store.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.rabix.engine.event.Event;
+import org.rabix.engine.store.EventStore;
+
+public class NoOpEventStore implements EventStore {
+
+  @Override
+  public List<Event> load() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void append(Event event) {
+  }
+
+  @Override
+  public void finished(String contextId) {
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public Type getType() {
+    return Type.NONE;
+  }
+
+}
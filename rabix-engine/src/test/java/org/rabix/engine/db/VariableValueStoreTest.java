@@ -0,0 +1,97 @@
+package org.rabix.engine.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.rabix.bindings.model.FileValue;
+import org.rabix.bindings.model.LinkMerge;
+import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.rabix.engine.db.VariableValueStore.StoredValue;
+import org.rabix.engine.model.VariableRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class VariableValueStoreTest {
+
+  private static final String ROOT_ID = "root-id";
+
+  private File directory;
+
+  @BeforeMethod
+  public void setUp() {
+    directory = new File(System.getProperty("java.io.tmpdir"), "values-" + System.nanoTime());
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testThreshold() {
+    VariableValueStore store = new VariableValueStore(1024, VariableValueStore.Type.DIRECT, directory);
+    Assert.assertEquals(store.store(ROOT_ID, "value"), "value");
+    List<Object> small = files(2);
+    Assert.assertSame(store.store(ROOT_ID, small), small);
+    Assert.assertTrue(store.store(ROOT_ID, files(100)) instanceof StoredValue);
+
+    VariableValueStore disabled = new VariableValueStore(0, VariableValueStore.Type.DIRECT, directory);
+    List<Object> large = files(100);
+    Assert.assertSame(disabled.store(ROOT_ID, large), large);
+  }
+
+  @Test
+  public void testDirect() {
+    VariableValueStore store = new VariableValueStore(1024, VariableValueStore.Type.DIRECT, directory);
+    List<Object> files = files(10000);
+    StoredValue stored = (StoredValue) store.store(ROOT_ID, files);
+    Assert.assertEquals(stored.decode(), files);
+    Assert.assertEquals(stored.decode(), files);
+  }
+
+  @Test
+  public void testMapped() {
+    VariableValueStore store = new VariableValueStore(1024, VariableValueStore.Type.MAPPED, directory);
+    List<StoredValue> stored = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      stored.add((StoredValue) store.store(ROOT_ID, files(1000 + i)));
+    }
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(stored.get(i).decode(), files(1000 + i));
+    }
+    Assert.assertTrue(new File(directory, ROOT_ID + ".values").exists());
+    store.delete(ROOT_ID);
+    Assert.assertFalse(new File(directory, ROOT_ID + ".values").exists());
+  }
+
+  @Test
+  public void testVariableRecord() {
+    VariableValueStore store = new VariableValueStore(1024, VariableValueStore.Type.DIRECT, directory);
+    VariableRecord variable = new VariableRecord(ROOT_ID, "root.step", "input", LinkPortType.INPUT, null, LinkMerge.merge_flattened);
+    variable.addValue(files(100), 1);
+    variable.offload(store);
+    Assert.assertTrue(variable.isOffloaded());
+    Assert.assertEquals(variable.getValue(), files(100));
+
+    variable.addValue(files(1), 2);
+    Assert.assertFalse(variable.isOffloaded());
+    List<Object> expected = files(100);
+    expected.addAll(files(1));
+    Assert.assertEquals(variable.getValue(), expected);
+  }
+
+  private List<Object> files(int count) {
+    List<Object> files = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      files.add(new FileValue(10L, "/data/file" + i + ".txt", "file:///data/file" + i + ".txt", null, null, null, "file" + i + ".txt"));
+    }
+    return files;
+  }
+
+}
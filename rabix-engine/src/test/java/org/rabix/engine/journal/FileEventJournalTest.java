@@ -0,0 +1,187 @@
+package org.rabix.engine.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.rabix.bindings.model.FileValue;
+import org.rabix.bindings.model.dag.DAGLinkPort;
+import org.rabix.bindings.model.dag.DAGNode;
+import org.rabix.engine.event.Event;
+import org.rabix.engine.event.impl.ContextStatusEvent;
+import org.rabix.engine.event.impl.InitEvent;
+import org.rabix.engine.event.impl.InputBatchUpdateEvent;
+import org.rabix.engine.event.impl.InputUpdateEvent;
+import org.rabix.engine.event.impl.JobStatusEvent;
+import org.rabix.engine.event.impl.OutputUpdateEvent;
+import org.rabix.engine.journal.impl.FileEventJournal;
+import org.rabix.engine.model.ContextRecord.ContextStatus;
+import org.rabix.engine.service.JobRecordService.JobState;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class FileEventJournalTest {
+
+  private File directory;
+
+  @BeforeMethod
+  public void setUp() {
+    directory = new File(System.getProperty("java.io.tmpdir"), "journal-" + System.nanoTime());
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testRoundTrip() throws EventJournalException {
+    FileEventJournal journal = new FileEventJournal(directory);
+    List<Event> events = events("root1");
+    for (Event event : events) {
+      journal.record(event);
+    }
+    journal.record(new ContextStatusEvent("root1", ContextStatus.COMPLETED));
+    journal.finished("root1");
+
+    List<Event> recorded = read(journal.getJournalFile("root1"));
+    Assert.assertEquals(recorded.size(), events.size() + 1);
+    Assert.assertEquals(((InitEvent) recorded.get(0)).getNode().getId(), "root1");
+    Assert.assertEquals(((InitEvent) recorded.get(0)).getValue(), ((InitEvent) events.get(0)).getValue());
+    for (int i = 1; i < events.size(); i++) {
+      Assert.assertEquals(recorded.get(i), events.get(i));
+    }
+    Assert.assertEquals(((ContextStatusEvent) recorded.get(events.size())).getStatus(), ContextStatus.COMPLETED);
+  }
+
+  @Test
+  public void testInitRestartsJournal() throws EventJournalException {
+    FileEventJournal journal = new FileEventJournal(directory);
+    for (Event event : events("root1")) {
+      journal.record(event);
+    }
+    journal.record(events("root1").get(0));
+    journal.flush();
+
+    Assert.assertEquals(read(journal.getJournalFile("root1")).size(), 1);
+  }
+
+  @Test
+  public void testLateEventAfterFinished() throws EventJournalException {
+    FileEventJournal journal = new FileEventJournal(directory);
+    List<Event> events = events("root1");
+    for (Event event : events) {
+      journal.record(event);
+    }
+    journal.finished("root1");
+    journal.record(new JobStatusEvent("root1.b", "root1", JobState.COMPLETED, null, "group"));
+    journal.flush();
+    Assert.assertEquals(read(journal.getJournalFile("root1")).size(), events.size());
+
+    // context started again
+    journal.record(events.get(0));
+    journal.record(events.get(1));
+    journal.finished("root1");
+    Assert.assertEquals(read(journal.getJournalFile("root1")).size(), 2);
+  }
+
+  @Test
+  public void testConcurrentRecord() throws Exception {
+    final FileEventJournal journal = new FileEventJournal(directory);
+    final List<Event> events = events("root1");
+    journal.record(events.get(0));
+
+    final int count = 1000;
+    final Thread[] threads = new Thread[4];
+    final CountDownLatch started = new CountDownLatch(threads.length);
+    final AtomicReference<Exception> error = new AtomicReference<>();
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < count; j++) {
+              journal.record(events.get(1));
+              if (j == 0) {
+                started.countDown();
+              }
+            }
+          } catch (EventJournalException e) {
+            error.set(e);
+          }
+        }
+      });
+      threads[i].start();
+    }
+    started.await();
+    journal.finished("root1");
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertNull(error.get());
+    // events recorded after the context finished are dropped, the rest are intact
+    int recorded = read(journal.getJournalFile("root1")).size();
+    Assert.assertTrue(recorded > threads.length && recorded <= 1 + threads.length * count);
+  }
+
+  @Test
+  public void testTornWrite() throws EventJournalException, IOException {
+    FileEventJournal journal = new FileEventJournal(directory);
+    List<Event> events = events("root1");
+    for (Event event : events) {
+      journal.record(event);
+    }
+    journal.finished("root1");
+
+    File file = journal.getJournalFile("root1");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() - 3);
+    }
+    Assert.assertEquals(read(file).size(), events.size() - 1);
+  }
+
+  private List<Event> read(File file) throws EventJournalException {
+    List<Event> events = new ArrayList<>();
+    EventJournalReader reader = new EventJournalReader(file);
+    try {
+      Event event;
+      while ((event = reader.next()) != null) {
+        events.add(event);
+      }
+    } finally {
+      reader.close();
+    }
+    return events;
+  }
+
+  private List<Event> events(String rootId) {
+    FileValue file = new FileValue(10L, "/data/a.txt", "file:///data/a.txt", null, null, null, "a.txt");
+    Map<String, Object> value = new HashMap<>();
+    value.put("file", file);
+    value.put("count", 3);
+    value.put("size", 5000000000L);
+    value.put("ratio", 0.5);
+    value.put("names", Arrays.<Object>asList("a", "b", null));
+    DAGNode node = new DAGNode(rootId, new ArrayList<DAGLinkPort>(), new ArrayList<DAGLinkPort>(), null, null, null);
+
+    List<Event> events = new ArrayList<>();
+    events.add(new InitEvent(null, rootId, node, value));
+    events.add(new InputUpdateEvent(rootId, rootId + ".a", "in", Arrays.<Object>asList(file, file), true, 2, 1, "group"));
+    events.add(new OutputUpdateEvent(rootId, rootId + ".a", "out", -1, false, null, 1, "group"));
+    events.add(new InputBatchUpdateEvent(rootId, Arrays.asList(new InputUpdateEvent(rootId, rootId + ".b.1", "in", file, 1, "group"), new InputUpdateEvent(rootId, rootId + ".b.2", "in", null, 1, "group")), "group"));
+    events.add(new JobStatusEvent(rootId + ".a", rootId, JobState.COMPLETED, value, "group"));
+    return events;
+  }
+
+}
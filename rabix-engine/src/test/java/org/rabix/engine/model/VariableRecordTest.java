@@ -0,0 +1,71 @@
+package org.rabix.engine.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.rabix.bindings.model.LinkMerge;
+import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class VariableRecordTest {
+
+  private static final String ROOT_ID = "root-id";
+
+  @Test
+  public void testMergeFlattenedInOrder() {
+    VariableRecord variable = variable(LinkMerge.merge_flattened);
+    List<Object> expected = new ArrayList<>();
+    for (int i = 1; i <= 10000; i++) {
+      variable.addValue(Arrays.<Object>asList(i, Arrays.<Object>asList(-i)), i);
+      expected.add(i);
+      expected.add(-i);
+      if (i % 1000 == 0) {
+        Assert.assertEquals(variable.getValue(), expected);
+      }
+    }
+    Assert.assertEquals(variable.getValue(), expected);
+  }
+
+  @Test
+  public void testMergeFlattenedOutOfOrder() {
+    VariableRecord variable = variable(LinkMerge.merge_flattened);
+    variable.addValue(Arrays.<Object>asList("c"), 3);
+    Assert.assertEquals(variable.getValue(), Arrays.<Object>asList(null, null, "c"));
+    variable.addValue("a", 1);
+    Object snapshot = variable.getValue();
+    Assert.assertEquals(snapshot, Arrays.<Object>asList("a", null, "c"));
+    variable.addValue(Arrays.<Object>asList("b1", "b2"), 2);
+    variable.addValue("d", 4);
+    Assert.assertEquals(variable.getValue(), Arrays.<Object>asList("a", "b1", "b2", "c", "d"));
+    // values returned earlier don't change
+    Assert.assertEquals(snapshot, Arrays.<Object>asList("a", null, "c"));
+  }
+
+  @Test
+  public void testMergeFlattenedSingleValue() {
+    VariableRecord variable = variable(LinkMerge.merge_flattened);
+    variable.addValue(Arrays.<Object>asList("a", Arrays.<Object>asList("b")), 1);
+    Assert.assertEquals(variable.getValue(), Arrays.<Object>asList("a", "b"));
+    variable.addValue("c", 2);
+    Assert.assertEquals(variable.getValue(), Arrays.<Object>asList("a", "b", "c"));
+  }
+
+  @Test
+  public void testMergeNested() {
+    VariableRecord variable = variable(LinkMerge.merge_nested);
+    List<Object> expected = new ArrayList<>();
+    for (int i = 1; i <= 10000; i++) {
+      variable.addValue(Arrays.<Object>asList(i), i);
+      expected.add(Arrays.<Object>asList(i));
+    }
+    Assert.assertEquals(variable.getValue(), expected);
+  }
+
+  private VariableRecord variable(LinkMerge linkMerge) {
+    return new VariableRecord(ROOT_ID, "root.step", "input", LinkPortType.INPUT, null, linkMerge);
+  }
+
+}
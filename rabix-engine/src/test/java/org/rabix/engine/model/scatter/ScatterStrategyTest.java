@@ -0,0 +1,127 @@
+package org.rabix.engine.model.scatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.rabix.bindings.BindingException;
+import org.rabix.bindings.model.LinkMerge;
+import org.rabix.bindings.model.ScatterMethod;
+import org.rabix.bindings.model.dag.DAGLinkPort;
+import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.rabix.bindings.model.dag.DAGNode;
+import org.rabix.common.helper.InternalSchemaHelper;
+import org.rabix.engine.model.VariableRecord;
+import org.rabix.engine.service.VariableRecordService;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class ScatterStrategyTest {
+
+  private static final String ROOT_ID = "root-id";
+  private static final String JOB_ID = "root-id.step";
+
+  @Test
+  public void testFlatCrossproduct() throws BindingException {
+    VariableRecordService variableRecordService = new VariableRecordService();
+    ScatterStrategy strategy = new ScatterStrategyFactory(variableRecordService).create(node(ScatterMethod.flat_crossproduct, "a", "b"));
+
+    List<RowMapping> mappings = new ArrayList<>();
+    for (int i = 12; i >= 1; i--) {
+      mappings.addAll(enable(strategy, "a", "a" + i, i));
+    }
+    Assert.assertTrue(mappings.isEmpty());
+    mappings.addAll(enable(strategy, "b", "b2", 2));
+    mappings.addAll(enable(strategy, "b", "b1", 1));
+    Assert.assertEquals(mappings.size(), 24);
+    Assert.assertEquals(strategy.enabledCount(), 24);
+    Assert.assertTrue(strategy.enabled().isEmpty());
+
+    List<Object> expected = new ArrayList<>();
+    for (int i = 1; i <= 12; i++) {
+      for (int j = 1; j <= 2; j++) {
+        expected.add("a" + i + "b" + j);
+      }
+    }
+    complete(variableRecordService, mappings);
+    Assert.assertEquals(strategy.values(JOB_ID, "out", ROOT_ID), expected);
+  }
+
+  @Test
+  public void testNestedCrossproduct() throws BindingException {
+    VariableRecordService variableRecordService = new VariableRecordService();
+    ScatterStrategy strategy = new ScatterStrategyFactory(variableRecordService).create(node(ScatterMethod.nested_crossproduct, "a", "b"));
+
+    List<RowMapping> mappings = new ArrayList<>();
+    mappings.addAll(enable(strategy, "b", "b1", 1));
+    mappings.addAll(enable(strategy, "a", "a2", 2));
+    mappings.addAll(enable(strategy, "b", "b2", 2));
+    mappings.addAll(enable(strategy, "a", "a1", 1));
+    Assert.assertEquals(mappings.size(), 4);
+
+    complete(variableRecordService, mappings);
+    List<Object> expected = Arrays.<Object>asList(Arrays.<Object>asList("a1b1", "a1b2"), Arrays.<Object>asList("a2b1", "a2b2"));
+    Assert.assertEquals(strategy.values(JOB_ID, "out", ROOT_ID), expected);
+  }
+
+  @Test
+  public void testDotproduct() throws BindingException {
+    VariableRecordService variableRecordService = new VariableRecordService();
+    ScatterStrategy strategy = new ScatterStrategyFactory(variableRecordService).create(node(ScatterMethod.dotproduct, "a", "b"));
+
+    List<RowMapping> mappings = new ArrayList<>();
+    mappings.addAll(enable(strategy, "a", "a2", 2));
+    mappings.addAll(enable(strategy, "b", "b1", 1));
+    Assert.assertTrue(mappings.isEmpty());
+    mappings.addAll(enable(strategy, "b", "b2", 2));
+    Assert.assertEquals(mappings.size(), 1);
+    Assert.assertEquals(mappings.get(0).getIndex(), 2);
+    mappings.addAll(enable(strategy, "a", "a1", 1));
+    Assert.assertEquals(strategy.enabledCount(), 2);
+
+    complete(variableRecordService, mappings);
+    Assert.assertEquals(strategy.values(JOB_ID, "out", ROOT_ID), Arrays.<Object>asList("a1b1", "a2b2"));
+  }
+
+  @Test
+  public void testUncommittedRowsStayEnabled() throws BindingException {
+    ScatterStrategy strategy = new ScatterStrategyFactory(new VariableRecordService()).create(node(ScatterMethod.flat_crossproduct, "a", "b"));
+    strategy.enable("a", "a1", 1);
+    strategy.enable("b", "b1", 1);
+    strategy.enable("b", "b2", 2);
+    Assert.assertEquals(strategy.enabled().size(), 2);
+
+    List<RowMapping> mappings = strategy.enabled();
+    strategy.commit(mappings.subList(0, 1));
+    Assert.assertEquals(strategy.enabled().size(), 1);
+    Assert.assertEquals(strategy.enabled().get(0).getIndex(), mappings.get(1).getIndex());
+  }
+
+  private List<RowMapping> enable(ScatterStrategy strategy, String port, Object value, int position) throws BindingException {
+    strategy.enable(port, value, position);
+    List<RowMapping> mappings = new ArrayList<>(strategy.enabled());
+    strategy.commit(mappings);
+    return mappings;
+  }
+
+  /**
+   * Sets output of each scattered job to the concatenation of its inputs
+   */
+  private void complete(VariableRecordService variableRecordService, List<RowMapping> mappings) {
+    for (RowMapping mapping : mappings) {
+      String jobId = InternalSchemaHelper.scatterId(JOB_ID, mapping.getIndex());
+      Object value = (String) mapping.getValue("a") + mapping.getValue("b");
+      variableRecordService.create(new VariableRecord(ROOT_ID, jobId, "out", LinkPortType.OUTPUT, value, LinkMerge.merge_nested));
+    }
+  }
+
+  private DAGNode node(ScatterMethod scatterMethod, String... scatterPorts) {
+    List<DAGLinkPort> inputPorts = new ArrayList<>();
+    for (String port : scatterPorts) {
+      inputPorts.add(new DAGLinkPort(port, "step", LinkPortType.INPUT, LinkMerge.merge_nested, true, null, null));
+    }
+    return new DAGNode("step", inputPorts, new ArrayList<DAGLinkPort>(), scatterMethod, null, null);
+  }
+
+}
@@ -0,0 +1,85 @@
+package org.rabix.engine.processor.handler.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.rabix.bindings.model.LinkMerge;
+import org.rabix.bindings.model.ScatterMethod;
+import org.rabix.bindings.model.dag.DAGLinkPort;
+import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.rabix.bindings.model.dag.DAGNode;
+import org.rabix.common.helper.InternalSchemaHelper;
+import org.rabix.engine.db.DAGNodeDB;
+import org.rabix.engine.event.impl.InputBatchUpdateEvent;
+import org.rabix.engine.event.impl.InputUpdateEvent;
+import org.rabix.engine.journal.replay.ReplayEventProcessor;
+import org.rabix.engine.model.JobRecord;
+import org.rabix.engine.model.VariableRecord;
+import org.rabix.engine.model.scatter.ScatterStrategyFactory;
+import org.rabix.engine.processor.handler.EventHandlerException;
+import org.rabix.engine.service.JobRecordService;
+import org.rabix.engine.service.JobRecordService.JobState;
+import org.rabix.engine.service.LinkRecordService;
+import org.rabix.engine.service.VariableRecordService;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class ScatterHandlerTest {
+
+  private static final String ROOT_ID = "root-id";
+  private static final String JOB_ID = "root.step";
+  private static final String GROUP_ID = "group";
+
+  @Test
+  public void testScatterSendsOneBatch() throws EventHandlerException {
+    int size = 50000;
+
+    DAGNodeDB dagNodeDB = new DAGNodeDB();
+    JobRecordService jobRecordService = new JobRecordService();
+    LinkRecordService linkRecordService = new LinkRecordService();
+    VariableRecordService variableRecordService = new VariableRecordService();
+    ReplayEventProcessor eventProcessor = new ReplayEventProcessor();
+    ScatterHandler scatterHandler = new ScatterHandler(dagNodeDB, jobRecordService, variableRecordService, linkRecordService, eventProcessor, new ScatterStrategyFactory(variableRecordService));
+
+    DAGLinkPort scatterPort = new DAGLinkPort("a", JOB_ID, LinkPortType.INPUT, LinkMerge.merge_nested, true, null, null);
+    DAGLinkPort port = new DAGLinkPort("b", JOB_ID, LinkPortType.INPUT, LinkMerge.merge_nested, false, null, null);
+    DAGLinkPort outputPort = new DAGLinkPort("out", JOB_ID, LinkPortType.OUTPUT, LinkMerge.merge_nested, false, null, null);
+    List<DAGLinkPort> inputPorts = new ArrayList<>();
+    inputPorts.add(scatterPort);
+    inputPorts.add(port);
+    List<DAGLinkPort> outputPorts = new ArrayList<>();
+    outputPorts.add(outputPort);
+    DAGNode node = new DAGNode(JOB_ID, inputPorts, outputPorts, ScatterMethod.dotproduct, null, new HashMap<String, Object>());
+    dagNodeDB.loadDB(node, ROOT_ID);
+
+    JobRecord job = new JobRecord(ROOT_ID, JOB_ID, "external", ROOT_ID, JobState.PENDING, false, false, false, false);
+    job.incrementPortCounter(scatterPort, LinkPortType.INPUT);
+    job.incrementPortCounter(port, LinkPortType.INPUT);
+    job.incrementPortCounter(outputPort, LinkPortType.OUTPUT);
+    job.decrementPortCounter("b", LinkPortType.INPUT);
+    jobRecordService.create(job);
+    variableRecordService.create(new VariableRecord(ROOT_ID, JOB_ID, "b", LinkPortType.INPUT, "b-value", LinkMerge.merge_nested));
+
+    List<Object> values = new ArrayList<>(size);
+    List<InputUpdateEvent> expected = new ArrayList<>(size * 2);
+    for (int i = 1; i <= size; i++) {
+      values.add(i);
+      String jobId = InternalSchemaHelper.scatterId(JOB_ID, i);
+      expected.add(new InputUpdateEvent(ROOT_ID, jobId, "a", i, 1, GROUP_ID));
+      expected.add(new InputUpdateEvent(ROOT_ID, jobId, "b", "b-value", 1, GROUP_ID));
+    }
+    InputUpdateEvent event = new InputUpdateEvent(ROOT_ID, JOB_ID, "a", values, 1, GROUP_ID);
+    scatterHandler.scatterPort(job, event, "a", values, 1, null, false, false);
+
+    Assert.assertTrue(job.isScatterWrapper());
+    Assert.assertEquals(job.getState(), JobState.RUNNING);
+    Assert.assertEquals(job.getNumberOfGlobalOutputs().intValue(), size);
+    Assert.assertEquals(jobRecordService.findByParent("external", ROOT_ID).size(), size);
+    Assert.assertEquals(linkRecordService.findBySource(JOB_ID, "a", ROOT_ID).size(), size);
+    Assert.assertEquals(eventProcessor.getUnmatchedCount(), 1);
+    Assert.assertTrue(eventProcessor.consume(new InputBatchUpdateEvent(ROOT_ID, expected, GROUP_ID)));
+  }
+
+}
@@ -0,0 +1,197 @@
+package org.rabix.engine.processor.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.MapConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.rabix.bindings.BindingsFactory;
+import org.rabix.bindings.helper.URIHelper;
+import org.rabix.bindings.model.Job;
+import org.rabix.bindings.model.dag.DAGNode;
+import org.rabix.common.helper.ResourceHelper;
+import org.rabix.engine.EngineModule;
+import org.rabix.engine.event.impl.InitEvent;
+import org.rabix.engine.event.impl.JobStatusEvent;
+import org.rabix.engine.processor.EventProcessor;
+import org.rabix.engine.service.JobRecordService.JobState;
+import org.rabix.engine.status.EngineStatusCallback;
+import org.rabix.engine.status.EngineStatusCallbackException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+@Test(groups = { "functional" })
+public class MultiEventProcessorImplTest {
+
+  private static final long TIMEOUT_SECONDS = 30;
+
+  private File directory;
+
+  @BeforeMethod
+  public void setUp() {
+    directory = new File(System.getProperty("java.io.tmpdir"), "eventstore-" + System.nanoTime());
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testRecovery() throws Exception {
+    Engine engine = new Engine(new File(directory, "uninterrupted"));
+    engine.start();
+    engine.run("root1");
+    engine.completeAll();
+    Map<String, Object> expectedOutputs = engine.awaitRoot();
+    engine.stop();
+    Assert.assertEquals(expectedOutputs.get("results"), Arrays.asList(3, 5, 7));
+
+    // the second step is scattered over outputs of the first one, its jobs exist only after those outputs are handled
+    engine = new Engine(new File(directory, "interrupted"));
+    engine.start();
+    engine.run("root2");
+    engine.complete(4);
+    engine.stop();
+
+    engine = new Engine(new File(directory, "interrupted"));
+    engine.start();
+    Assert.assertEquals(engine.readyJobs.size(), 2);
+    engine.completeAll();
+    Map<String, Object> outputs = engine.awaitRoot();
+    engine.stop();
+
+    Assert.assertEquals(outputs, expectedOutputs);
+  }
+
+  /**
+   * Engine with file event store. Ready jobs are "executed" by the test.
+   */
+  private static class Engine implements EngineStatusCallback {
+
+    private final EventProcessor eventProcessor;
+
+    private final BlockingQueue<Job> readyJobs = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Job> rootJobs = new LinkedBlockingQueue<>();
+
+    Engine(File storeDirectory) {
+      Map<String, Object> properties = new HashMap<>();
+      properties.put("engine.store.directory", storeDirectory.getAbsolutePath());
+      properties.put("bunny.event_processor.count", 2);
+      final Configuration configuration = new MapConfiguration(properties);
+
+      eventProcessor = Guice.createInjector(new EngineModule(), new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(Configuration.class).toInstance(configuration);
+        }
+      }).getInstance(EventProcessor.class);
+    }
+
+    /**
+     * Starts the engine. Returns once stored events are recovered.
+     */
+    void start() {
+      eventProcessor.start(null, this);
+    }
+
+    void run(String rootId) throws Exception {
+      String app = URIHelper.createDataURI(ResourceHelper.readResource(MultiEventProcessorImplTest.class, "scatter-wf.cwl"));
+      Map<String, Object> inputs = Collections.<String, Object>singletonMap("numbers", Arrays.asList(1, 2, 3));
+      Job root = new Job(rootId, rootId, rootId, rootId, app, null, null, inputs, null, null, null, null);
+      DAGNode node = BindingsFactory.create(root).translateToDAG(root);
+      eventProcessor.send(new InitEvent(null, rootId, node, inputs));
+    }
+
+    void stop() {
+      eventProcessor.stop();
+    }
+
+    /**
+     * Completes ready jobs until the root finishes
+     */
+    void completeAll() throws Exception {
+      while (rootJobs.isEmpty()) {
+        Job job = readyJobs.poll(100, TimeUnit.MILLISECONDS);
+        if (job != null) {
+          complete(job);
+        }
+      }
+    }
+
+    void complete(int count) throws Exception {
+      for (int i = 0; i < count; i++) {
+        Job job = readyJobs.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(job, "Job isn't ready");
+        complete(job);
+      }
+    }
+
+    private void complete(Job job) {
+      Map<String, Object> outputs = new HashMap<>();
+      if (job.getInputs().containsKey("x")) {
+        outputs.put("y", (Integer) job.getInputs().get("x") * 2);
+      } else {
+        outputs.put("z", (Integer) job.getInputs().get("y") + 1);
+      }
+      eventProcessor.addToQueue(new JobStatusEvent(job.getName(), job.getRootId(), JobState.RUNNING, null, null));
+      eventProcessor.addToQueue(new JobStatusEvent(job.getName(), job.getRootId(), JobState.COMPLETED, outputs, job.getId()));
+    }
+
+    Map<String, Object> awaitRoot() throws InterruptedException {
+      Job root = rootJobs.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Assert.assertNotNull(root, "Root didn't finish");
+      Assert.assertEquals(root.getStatus(), Job.JobStatus.COMPLETED);
+      return root.getOutputs();
+    }
+
+    @Override
+    public void onJobReady(Job job) throws EngineStatusCallbackException {
+      readyJobs.add(job);
+    }
+
+    @Override
+    public void onJobsReady(Set<Job> jobs) throws EngineStatusCallbackException {
+      readyJobs.addAll(jobs);
+    }
+
+    @Override
+    public void onJobCompleted(Job job) throws EngineStatusCallbackException {
+    }
+
+    @Override
+    public void onJobFailed(Job job) throws EngineStatusCallbackException {
+      rootJobs.add(job);
+    }
+
+    @Override
+    public void onJobRootCompleted(Job rootJob) throws EngineStatusCallbackException {
+      rootJobs.add(rootJob);
+    }
+
+    @Override
+    public void onJobRootPartiallyCompleted(Job rootJob) throws EngineStatusCallbackException {
+    }
+
+    @Override
+    public void onJobRootFailed(Job rootJob) throws EngineStatusCallbackException {
+      rootJobs.add(rootJob);
+    }
+
+  }
+
+}
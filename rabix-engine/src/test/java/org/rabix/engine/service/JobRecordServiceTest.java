@@ -0,0 +1,64 @@
+package org.rabix.engine.service;
+
+import java.util.List;
+
+import org.rabix.engine.model.JobRecord;
+import org.rabix.engine.service.JobRecordService.JobState;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class JobRecordServiceTest {
+
+  private static final String ROOT_ID = "root-id";
+  
+  private JobRecordService jobRecordService;
+  
+  @BeforeMethod
+  public void before() {
+    jobRecordService = new JobRecordService();
+  }
+  
+  @Test
+  public void testFindByIdAndParent() {
+    JobRecord root = new JobRecord(ROOT_ID, "root", ROOT_ID, null, JobState.RUNNING, true, false, true, false);
+    jobRecordService.create(root);
+    for (int i = 0; i < 50000; i++) {
+      jobRecordService.create(new JobRecord(ROOT_ID, "root.step." + i, "external-" + i, ROOT_ID, JobState.PENDING, false, true, false, false));
+    }
+    Assert.assertSame(jobRecordService.findRoot(ROOT_ID), root);
+    Assert.assertEquals(jobRecordService.find("root.step.49999", ROOT_ID).getExternalId(), "external-49999");
+    Assert.assertNull(jobRecordService.find("root.step.50000", ROOT_ID));
+    Assert.assertEquals(jobRecordService.findByParent(ROOT_ID, ROOT_ID).size(), 50000);
+    Assert.assertTrue(jobRecordService.findByParent("external-1", ROOT_ID).isEmpty());
+    Assert.assertEquals(jobRecordService.count(ROOT_ID), 50001);
+  }
+  
+  @Test
+  public void testFindReadyFollowsUpdates() {
+    JobRecord job = new JobRecord(ROOT_ID, "root.step", "external", ROOT_ID, JobState.PENDING, false, false, false, false);
+    jobRecordService.create(job);
+    Assert.assertTrue(jobRecordService.findReady(ROOT_ID).isEmpty());
+    
+    job.setState(JobState.READY);
+    jobRecordService.update(job);
+    List<JobRecord> ready = jobRecordService.findReady(ROOT_ID);
+    Assert.assertEquals(ready.size(), 1);
+    Assert.assertSame(ready.get(0), job);
+    
+    job.setState(JobState.RUNNING);
+    Assert.assertTrue(jobRecordService.findReady(ROOT_ID).isEmpty());
+    jobRecordService.update(job);
+    Assert.assertTrue(jobRecordService.findReady(ROOT_ID).isEmpty());
+  }
+  
+  @Test
+  public void testDelete() {
+    jobRecordService.create(new JobRecord(ROOT_ID, "root.step", "external", ROOT_ID, JobState.READY, false, false, false, false));
+    jobRecordService.delete(ROOT_ID);
+    Assert.assertNull(jobRecordService.find("root.step", ROOT_ID));
+    Assert.assertEquals(jobRecordService.count(ROOT_ID), 0);
+  }
+  
+}
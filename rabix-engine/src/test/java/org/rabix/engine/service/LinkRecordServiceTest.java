@@ -0,0 +1,41 @@
+package org.rabix.engine.service;
+
+import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.rabix.engine.model.LinkRecord;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class LinkRecordServiceTest {
+
+  private static final String ROOT_ID = "root-id";
+  
+  private LinkRecordService linkRecordService;
+  
+  @BeforeMethod
+  public void before() {
+    linkRecordService = new LinkRecordService();
+  }
+  
+  @Test
+  public void testScatterLinks() {
+    for (int i = 1; i <= 10000; i++) {
+      String jobNId = "root.step." + i;
+      linkRecordService.create(new LinkRecord(ROOT_ID, "root.step", "input", LinkPortType.INPUT, jobNId, "input", LinkPortType.INPUT, 1));
+      linkRecordService.create(new LinkRecord(ROOT_ID, jobNId, "output", LinkPortType.OUTPUT, "root.step", "output", LinkPortType.OUTPUT, null));
+    }
+    Assert.assertEquals(linkRecordService.findBySource("root.step", "input", ROOT_ID).size(), 10000);
+    Assert.assertEquals(linkRecordService.findBySourceAndDestinationType("root.step", "input", LinkPortType.INPUT, ROOT_ID).size(), 10000);
+    Assert.assertTrue(linkRecordService.findBySourceAndDestinationType("root.step", "input", LinkPortType.OUTPUT, ROOT_ID).isEmpty());
+    Assert.assertEquals(linkRecordService.findBySourceAndSourceType("root.step.42", LinkPortType.OUTPUT, ROOT_ID).size(), 1);
+    Assert.assertTrue(linkRecordService.findBySourceAndSourceType("root.step.42", LinkPortType.INPUT, ROOT_ID).isEmpty());
+    Assert.assertEquals(linkRecordService.findBySourceJobId("root.step.42", ROOT_ID).size(), 1);
+    Assert.assertEquals(linkRecordService.findByDestination("root.step", "output", ROOT_ID).size(), 10000);
+    Assert.assertEquals(linkRecordService.find(ROOT_ID).size(), 20000);
+    
+    linkRecordService.delete(ROOT_ID);
+    Assert.assertTrue(linkRecordService.find(ROOT_ID).isEmpty());
+  }
+  
+}
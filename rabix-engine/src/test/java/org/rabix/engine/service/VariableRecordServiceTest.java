@@ -0,0 +1,50 @@
+package org.rabix.engine.service;
+
+import java.util.List;
+
+import org.rabix.bindings.model.dag.DAGLinkPort.LinkPortType;
+import org.rabix.engine.model.VariableRecord;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class VariableRecordServiceTest {
+
+  private static final String ROOT_ID = "root-id";
+  
+  private VariableRecordService variableRecordService;
+  
+  @BeforeMethod
+  public void before() {
+    variableRecordService = new VariableRecordService();
+  }
+  
+  @Test
+  public void testFindByCompositeKey() {
+    for (int i = 0; i < 10000; i++) {
+      String jobId = "root.step." + i;
+      variableRecordService.create(new VariableRecord(ROOT_ID, jobId, "input", LinkPortType.INPUT, i, null));
+      variableRecordService.create(new VariableRecord(ROOT_ID, jobId, "output", LinkPortType.OUTPUT, null, null));
+      variableRecordService.create(new VariableRecord(ROOT_ID, jobId, "output", LinkPortType.INPUT, null, null));
+    }
+    VariableRecord variable = variableRecordService.find("root.step.9999", "input", LinkPortType.INPUT, ROOT_ID);
+    Assert.assertEquals(variable.getValue(), 9999);
+    Assert.assertNull(variableRecordService.find("root.step.9999", "input", LinkPortType.OUTPUT, ROOT_ID));
+    
+    Assert.assertEquals(variableRecordService.find("root.step.1", "output", ROOT_ID).size(), 2);
+    
+    List<VariableRecord> inputs = variableRecordService.find("root.step.1", LinkPortType.INPUT, ROOT_ID);
+    Assert.assertEquals(inputs.size(), 2);
+    Assert.assertEquals(inputs.get(0).getPortId(), "input");
+    Assert.assertEquals(variableRecordService.find(ROOT_ID).size(), 30000);
+  }
+  
+  @Test
+  public void testUpdate() {
+    variableRecordService.create(new VariableRecord(ROOT_ID, "root.step", "input", LinkPortType.INPUT, null, null));
+    variableRecordService.update(new VariableRecord(ROOT_ID, "root.step", "input", LinkPortType.INPUT, "value", null));
+    Assert.assertEquals(variableRecordService.find("root.step", "input", LinkPortType.INPUT, ROOT_ID).getValue(), "value");
+  }
+  
+}
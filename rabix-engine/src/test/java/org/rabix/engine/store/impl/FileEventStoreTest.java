@@ -0,0 +1,159 @@
+package org.rabix.engine.store.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.rabix.bindings.model.dag.DAGLinkPort;
+import org.rabix.bindings.model.dag.DAGNode;
+import org.rabix.engine.event.Event;
+import org.rabix.engine.event.Event.EventType;
+import org.rabix.engine.event.impl.InitEvent;
+import org.rabix.engine.event.impl.JobStatusEvent;
+import org.rabix.engine.service.JobRecordService.JobState;
+import org.rabix.engine.store.EventStoreException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class FileEventStoreTest {
+
+  private File directory;
+
+  @BeforeMethod
+  public void setUp() {
+    directory = new File(System.getProperty("java.io.tmpdir"), "eventstore-" + System.nanoTime());
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testRecovery() throws EventStoreException {
+    FileEventStore store = new FileEventStore(directory, true, 1000);
+    Assert.assertTrue(store.load().isEmpty());
+    store.append(initEvent("root1"));
+    store.append(initEvent("root2"));
+    store.append(new JobStatusEvent("root1.a", "root1", JobState.RUNNING, null, null));
+    store.append(new JobStatusEvent("root2.a", "root2", JobState.COMPLETED, Collections.<String, Object>singletonMap("out", 1), null));
+    store.finished("root2");
+    // events of finished (or unknown) contexts are ignored
+    store.append(new JobStatusEvent("root2.b", "root2", JobState.COMPLETED, null, null));
+    store.close();
+
+    store = new FileEventStore(directory, true, 1000);
+    List<Event> events = store.load();
+    Assert.assertEquals(events.size(), 2);
+    Assert.assertEquals(events.get(0).getType(), EventType.INIT);
+    Assert.assertEquals(events.get(0).getContextId(), "root1");
+    Assert.assertEquals(((InitEvent) events.get(0)).getNode().getId(), "root1");
+    Assert.assertEquals(((InitEvent) events.get(0)).getValue().get("x"), 1);
+    Assert.assertEquals(((JobStatusEvent) events.get(1)).getJobId(), "root1.a");
+    Assert.assertEquals(((JobStatusEvent) events.get(1)).getState(), JobState.RUNNING);
+    Assert.assertTrue(store.load().isEmpty());
+    store.close();
+  }
+
+  @Test
+  public void testSnapshot() throws EventStoreException {
+    FileEventStore store = new FileEventStore(directory, false, 10);
+    for (int i = 0; i < 20; i++) {
+      store.append(initEvent("root" + i));
+      store.append(new JobStatusEvent("job", "root" + i, JobState.RUNNING, null, null));
+      if (i % 2 == 0) {
+        store.finished("root" + i);
+      }
+    }
+    store.close();
+
+    List<String> logs = new ArrayList<>();
+    for (String name : directory.list()) {
+      if (name.startsWith("events-")) {
+        logs.add(name);
+      }
+    }
+    Assert.assertEquals(logs.size(), 1);
+
+    store = new FileEventStore(directory, false, 10);
+    List<Event> events = store.load();
+    Assert.assertEquals(events.size(), 20);
+    Assert.assertEquals(events.get(0).getContextId(), "root1");
+    Assert.assertEquals(events.get(1).getContextId(), "root1");
+    store.close();
+  }
+
+  @Test
+  public void testTornWrite() throws EventStoreException, IOException {
+    FileEventStore store = new FileEventStore(directory, true, 1000);
+    store.append(initEvent("root1"));
+    store.close();
+
+    for (String name : directory.list()) {
+      if (name.startsWith("events-")) {
+        try (FileOutputStream stream = new FileOutputStream(new File(directory, name), true)) {
+          stream.write("{\"type\":\"JOB_STAT".getBytes("UTF-8"));
+        }
+      }
+    }
+    store = new FileEventStore(directory, true, 1000);
+    Assert.assertEquals(store.load().size(), 1);
+    store.close();
+  }
+
+  @Test
+  public void testAppendWhileClosing() throws Exception {
+    final FileEventStore store = new FileEventStore(directory, true, 1000);
+    store.append(initEvent("root1"));
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            while (true) {
+              store.append(new JobStatusEvent("root1.a", "root1", JobState.RUNNING, null, null));
+            }
+          } catch (EventStoreException e) {
+            // closed
+          }
+        }
+      });
+      thread.setDaemon(true);
+      thread.start();
+      threads.add(thread);
+    }
+    Thread.sleep(100);
+    store.close();
+
+    for (Thread thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+      Assert.assertFalse(thread.isAlive(), "Append is blocked after close");
+    }
+    try {
+      store.append(initEvent("root2"));
+      Assert.fail("Append after close should fail");
+    } catch (EventStoreException e) {
+      // expected
+    }
+  }
+
+  private InitEvent initEvent(String rootId) {
+    Map<String, Object> value = new HashMap<>();
+    value.put("x", 1);
+    DAGNode node = new DAGNode(rootId, new ArrayList<DAGLinkPort>(), new ArrayList<DAGLinkPort>(), null, null, null);
+    return new InitEvent(null, rootId, node, value);
+  }
+
+}
@@ -26,6 +26,7 @@ import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.filter.LoggingFilter;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.servlet.ServletContainer;
+import org.rabix.bindings.expression.javascript.JavascriptEngine;
 import org.rabix.bindings.model.Job;
 import org.rabix.common.config.ConfigModule;
 import org.rabix.common.service.download.DownloadService;
@@ -82,6 +83,7 @@ public class ServerBuilder {
     BootstrapUtils.install(locator);
 
     Configuration configuration = injector.getInstance(Configuration.class);
+    JavascriptEngine.configure(configuration);
     
     int enginePort = configuration.getInt(EXECUTOR_PORT_KEY);
     Server server = new Server(enginePort);
@@ -2,7 +2,7 @@ package org.rabix.executor;
 
 import org.rabix.common.config.ConfigModule;
 import org.rabix.common.retry.RetryInterceptorModule;
-import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientLockDecorator;
+import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientDecorator;
 import org.rabix.executor.execution.JobHandlerCommandDispatcher;
 import org.rabix.executor.handler.JobHandler;
 import org.rabix.executor.handler.JobHandlerFactory;
@@ -38,7 +38,7 @@ public class ExecutorModule extends AbstractModule {
     install(new RetryInterceptorModule());
     install(new FactoryModuleBuilder().implement(JobHandler.class, JobHandlerImpl.class).build(JobHandlerFactory.class));
 
-    bind(DockerClientLockDecorator.class).in(Scopes.SINGLETON);
+    bind(DockerClientDecorator.class).in(Scopes.SINGLETON);
 
     bind(JobFitter.class).to(JobFitterImpl.class).in(Scopes.SINGLETON);
     bind(JobDataService.class).to(JobDataServiceImpl.class).in(Scopes.SINGLETON);
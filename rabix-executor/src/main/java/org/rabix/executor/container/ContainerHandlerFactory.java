@@ -8,13 +8,13 @@ import org.rabix.executor.config.DockerConfigation;
 import org.rabix.executor.config.StorageConfiguration;
 import org.rabix.executor.container.impl.CompletedContainerHandler;
 import org.rabix.executor.container.impl.DockerContainerHandler;
-import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientLockDecorator;
+import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientDecorator;
 import org.rabix.executor.container.impl.LocalContainerHandler;
 import org.rabix.executor.status.ExecutorStatusCallback;
 
 public class ContainerHandlerFactory {
 
-  public static ContainerHandler create(Job job, Requirement requirement, DockerClientLockDecorator dockerClient, ExecutorStatusCallback statusCallback, StorageConfiguration storageConfig, DockerConfigation dockerConfig) throws ContainerException {
+  public static ContainerHandler create(Job job, Requirement requirement, DockerClientDecorator dockerClient, ExecutorStatusCallback statusCallback, StorageConfiguration storageConfig, DockerConfigation dockerConfig) throws ContainerException {
     if (requirement instanceof DockerContainerRequirement) {
       return new DockerContainerHandler(job, (DockerContainerRequirement) requirement, storageConfig, dockerConfig, statusCallback, dockerClient);
     }
@@ -10,6 +10,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -17,11 +18,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
+import org.rabix.bindings.BindingException;
 import org.rabix.bindings.Bindings;
 import org.rabix.bindings.BindingsFactory;
 import org.rabix.bindings.mapper.FileMappingException;
@@ -46,6 +58,11 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.Optional;
 import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.spotify.docker.client.DefaultDockerClient;
 import com.spotify.docker.client.DockerCertificateException;
@@ -53,6 +70,8 @@ import com.spotify.docker.client.DockerCertificates;
 import com.spotify.docker.client.DockerClient;
 import com.spotify.docker.client.DockerClient.LogsParam;
 import com.spotify.docker.client.DockerException;
+import com.spotify.docker.client.EventStream;
+import com.spotify.docker.client.ImageNotFoundException;
 import com.spotify.docker.client.LogMessage;
 import com.spotify.docker.client.LogStream;
 import com.spotify.docker.client.messages.AuthConfig;
@@ -61,6 +80,7 @@ import com.spotify.docker.client.messages.ContainerCreation;
 import com.spotify.docker.client.messages.ContainerExit;
 import com.spotify.docker.client.messages.ContainerInfo;
 import com.spotify.docker.client.messages.ContainerState;
+import com.spotify.docker.client.messages.Event;
 import com.spotify.docker.client.messages.HostConfig;
 
 /**
@@ -81,15 +101,13 @@ public class DockerContainerHandler implements ContainerHandler {
   private static final String LATEST = "latest";
   
   private String containerId;
-  private DockerClientLockDecorator dockerClient;
+  private DockerClientDecorator dockerClient;
 
   private final Job job;
   private final DockerContainerRequirement dockerResource;
 
   private final File workingDir;
 
-  private boolean isConfigAuthEnabled;
-
   private Integer overrideResultStatus = null;
 
   private StorageConfiguration storageConfig;
@@ -97,34 +115,21 @@ public class DockerContainerHandler implements ContainerHandler {
   
   private String commandLine;
   
-  public DockerContainerHandler(Job job, DockerContainerRequirement dockerResource, StorageConfiguration storageConfig, DockerConfigation dockerConfig, ExecutorStatusCallback statusCallback, DockerClientLockDecorator dockerClient) throws ContainerException {
+  public DockerContainerHandler(Job job, DockerContainerRequirement dockerResource, StorageConfiguration storageConfig, DockerConfigation dockerConfig, ExecutorStatusCallback statusCallback, DockerClientDecorator dockerClient) throws ContainerException {
     this.job = job;
     this.dockerClient = dockerClient;
     this.dockerResource = dockerResource;
     this.statusCallback = statusCallback;
     this.storageConfig = storageConfig;
     this.workingDir = storageConfig.getWorkingDir(job);
-    this.isConfigAuthEnabled = dockerConfig.isDockerConfigAuthEnabled();
   }
 
   private void pull(String image) throws ContainerException {
-    logger.debug("Pulling docker image");
-    VerboseLogger.log(String.format("Pulling docker image %s", image));
+    logger.debug("Pulling docker image {}", image);
 
     try {
       statusCallback.onContainerImagePullStarted(job, image);
-      if (isConfigAuthEnabled) {
-        dockerClient.pull(image);
-      } else {
-        try {
-          String serverAddress = extractServerName(image);
-          AuthConfig authConfig = AuthConfig.fromDockerConfig(serverAddress).build();
-          this.dockerClient.pull(image, authConfig);
-        } catch (IOException | RuntimeException e) {
-          logger.debug("Can't find docker config file", e);
-          dockerClient.pull(image);
-        }
-      }
+      dockerClient.pull(image);
       statusCallback.onContainerImagePullCompleted(job, image);
     } catch (DockerException | InterruptedException e) {
       logger.error("Failed to pull " + image, e);
@@ -140,14 +145,31 @@ public class DockerContainerHandler implements ContainerHandler {
     }
   }
 
-  private String extractServerName(String image) {
+  private static String extractServerName(String image) {
     if (StringUtils.countMatches(image, "/") <= 1) {
       return dockerHubServer;
     }
     return image.substring(0, image.indexOf("/"));
   }
   
-  private String checkTagOrAddLatest(String image) {
+  /**
+   * Docker image of the Job (null if the Job doesn't run in Docker)
+   */
+  public static String getDockerImage(Job job) throws BindingException {
+    Bindings bindings = BindingsFactory.create(job);
+    List<Requirement> combinedRequirements = new ArrayList<>();
+    combinedRequirements.addAll(bindings.getHints(job));
+    combinedRequirements.addAll(bindings.getRequirements(job));
+    for (Requirement requirement : combinedRequirements) {
+      if (requirement.getClass().equals(DockerContainerRequirement.class)) {
+        String dockerPull = ((DockerContainerRequirement) requirement).getDockerPull();
+        return dockerPull != null ? checkTagOrAddLatest(dockerPull) : null;
+      }
+    }
+    return null;
+  }
+
+  private static String checkTagOrAddLatest(String image) {
     return image.contains(TAG_SEPARATOR) ? image : image + TAG_SEPARATOR + LATEST;
   }
 
@@ -223,6 +245,7 @@ public class DockerContainerHandler implements ContainerHandler {
         throw new ContainerException("Failed to create Docker container.");
       }
       containerId = creation.id();
+      dockerClient.watch(containerId, job.getId(), job.getRootId());
       try {
         dockerClient.startContainer(containerId);
       } catch (DockerException | InterruptedException e) {
@@ -264,6 +287,8 @@ public class DockerContainerHandler implements ContainerHandler {
     } catch (Exception e) {
       logger.error("Docker container " + containerId + " failed to stop", e);
       throw new ContainerException("Docker container " + containerId + " failed to stop");
+    } finally {
+      dockerClient.unwatch(containerId);
     }
   }
 
@@ -290,6 +315,10 @@ public class DockerContainerHandler implements ContainerHandler {
     if (overrideResultStatus != null) {
       return false;
     }
+    Boolean exited = dockerClient.isExited(containerId);
+    if (exited != null) {
+      return !exited;
+    }
     ContainerInfo containerInfo;
     try {
       containerInfo = dockerClient.inspectContainer(containerId);
@@ -311,6 +340,7 @@ public class DockerContainerHandler implements ContainerHandler {
     try {
       containerInfo = dockerClient.inspectContainer(containerId);
       ContainerState containerState = containerInfo.state();
+      dockerClient.unwatch(containerId);
       return containerState.exitCode();
     } catch (Exception e) {
       logger.error("Failed to query docker. Container ID: " + containerId, e);
@@ -386,7 +416,12 @@ public class DockerContainerHandler implements ContainerHandler {
     }
   }
 
-  public static class DockerClientLockDecorator {
+  /**
+   * Thread safe Docker client. Lifecycle calls run concurrently, image pulls run on a bounded pool (concurrent pulls of
+   * the same image share one pull, images known to be present locally are not pulled) and container exits are read from
+   * the Docker events stream.
+   */
+  public static class DockerClientDecorator {
 
     public final static int RETRY_TIMES = 5;
     
@@ -399,67 +434,387 @@ public class DockerContainerHandler implements ContainerHandler {
     public static final String DOCKER_HOST_ENVVAR = "DOCKER_HOST";
     public static final String DOCKER_HOST_CONFIG = "docker.host";
     public static final String DOCKER_CERT_PATH_CONFIG = "docker.certpath";
+    public static final String DOCKER_PULL_THREADS_CONFIG = "docker.pull.threads";
+    public static final String DOCKER_PULL_ALWAYS_CONFIG = "docker.pull.always";
     public static final String DEFAULT_DOCKER_HOST = "unix:///var/run/docker.sock";
     
     private static final String UNIX_SCHEME = "unix";
+    private static final String DIE_EVENT = "die";
     
     private DockerClient dockerClient;
 
+    private final boolean pullAlways;
+    private final boolean isConfigAuthEnabled;
+
+    private final ExecutorService pullExecutor;
+    private final ConcurrentMap<String, ListenableFutureTask<Void>> pulls = new ConcurrentHashMap<>();
+    private final Set<String> localImages = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ConcurrentMap<String, PullStatistics> pullStatistics = new ConcurrentHashMap<>();
+
+    private final ExecutorService eventExecutor;
+    private final AtomicBoolean eventsStarted = new AtomicBoolean(false);
+    private volatile boolean eventsConnected = false;
+    private final ConcurrentMap<String, Watch> watches = new ConcurrentHashMap<>();
+    private final List<ExitListener> exitListeners = new CopyOnWriteArrayList<>();
+
     @Inject
-    public DockerClientLockDecorator(Configuration configuration) throws ContainerException {
+    public DockerClientDecorator(Configuration configuration) throws ContainerException {
       this.dockerClient = createDockerClient(configuration);
+      this.pullAlways = configuration.getBoolean(DOCKER_PULL_ALWAYS_CONFIG, false);
+      this.isConfigAuthEnabled = new DockerConfigation(configuration).isDockerConfigAuthEnabled();
+      this.pullExecutor = Executors.newFixedThreadPool(configuration.getInt(DOCKER_PULL_THREADS_CONFIG, 2), daemonThreadFactory("DockerPull-Thread"));
+      this.eventExecutor = Executors.newSingleThreadExecutor(daemonThreadFactory("DockerEvents-Thread"));
     }
 
-    @Retry(times = RETRY_TIMES, methodTimeoutMillis = METHOD_TIMEOUT, exponentialBackoff = false, sleepTimeMillis = SLEEP_TIME)
-    public synchronized void pull(String image) throws DockerException, InterruptedException {
+    /**
+     * Makes sure the image is present locally. Images known to be present are not checked again (the image is pulled
+     * by {@link #fetch(String)} before the Job is started when pulls are forced) and concurrent calls for the same image
+     * share one check (and pull).
+     */
+    public void pull(String image) throws DockerException, InterruptedException {
       try {
-        dockerClient.pull(image);
-      } catch (Throwable e) {
-        VerboseLogger.log("Failed to pull docker image. Retrying in " + TimeUnit.MILLISECONDS.toSeconds(SLEEP_TIME) + " seconds");
-        throw e;
+        fetch(image, false).get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof DockerException) {
+          throw (DockerException) e.getCause();
+        }
+        throw new DockerException(e.getCause());
       }
-        
     }
-    
+
+    /**
+     * Starts fetching the image in background (if it's not known to be present). Failures are only logged, the image is
+     * pulled again when the Job starts.
+     */
+    public void prefetch(final String image) {
+      if (pullAlways) {
+        return;
+      }
+      Futures.addCallback(fetch(image, false), new FutureCallback<Void>() {
+        @Override
+        public void onSuccess(Void result) {
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          logger.warn("Failed to prefetch docker image " + image, t);
+        }
+      }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Returns shared check and pull of the image. The future completes once the image is present locally.
+     */
+    public ListenableFuture<Void> fetch(String image) {
+      return fetch(image, pullAlways);
+    }
+
+    private ListenableFuture<Void> fetch(final String image, final boolean always) {
+      if (!always && localImages.contains(image)) {
+        return Futures.immediateFuture(null);
+      }
+      ListenableFutureTask<Void> pull = pulls.get(image);
+      if (pull != null) {
+        logger.debug("Image {} is already being pulled.", image);
+        return pull;
+      }
+      final ListenableFutureTask<Void> task = ListenableFutureTask.create(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          if (always || !exists(image)) {
+            long start = System.currentTimeMillis();
+            doPull(image, authConfig(image));
+            recordPull(image, System.currentTimeMillis() - start);
+          }
+          localImages.add(image);
+          return null;
+        }
+      });
+      pull = pulls.putIfAbsent(image, task);
+      if (pull != null) {
+        return pull;
+      }
+      task.addListener(new Runnable() {
+        @Override
+        public void run() {
+          pulls.remove(image, task);
+        }
+      }, MoreExecutors.directExecutor());
+      pullExecutor.execute(task);
+      return task;
+    }
+
+    /**
+     * Pulls the image (called from the pull pool)
+     */
     @Retry(times = RETRY_TIMES, methodTimeoutMillis = METHOD_TIMEOUT, exponentialBackoff = false, sleepTimeMillis = SLEEP_TIME)
-    public synchronized void pull(String image, AuthConfig authConfig) throws DockerException, InterruptedException {
+    public void doPull(String image, AuthConfig authConfig) throws DockerException, InterruptedException {
+      VerboseLogger.log(String.format("Pulling docker image %s", image));
       try {
-        dockerClient.pull(image, authConfig);
+        if (authConfig != null) {
+          dockerClient.pull(image, authConfig);
+        } else {
+          dockerClient.pull(image);
+        }
       } catch (Throwable e) {
         VerboseLogger.log("Failed to pull docker image. Retrying in " + TimeUnit.MILLISECONDS.toSeconds(SLEEP_TIME) + " seconds");
         throw e;
       }
     }
+
+    private boolean exists(String image) throws InterruptedException {
+      try {
+        dockerClient.inspectImage(image);
+        return true;
+      } catch (ImageNotFoundException e) {
+        return false;
+      } catch (DockerException e) {
+        logger.debug("Failed to inspect image " + image, e);
+        return false;
+      }
+    }
+
+    /**
+     * Credentials from Docker config file (null if authentication is configured on the client or there is no config)
+     */
+    private AuthConfig authConfig(String image) {
+      if (isConfigAuthEnabled) {
+        return null;
+      }
+      try {
+        return AuthConfig.fromDockerConfig(extractServerName(image)).build();
+      } catch (IOException | RuntimeException e) {
+        logger.debug("Can't find docker config file", e);
+        return null;
+      }
+    }
+
+    private void recordPull(String image, long millis) {
+      PullStatistics statistics = pullStatistics.get(image);
+      if (statistics == null) {
+        statistics = new PullStatistics();
+        PullStatistics existing = pullStatistics.putIfAbsent(image, statistics);
+        if (existing != null) {
+          statistics = existing;
+        }
+      }
+      statistics.add(millis);
+      logger.info("Docker image {} pulled in {} ms.", image, millis);
+    }
+
+    /**
+     * Pull times per image
+     */
+    public Map<String, PullStatistics> getPullStatistics() {
+      return Collections.unmodifiableMap(pullStatistics);
+    }
+
+    /**
+     * Number of pulls and pull times of an image
+     */
+    public static class PullStatistics {
+      private int count;
+      private long totalMillis;
+      private long lastMillis;
+
+      private synchronized void add(long millis) {
+        count++;
+        totalMillis += millis;
+        lastMillis = millis;
+      }
+
+      public synchronized int getCount() {
+        return count;
+      }
+
+      public synchronized long getTotalMillis() {
+        return totalMillis;
+      }
+
+      public synchronized long getLastMillis() {
+        return lastMillis;
+      }
+
+      @Override
+      public synchronized String toString() {
+        return "PullStatistics [count=" + count + ", totalMillis=" + totalMillis + ", lastMillis=" + lastMillis + "]";
+      }
+    }
     
     @Retry(times = RETRY_TIMES, methodTimeoutMillis = METHOD_TIMEOUT, exponentialBackoff = true)
-    public synchronized ContainerCreation createContainer(ContainerConfig containerConfig) throws DockerException, InterruptedException {
-      return dockerClient.createContainer(containerConfig);
+    public ContainerCreation createContainer(ContainerConfig containerConfig) throws DockerException, InterruptedException {
+      try {
+        return dockerClient.createContainer(containerConfig);
+      } catch (ImageNotFoundException e) {
+        // image has been removed after it was cached
+        localImages.remove(containerConfig.image());
+        pull(containerConfig.image());
+        return dockerClient.createContainer(containerConfig);
+      }
     }
     
     @Retry(times = RETRY_TIMES, methodTimeoutMillis = METHOD_TIMEOUT, exponentialBackoff = true)
-    public synchronized void startContainer(String containerId) throws DockerException, InterruptedException {
+    public void startContainer(String containerId) throws DockerException, InterruptedException {
       dockerClient.startContainer(containerId);
     }
     
     @Retry(times = RETRY_TIMES, methodTimeoutMillis = METHOD_TIMEOUT, exponentialBackoff = true)
-    public synchronized void stopContainer(String containerId, int timeToWait) throws DockerException, InterruptedException {
+    public void stopContainer(String containerId, int timeToWait) throws DockerException, InterruptedException {
       dockerClient.stopContainer(containerId, timeToWait);
     }
     
     @Retry(times = RETRY_TIMES, methodTimeoutMillis = METHOD_TIMEOUT, exponentialBackoff = true)
-    public synchronized ContainerInfo inspectContainer(String containerId) throws DockerException, InterruptedException {
+    public ContainerInfo inspectContainer(String containerId) throws DockerException, InterruptedException {
       return dockerClient.inspectContainer(containerId);
     }
     
     @Retry(times = RETRY_TIMES, methodTimeoutMillis = METHOD_TIMEOUT, exponentialBackoff = true)
-    public synchronized LogStream logs(String containerId, LogsParam... params) throws DockerException, InterruptedException {
+    public LogStream logs(String containerId, LogsParam... params) throws DockerException, InterruptedException {
       return dockerClient.logs(containerId, params);
     }
     
     @Retry(times = RETRY_TIMES, methodTimeoutMillis = METHOD_TIMEOUT, exponentialBackoff = true)
-    public synchronized ContainerExit waitContainer(String containerId) throws DockerException, InterruptedException {
+    public ContainerExit waitContainer(String containerId) throws DockerException, InterruptedException {
       return dockerClient.waitContainer(containerId);
     }
+
+    /**
+     * Starts watching exit of the container. Should be called before the container is started.
+     */
+    public void watch(String containerId, String jobId, String contextId) {
+      watches.put(containerId, new Watch(jobId, contextId));
+      if (eventsStarted.compareAndSet(false, true)) {
+        eventExecutor.execute(new EventReader());
+      }
+    }
+
+    /**
+     * Stops watching exit of the container
+     */
+    public void unwatch(String containerId) {
+      watches.remove(containerId);
+    }
+
+    /**
+     * Has watched container exited? Null if it's not known (container is not watched or events are not available).
+     */
+    public Boolean isExited(String containerId) {
+      Watch watch = watches.get(containerId);
+      if (watch == null || !eventsConnected) {
+        return null;
+      }
+      return watch.exited;
+    }
+
+    /**
+     * Registers listener that is notified when a watched container exits
+     */
+    public void addExitListener(ExitListener listener) {
+      exitListeners.add(listener);
+    }
+
+    /**
+     * Container exit listener
+     */
+    public static interface ExitListener {
+
+      /**
+       * Called when container of the Job exits
+       */
+      void onExit(String jobId, String contextId);
+
+    }
+
+    private void exited(String containerId) {
+      Watch watch = watches.get(containerId);
+      if (watch == null || watch.exited) {
+        return;
+      }
+      watch.exited = true;
+      for (ExitListener listener : exitListeners) {
+        try {
+          listener.onExit(watch.jobId, watch.contextId);
+        } catch (RuntimeException e) {
+          logger.error("Failed to notify exit of container " + containerId, e);
+        }
+      }
+    }
+
+    /**
+     * Reads Docker events and marks watched containers as exited. Events can be missed while the stream is not
+     * connected, so watched containers are inspected after every (re)connect.
+     */
+    private class EventReader implements Runnable {
+      @Override
+      public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+          EventStream eventStream = null;
+          try {
+            eventStream = dockerClient.events();
+            for (String containerId : watches.keySet()) {
+              ContainerInfo containerInfo = dockerClient.inspectContainer(containerId);
+              if (isFinished(containerInfo.state())) {
+                exited(containerId);
+              }
+            }
+            eventsConnected = true;
+            while (eventStream.hasNext()) {
+              Event event = eventStream.next();
+              if (DIE_EVENT.equals(event.status()) && event.id() != null) {
+                exited(event.id());
+              }
+            }
+          } catch (InterruptedException e) {
+            return;
+          } catch (Exception e) {
+            logger.debug("Docker events stream closed. Reconnecting.", e);
+          } finally {
+            eventsConnected = false;
+            if (eventStream != null) {
+              eventStream.close();
+            }
+          }
+          try {
+            Thread.sleep(SLEEP_TIME);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      }
+    }
+
+    /**
+     * Has container finished? Containers are watched before they are started and Docker reports zero time
+     * (0001-01-01) instead of null for containers that haven't started or finished yet.
+     */
+    private static boolean isFinished(ContainerState containerState) {
+      Date finishedAt = containerState.finishedAt();
+      return !containerState.running() && finishedAt != null && finishedAt.getTime() > 0;
+    }
+
+    private static class Watch {
+      private final String jobId;
+      private final String contextId;
+      private volatile boolean exited = false;
+
+      Watch(String jobId, String contextId) {
+        this.jobId = jobId;
+        this.contextId = contextId;
+      }
+    }
+
+    private static ThreadFactory daemonThreadFactory(final String namePrefix) {
+      return new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, namePrefix + "-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+    }
     
     public static DockerClient createDockerClient(Configuration configuration) throws ContainerException {
       DockerClient docker = null;
@@ -9,11 +9,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -40,9 +35,6 @@ public class LocalContainerHandler implements ContainerHandler {
   private Job job;
   private File workingDir;
 
-  private Future<Integer> processFuture;
-  private ExecutorService executorService = Executors.newSingleThreadExecutor();
-
   private Process process;
   private String commandLine;
   
@@ -67,7 +59,7 @@ public class LocalContainerHandler implements ContainerHandler {
         }
       }).build();
 
-      final ProcessBuilder processBuilder = new ProcessBuilder();
+      ProcessBuilder processBuilder = new ProcessBuilder();
       List<Requirement> combinedRequirements = new ArrayList<>();
       combinedRequirements.addAll(bindings.getHints(job));
       combinedRequirements.addAll(bindings.getRequirements(job));
@@ -109,14 +101,7 @@ public class LocalContainerHandler implements ContainerHandler {
       processBuilder.directory(workingDir);
       
       VerboseLogger.log(String.format("Running command line: %s", commandLine));
-      processFuture = executorService.submit(new Callable<Integer>() {
-        @Override
-        public Integer call() throws Exception {
-          process = processBuilder.start();
-          process.waitFor();
-          return process.exitValue();
-        }
-      });
+      process = processBuilder.start();
       logger.info("Local container has started.");
     } catch (Exception e) {
       logger.error("Failed to start application", e);
@@ -136,30 +121,35 @@ public class LocalContainerHandler implements ContainerHandler {
 
   @Override
   public synchronized void stop() throws ContainerException {
-    if (processFuture == null) {
+    if (process == null) {
       return;
     }
-    processFuture.cancel(true);
+    process.destroy();
   }
 
   @Override
   public synchronized boolean isStarted() throws ContainerException {
-    return processFuture != null;
+    return process != null;
   }
 
   @Override
   public synchronized boolean isRunning() throws ContainerException {
-    if (processFuture == null) {
+    if (process == null) {
+      return false;
+    }
+    try {
+      process.exitValue();
       return false;
+    } catch (IllegalThreadStateException e) {
+      return true;
     }
-    return !processFuture.isDone();
   }
 
   @Override
   public synchronized int getProcessExitStatus() throws ContainerException {
     try {
-      return processFuture.get();
-    } catch (InterruptedException | ExecutionException e) {
+      return process.waitFor();
+    } catch (InterruptedException e) {
       throw new ContainerException(e);
     }
   }
@@ -12,6 +12,7 @@ import org.rabix.common.engine.control.EngineControlMessage;
 import org.rabix.common.engine.control.EngineControlStopMessage;
 import org.rabix.executor.service.ExecutorService;
 import org.rabix.executor.service.FileService;
+import org.rabix.executor.service.JobFitter;
 import org.rabix.transport.backend.Backend;
 import org.rabix.transport.backend.HeartbeatInfo;
 import org.rabix.transport.mechanism.TransportPlugin;
@@ -38,6 +39,7 @@ public abstract class EngineStub<Q extends TransportQueue, B extends Backend, T
   
   protected FileService fileService;
   protected ExecutorService executorService;
+  protected JobFitter jobFitter;
   
   public void start() {
     transportPlugin.startReceiver(sendToBackendQueue, Job.class, new ReceiveCallback<Job>() {
@@ -78,11 +80,21 @@ public abstract class EngineStub<Q extends TransportQueue, B extends Backend, T
     scheduledHeartbeatService.scheduleAtFixedRate(new Runnable() {
       @Override
       public void run() {
-        transportPlugin.send(receiveFromBackendHeartbeatQueue, new HeartbeatInfo(backend.getId(), System.currentTimeMillis()));
+        transportPlugin.send(receiveFromBackendHeartbeatQueue, createHeartbeatInfo());
       }
     }, 0, 1, TimeUnit.SECONDS);
   }
 
+  /**
+   * Creates heartbeat with free resources (if tracked by {@link JobFitter})
+   */
+  private HeartbeatInfo createHeartbeatInfo() {
+    if (jobFitter == null) {
+      return new HeartbeatInfo(backend.getId(), System.currentTimeMillis());
+    }
+    return new HeartbeatInfo(backend.getId(), System.currentTimeMillis(), jobFitter.getAvailableCores(), jobFitter.getAvailableMemory());
+  }
+
   public void stop() {
     scheduledHeartbeatService.shutdown();
   }
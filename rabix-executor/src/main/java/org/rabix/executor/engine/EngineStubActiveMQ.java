@@ -2,6 +2,7 @@ package org.rabix.executor.engine;
 
 import org.apache.commons.configuration.Configuration;
 import org.rabix.executor.service.ExecutorService;
+import org.rabix.executor.service.JobFitter;
 import org.rabix.transport.backend.impl.BackendActiveMQ;
 import org.rabix.transport.mechanism.TransportPluginException;
 import org.rabix.transport.mechanism.impl.activemq.TransportPluginActiveMQ;
@@ -9,9 +10,10 @@ import org.rabix.transport.mechanism.impl.activemq.TransportQueueActiveMQ;
 
 public class EngineStubActiveMQ extends EngineStub<TransportQueueActiveMQ, BackendActiveMQ, TransportPluginActiveMQ> {
 
-  public EngineStubActiveMQ(BackendActiveMQ backendActiveMQ, ExecutorService executorService, Configuration configuration) throws TransportPluginException {
+  public EngineStubActiveMQ(BackendActiveMQ backendActiveMQ, ExecutorService executorService, JobFitter jobFitter, Configuration configuration) throws TransportPluginException {
     this.backend = backendActiveMQ;
     this.executorService = executorService;
+    this.jobFitter = jobFitter;
     this.transportPlugin = new TransportPluginActiveMQ(configuration);
     
     this.sendToBackendQueue = new TransportQueueActiveMQ(backendActiveMQ.getToBackendQueue());
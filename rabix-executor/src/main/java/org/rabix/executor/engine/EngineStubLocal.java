@@ -2,6 +2,7 @@ package org.rabix.executor.engine;
 
 import org.apache.commons.configuration.Configuration;
 import org.rabix.executor.service.ExecutorService;
+import org.rabix.executor.service.JobFitter;
 import org.rabix.transport.backend.impl.BackendLocal;
 import org.rabix.transport.mechanism.TransportPluginException;
 import org.rabix.transport.mechanism.impl.local.TransportPluginLocal;
@@ -9,9 +10,10 @@ import org.rabix.transport.mechanism.impl.local.TransportQueueLocal;
 
 public class EngineStubLocal extends EngineStub<TransportQueueLocal, BackendLocal, TransportPluginLocal> {
 
-  public EngineStubLocal(BackendLocal backendLocal, ExecutorService executorService, Configuration configuration) throws TransportPluginException {
+  public EngineStubLocal(BackendLocal backendLocal, ExecutorService executorService, JobFitter jobFitter, Configuration configuration) throws TransportPluginException {
     this.backend = backendLocal;
     this.executorService = executorService;
+    this.jobFitter = jobFitter;
     this.transportPlugin = new TransportPluginLocal(configuration);
     
     this.sendToBackendQueue = new TransportQueueLocal(BackendLocal.SEND_TO_BACKEND_QUEUE);
@@ -2,6 +2,7 @@ package org.rabix.executor.engine;
 
 import org.apache.commons.configuration.Configuration;
 import org.rabix.executor.service.ExecutorService;
+import org.rabix.executor.service.JobFitter;
 import org.rabix.transport.backend.impl.BackendRabbitMQ;
 import org.rabix.transport.backend.impl.BackendRabbitMQ.BackendConfiguration;
 import org.rabix.transport.backend.impl.BackendRabbitMQ.EngineConfiguration;
@@ -11,9 +12,10 @@ import org.rabix.transport.mechanism.impl.rabbitmq.TransportQueueRabbitMQ;
 
 public class EngineStubRabbitMQ extends EngineStub<TransportQueueRabbitMQ, BackendRabbitMQ, TransportPluginRabbitMQ> {
 
-  public EngineStubRabbitMQ(BackendRabbitMQ backendRabbitMQ, ExecutorService executorService, Configuration configuration) throws TransportPluginException {
+  public EngineStubRabbitMQ(BackendRabbitMQ backendRabbitMQ, ExecutorService executorService, JobFitter jobFitter, Configuration configuration) throws TransportPluginException {
     this.backend = backendRabbitMQ;
     this.executorService = executorService;
+    this.jobFitter = jobFitter;
     this.transportPlugin = new TransportPluginRabbitMQ(configuration);
     
     BackendConfiguration backendConfiguration = backendRabbitMQ.getBackendConfiguration();
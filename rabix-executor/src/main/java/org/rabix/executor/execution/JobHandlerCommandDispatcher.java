@@ -1,73 +1,125 @@
 package org.rabix.executor.execution;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
+import org.apache.commons.configuration.Configuration;
 import org.rabix.bindings.model.Job;
+import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientDecorator;
 import org.rabix.executor.engine.EngineStub;
 import org.rabix.executor.handler.JobHandlerFactory;
 import org.rabix.executor.model.JobData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+
 /**
  * Job execution command dispatcher.
+ *
+ * Commands of a job are executed one by one by its {@link JobHandlerRunnable} on a bounded pool shared by all jobs.
+ * Repeatable commands (status checks) are driven by a single shared scheduler, so the number of threads doesn't depend
+ * on the number of jobs. Exits of Docker containers are observed on the events stream and trigger status check
+ * immediately.
  */
 public class JobHandlerCommandDispatcher {
 
   private static final Logger logger = LoggerFactory.getLogger(JobHandlerCommandDispatcher.class);
 
+  public static final String THREADS_KEY = "executor.job_handler.threads";
+
   private final JobHandlerFactory jobHandlerFactory;
 
-  private final Map<String, Map<String, JobHandlerRunnable>> jobHandlerRunnables = new HashMap<>();
+  private final ConcurrentMap<String, Map<String, JobHandlerRunnable>> jobHandlerRunnables = new ConcurrentHashMap<>();
 
   private final ThreadFactory jobHandlerThreadFactory;
   private final ExecutorService jobHandlerThreadExecutor;
-  private final ScheduledExecutorService jobHandlerThreadCleanExecutor;
+  private final ScheduledExecutorService jobHandlerScheduler;
 
   @Inject
-  public JobHandlerCommandDispatcher(JobHandlerFactory jobHandlerFactory) {
+  public JobHandlerCommandDispatcher(JobHandlerFactory jobHandlerFactory, DockerClientDecorator dockerClient, Configuration configuration) {
     this.jobHandlerFactory = jobHandlerFactory;
     this.jobHandlerThreadFactory = buildJobHandlerThreadFactory();
-    this.jobHandlerThreadExecutor = Executors.newCachedThreadPool(jobHandlerThreadFactory);
-    this.jobHandlerThreadCleanExecutor = Executors.newScheduledThreadPool(1);
-    init();
-  }
 
-  /**
-   * Initializes dispatcher
-   */
-  private void init() {
-    scheduleCleaner();
+    int threads = configuration.getInt(THREADS_KEY, Math.max(8, 2 * Runtime.getRuntime().availableProcessors()));
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), jobHandlerThreadFactory);
+    executor.allowCoreThreadTimeOut(true);
+    this.jobHandlerThreadExecutor = executor;
+    this.jobHandlerScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    dockerClient.addExitListener(new DockerClientDecorator.ExitListener() {
+      @Override
+      public void onExit(String jobId, String contextId) {
+        notifyExit(jobId, contextId);
+      }
+    });
   }
 
   /**
-   * Dispatch commands to appropriate runnable threads
+   * Dispatch commands to appropriate runnables
    */
   public void dispatch(JobData jobData, JobHandlerCommand command, EngineStub<?,?,?> engineStub) {
+    JobHandlerRunnable jobHandlerRunnable;
     synchronized (jobHandlerRunnables) {
-      String contextId = jobData.getJob().getRootId();
-      JobHandlerRunnable jobHandlerRunnable = getJobs(contextId).get(jobData.getJob().getId());
+      final Job job = jobData.getJob();
+      final Map<String, JobHandlerRunnable> jobs = getJobs(job.getRootId());
+      jobHandlerRunnable = jobs.get(job.getId());
 
       if (jobHandlerRunnable == null) {
-        Job job = jobData.getJob();
-        jobHandlerRunnable = new JobHandlerRunnable(job.getId(), job.getRootId(), jobHandlerFactory.createHandler(job, engineStub));
-        getJobs(contextId).put(job.getId(), jobHandlerRunnable);
-        jobHandlerThreadExecutor.execute(jobHandlerRunnable);
+        final JobHandlerRunnable created = new JobHandlerRunnable(job.getId(), job.getRootId(), jobHandlerFactory.createHandler(job, engineStub), jobHandlerThreadExecutor, jobHandlerScheduler);
+        jobs.put(job.getId(), created);
+        Futures.addCallback(created.getDone(), new FutureCallback<Void>() {
+          @Override
+          public void onSuccess(Void result) {
+            remove(job, created);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            remove(job, created);
+          }
+        }, MoreExecutors.directExecutor());
+        jobHandlerRunnable = created;
         logger.info("JobHandlerRunnable created for {}.", job.getId());
       }
-      jobHandlerRunnable.addCommand(command);
+    }
+    jobHandlerRunnable.addCommand(command);
+  }
+
+  /**
+   * Runs scheduled status check of the Job now. Called when exit of the Job container is observed.
+   */
+  public void notifyExit(String jobId, String contextId) {
+    Map<String, JobHandlerRunnable> jobs = jobHandlerRunnables.get(contextId);
+    JobHandlerRunnable jobHandlerRunnable = jobs != null ? jobs.get(jobId) : null;
+    if (jobHandlerRunnable != null) {
+      jobHandlerRunnable.wakeUp();
+    }
+  }
+
+  private void remove(Job job, JobHandlerRunnable jobHandlerRunnable) {
+    synchronized (jobHandlerRunnables) {
+      Map<String, JobHandlerRunnable> jobs = jobHandlerRunnables.get(job.getRootId());
+      if (jobs != null && jobs.get(job.getId()) == jobHandlerRunnable) {
+        jobs.remove(job.getId());
+        if (jobs.isEmpty()) {
+          jobHandlerRunnables.remove(job.getRootId());
+        }
+        logger.debug("JobHandlerRunnable for context {} and job {} removed.", job.getRootId(), job.getId());
+      }
     }
   }
 
@@ -75,7 +127,7 @@ public class JobHandlerCommandDispatcher {
     synchronized (jobHandlerRunnables) {
       Map<String, JobHandlerRunnable> jobList = jobHandlerRunnables.get(contextId);
       if (jobList == null) {
-        jobList = new HashMap<>();
+        jobList = new ConcurrentHashMap<>();
         jobHandlerRunnables.put(contextId, jobList);
       }
       return jobList;
@@ -98,51 +150,4 @@ public class JobHandlerCommandDispatcher {
       }).build();
   }
 
-  /**
-   * Schedule cleaner thread that will go through the list of Job threads
-   */
-  private void scheduleCleaner() {
-    jobHandlerThreadCleanExecutor.scheduleWithFixedDelay(new Runnable() {
-      @Override
-      public void run() {
-        synchronized (jobHandlerRunnables) {
-          logger.debug("Cleaner thread is executing. There are {} runnable(s) in the pool.", jobHandlerRunnables.size());
-
-          List<Pair> stoppedIds = new ArrayList<>();
-          List<Pair> runningIds = new ArrayList<>();
-
-          for (Entry<String, Map<String, JobHandlerRunnable>> runnableEntry : jobHandlerRunnables.entrySet()) {
-            String contextId = runnableEntry.getKey();
-            for (Entry<String, JobHandlerRunnable> runnable : runnableEntry.getValue().entrySet()) {
-              String id = runnable.getKey();
-              JobHandlerRunnable thread = runnable.getValue();
-
-              if (thread.isStopped()) {
-                stoppedIds.add(new Pair(id, contextId));
-              } else {
-                runningIds.add(new Pair(id, contextId));
-              }
-            }
-          }
-
-          for (Pair stopped : stoppedIds) {
-            logger.debug("Cleaner thread removes JobHandlerRunnable for context {} and job {}.", stopped.contextId, stopped.jobId);
-            jobHandlerRunnables.get(stopped.contextId).remove(stopped.jobId);
-          }
-        }
-      }
-      
-      class Pair {
-        private String jobId;
-        private String contextId;
-        
-        public Pair(String jobId, String contextId) {
-          this.jobId = jobId;
-          this.contextId = contextId;
-        }
-      }
-
-    }, 1, 1, TimeUnit.MINUTES);
-  }
-  
 }
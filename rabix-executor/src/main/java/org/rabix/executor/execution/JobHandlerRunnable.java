@@ -1,7 +1,11 @@
 package org.rabix.executor.execution;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -10,88 +14,165 @@ import org.rabix.executor.handler.JobHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
 /**
- * Job execution thread runnable. It executes commands one by one in synchronous matter. 
+ * Job execution runnable. It executes commands one by one in synchronous matter.
+ *
+ * The runnable doesn't own a thread. It's submitted to the shared executor when commands are added and runs until the
+ * queue is empty. Repeatable commands are put back to the queue by the shared scheduler after their delay.
  */
 public class JobHandlerRunnable implements Runnable {
 
   private final static Logger logger = LoggerFactory.getLogger(JobHandlerRunnable.class);
 
-  private final static long DEFAULT_SLEEP_TIME = TimeUnit.SECONDS.toMillis(1);
-
   private final String jobId;
   private final String contextId;
   private final JobHandler jobHandler;
-  private final BlockingQueue<JobHandlerCommand> commands;
+  private final Queue<JobHandlerCommand> commands;
+
+  private final ExecutorService executor;
+  private final ScheduledExecutorService scheduler;
 
   private final AtomicBoolean stop = new AtomicBoolean(false);
+  private final AtomicBoolean submitted = new AtomicBoolean(false);
+  private final SettableFuture<Void> done = SettableFuture.create();
+
+  /**
+   * Scheduled repeat (guarded by this)
+   */
+  private ScheduledFuture<?> repeatFuture;
+  private JobHandlerCommand repeatCommand;
 
-  public JobHandlerRunnable(String jobId, String contextId, JobHandler jobHandler) {
+  public JobHandlerRunnable(String jobId, String contextId, JobHandler jobHandler, ExecutorService executor, ScheduledExecutorService scheduler) {
     this.jobId = jobId;
     this.contextId = contextId;
     this.jobHandler = jobHandler;
-    this.commands = new LinkedBlockingQueue<>();
+    this.executor = executor;
+    this.scheduler = scheduler;
+    this.commands = new ConcurrentLinkedQueue<>();
   }
 
   @Override
   public void run() {
-    logger.info("JobHandlerRunnable {} started.", Thread.currentThread().getName());
-
-    long sleepTime = DEFAULT_SLEEP_TIME;
-    
-    while (!isStopped()) {
-      try {
-        JobHandlerCommand command = commands.poll();
-        if (command == null) {
-          logger.debug("No active commands. Sleep for {}", sleepTime);
-          Thread.sleep(sleepTime);
-          continue;
-        }
+    try {
+      JobHandlerCommand command;
+      while (!isStopped() && (command = commands.poll()) != null) {
         logger.debug("Command {} found. Start execution.", command);
 
         Repeat repeat = command.getRepeat();
         if (repeat != null) {
-          logger.debug("Command {} is repeatable. Delay and put it back to queue.", command);
-          Thread.sleep(repeat.delay);
-          addCommand(command);
+          logger.debug("Command {} is repeatable. Put it back to queue after {} ms.", command, repeat.delay);
+          scheduleRepeat(command, repeat.delay);
         }
 
-        JobHandlerCommand.Result result = command.run(jobId, contextId, jobHandler);
-        if (result.isLastCommand) {
-          logger.debug("Command {} is last command. Stop thread.", command);
+        try {
+          JobHandlerCommand.Result result = command.run(jobId, contextId, jobHandler);
+          if (result.isLastCommand) {
+            logger.debug("Command {} is last command. Stop runnable.", command);
+            stop();
+          }
+        } catch (Exception e) {
+          logger.error("JobHandlerRunnable faced a runtime error. Stop execution.", e);
           stop();
         }
-      } catch (Exception e) {
-        logger.error("JobHandlerRunnable faced a runtime error. Stop execution.", e);
-        stop();
       }
+    } finally {
+      submitted.set(false);
+    }
+    // commands added while the queue was being drained
+    if (!isStopped() && !commands.isEmpty()) {
+      submit();
     }
-    logger.info("JobHandlerRunnable {} finished.", Thread.currentThread().getName());
   }
 
   /**
-   * Add command to queue 
+   * Add command to queue
    */
   public void addCommand(JobHandlerCommand command) {
     if (stop.get()) {
-      logger.error("Failed to add command {}. Thread is stopped.", command);
+      logger.error("Failed to add command {}. Runnable is stopped.", command);
+      return;
     }
     this.commands.add(command);
+    submit();
+  }
+
+  /**
+   * Runs scheduled repeatable command now (for example when container exit is observed)
+   */
+  public void wakeUp() {
+    JobHandlerCommand command;
+    synchronized (this) {
+      if (repeatFuture == null || !repeatFuture.cancel(false)) {
+        return;
+      }
+      command = repeatCommand;
+      repeatFuture = null;
+      repeatCommand = null;
+    }
+    addCommand(command);
   }
 
   /**
    * Stop runnable
    */
   public void stop() {
-    stop.set(true);
-    logger.info("JobHandlerRunnable {} stopped.", Thread.currentThread().getName());
+    if (stop.compareAndSet(false, true)) {
+      synchronized (this) {
+        if (repeatFuture != null) {
+          repeatFuture.cancel(false);
+          repeatFuture = null;
+          repeatCommand = null;
+        }
+      }
+      commands.clear();
+      done.set(null);
+      logger.info("JobHandlerRunnable for Job {} stopped.", jobId);
+    }
   }
 
   /**
-   * Is runnable stopped? 
+   * Is runnable stopped?
    */
   public boolean isStopped() {
     return stop.get();
   }
 
+  /**
+   * Future completed when the runnable stops
+   */
+  public ListenableFuture<Void> getDone() {
+    return done;
+  }
+
+  private void submit() {
+    if (submitted.compareAndSet(false, true)) {
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        submitted.set(false);
+        logger.error("Failed to submit JobHandlerRunnable for Job " + jobId + ".", e);
+      }
+    }
+  }
+
+  private synchronized void scheduleRepeat(final JobHandlerCommand command, long delay) {
+    repeatCommand = command;
+    repeatFuture = scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (JobHandlerRunnable.this) {
+          if (repeatCommand != command) {
+            return;
+          }
+          repeatFuture = null;
+          repeatCommand = null;
+        }
+        addCommand(command);
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
 }
@@ -2,6 +2,7 @@ package org.rabix.executor.execution.command;
 
 import javax.inject.Inject;
 
+import org.rabix.bindings.BindingException;
 import org.rabix.bindings.model.Job;
 import org.rabix.executor.ExecutorException;
 import org.rabix.executor.execution.JobHandlerCommand;
@@ -9,16 +10,24 @@ import org.rabix.executor.handler.JobHandler;
 import org.rabix.executor.model.JobData;
 import org.rabix.executor.model.JobData.JobDataStatus;
 import org.rabix.executor.service.JobDataService;
+import org.rabix.executor.service.JobFitter;
 import org.rabix.executor.status.ExecutorStatusCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Command that starts {@link JobHandler}
  */
 public class StartCommand extends JobHandlerCommand {
 
+  private final static Logger logger = LoggerFactory.getLogger(StartCommand.class);
+
+  private JobFitter jobFitter;
+
   @Inject
-  public StartCommand(JobDataService jobDataService, ExecutorStatusCallback statusCallback) {
+  public StartCommand(JobDataService jobDataService, ExecutorStatusCallback statusCallback, JobFitter jobFitter) {
     super(jobDataService, statusCallback);
+    this.jobFitter = jobFitter;
   }
 
   @Override
@@ -32,6 +41,11 @@ public class StartCommand extends JobHandlerCommand {
       String message = String.format("Failed to start %s. %s", job.getId(), e.toString());
       data = jobDataService.save(data, message, JobDataStatus.FAILED);
       failed(data, message, handler.getEngineStub(), e);
+      try {
+        jobFitter.free(job);
+      } catch (BindingException be) {
+        logger.error("Failed to free resources of Job " + job.getId() + ".", be);
+      }
       return new Result(true);
     }
     return new Result(false);
@@ -4,6 +4,7 @@ import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
+import org.rabix.bindings.BindingException;
 import org.rabix.bindings.model.Job;
 import org.rabix.executor.execution.JobHandlerCommand;
 import org.rabix.executor.handler.JobHandler;
@@ -64,6 +65,11 @@ public class StatusCommand extends JobHandlerCommand {
       String message = String.format("Failed to execute status command for %s. %s", jobId, e.getMessage());
       jobData = jobDataService.save(jobData, message, JobDataStatus.FAILED);
       failed(jobData, message, jobHandler.getEngineStub(), e);
+      try {
+        jobFitter.free(jobData.getJob());
+      } catch (BindingException be) {
+        logger.error("Failed to free resources of Job " + jobId + ".", be);
+      }
       return new Result(true);
     }
     return new Result(true);
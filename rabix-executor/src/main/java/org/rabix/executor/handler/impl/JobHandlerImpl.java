@@ -46,7 +46,7 @@ import org.rabix.executor.container.ContainerException;
 import org.rabix.executor.container.ContainerHandler;
 import org.rabix.executor.container.ContainerHandlerFactory;
 import org.rabix.executor.container.impl.CompletedContainerHandler;
-import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientLockDecorator;
+import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientDecorator;
 import org.rabix.executor.engine.EngineStub;
 import org.rabix.executor.handler.JobHandler;
 import org.rabix.executor.model.JobData;
@@ -85,7 +85,7 @@ public class JobHandlerImpl implements JobHandler {
   private DockerConfigation dockerConfig;
   private StorageConfiguration storageConfiguration;
   private ContainerHandler containerHandler;
-  private DockerClientLockDecorator dockerClient;
+  private DockerClientDecorator dockerClient;
 
   private final ExecutorStatusCallback statusCallback;
   
@@ -99,7 +99,7 @@ public class JobHandlerImpl implements JobHandler {
       @Assisted Job job, @Assisted EngineStub<?, ?, ?> engineStub, 
       JobDataService jobDataService, Configuration configuration, StorageConfiguration storageConfig, 
       DockerConfigation dockerConfig, FileConfiguration fileConfiguration, 
-      DockerClientLockDecorator dockerClient, ExecutorStatusCallback statusCallback,
+      DockerClientDecorator dockerClient, ExecutorStatusCallback statusCallback,
       ResultCacheService cacheService, FilePermissionService filePermissionService, 
       UploadService uploadService, DownloadService downloadService,
       @InputFileMapper FilePathMapper inputFileMapper, @OutputFileMapper FilePathMapper outputFileMapper) {
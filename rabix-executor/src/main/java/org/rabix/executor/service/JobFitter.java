@@ -7,6 +7,41 @@ public interface JobFitter {
 
   boolean tryToFit(Job job) throws BindingException;
 
+  /**
+   * Frees resources of the job (or forgets the job if it never fitted)
+   */
   void free(Job job) throws BindingException;
+
+  /**
+   * Free CPU cores (null if resources are not tracked)
+   */
+  Long getAvailableCores();
+
+  /**
+   * Free memory in MB (null if resources are not tracked)
+   */
+  Long getAvailableMemory();
+
+  /**
+   * Free disk space of the execution directory in MB (null if resources are not tracked)
+   */
+  Long getAvailableDisk();
+
+  /**
+   * Registers listener that is notified when resources are freed
+   */
+  void addListener(ResourceListener listener);
+
+  /**
+   * Resource change listener
+   */
+  public static interface ResourceListener {
+
+    /**
+     * Called after resources of a job are freed
+     */
+    void onFree();
+
+  }
   
 }
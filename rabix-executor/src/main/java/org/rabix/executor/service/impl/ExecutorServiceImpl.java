@@ -18,6 +18,7 @@ import org.rabix.executor.model.JobData;
 import org.rabix.executor.model.JobData.JobDataStatus;
 import org.rabix.executor.service.ExecutorService;
 import org.rabix.executor.service.FileService;
+import org.rabix.executor.service.JobFitter;
 import org.rabix.executor.service.JobDataService;
 import org.rabix.executor.service.ResultCacheService;
 import org.rabix.transport.backend.Backend;
@@ -40,14 +41,16 @@ public class ExecutorServiceImpl implements ExecutorService {
 
   private FileService fileService;
   private Configuration configuration;
+  private JobFitter jobFitter;
   private EngineStub<?,?,?> engineStub;
   
   private boolean cachingEnabled;
   private ResultCacheService resultCacheService;
 
   @Inject
-  public ExecutorServiceImpl(JobDataService jobDataService, FileService fileService, ResultCacheService resultCacheService, Configuration configuration) {
+  public ExecutorServiceImpl(JobDataService jobDataService, FileService fileService, ResultCacheService resultCacheService, JobFitter jobFitter, Configuration configuration) {
     this.fileService = fileService;
+    this.jobFitter = jobFitter;
     this.configuration = configuration;
     this.jobDataService = jobDataService;
     this.resultCacheService = resultCacheService;
@@ -59,13 +62,13 @@ public class ExecutorServiceImpl implements ExecutorService {
     try {
       switch (backend.getType()) {
       case LOCAL:
-        engineStub = new EngineStubLocal((BackendLocal) backend, this, configuration);
+        engineStub = new EngineStubLocal((BackendLocal) backend, this, jobFitter, configuration);
         break;
       case RABBIT_MQ:
-        engineStub = new EngineStubRabbitMQ((BackendRabbitMQ) backend, this, configuration);
+        engineStub = new EngineStubRabbitMQ((BackendRabbitMQ) backend, this, jobFitter, configuration);
         break;
       case ACTIVE_MQ:
-        engineStub = new EngineStubActiveMQ((BackendActiveMQ) backend, this, configuration);
+        engineStub = new EngineStubActiveMQ((BackendActiveMQ) backend, this, jobFitter, configuration);
       default:
         break;
       }
@@ -109,7 +112,7 @@ public class ExecutorServiceImpl implements ExecutorService {
 
     for (String id : ids) {
       final JobData jobData = jobDataService.find(id, contextId);
-      if (!isFinished(jobData.getStatus())) {
+      if (jobData != null && !isFinished(jobData.getStatus())) {
         jobDataService.save(jobData, "Stopping job", JobDataStatus.ABORTING);
       }
     }
@@ -155,7 +158,7 @@ public class ExecutorServiceImpl implements ExecutorService {
   @Override
   public Map<String, Object> getResult(String id, String contextId) {
     JobData jobData = jobDataService.find(id, contextId);
-    return jobData.getResult();
+    return jobData != null ? jobData.getResult() : null;
   }
 
   @Override
@@ -10,7 +10,7 @@ import org.apache.commons.configuration.Configuration;
 import org.rabix.bindings.model.Job;
 import org.rabix.executor.config.StorageConfiguration;
 import org.rabix.executor.container.ContainerException;
-import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientLockDecorator;
+import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientDecorator;
 import org.rabix.executor.service.FilePermissionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,13 +28,13 @@ public class FilePermissionServiceImpl implements FilePermissionService {
   private final static String DIRECTORY_MAP_MODE = "rw";
 
   private final StorageConfiguration storageConfig;
-  private final DockerClientLockDecorator dockerClient;
+  private final DockerClientDecorator dockerClient;
 
   private final String permissionUID;
   private final String permissionGID;
 
   @Inject
-  public FilePermissionServiceImpl(DockerClientLockDecorator dockerClient, StorageConfiguration storageConfiguration, Configuration configuration) {
+  public FilePermissionServiceImpl(DockerClientDecorator dockerClient, StorageConfiguration storageConfiguration, Configuration configuration) {
     this.dockerClient = dockerClient;
     this.storageConfig = storageConfiguration;
     
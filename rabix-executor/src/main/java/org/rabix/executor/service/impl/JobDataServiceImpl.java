@@ -1,16 +1,29 @@
 package org.rabix.executor.service.impl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.configuration.Configuration;
 import org.rabix.bindings.BindingException;
+import org.rabix.bindings.model.Job;
+import org.rabix.bindings.model.Resources;
+import org.rabix.executor.config.DockerConfigation;
+import org.rabix.executor.container.impl.DockerContainerHandler;
+import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientDecorator;
 import org.rabix.executor.engine.EngineStub;
 import org.rabix.executor.execution.JobHandlerCommandDispatcher;
 import org.rabix.executor.execution.command.StartCommand;
@@ -24,127 +37,504 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
+/**
+ * Keeps {@link JobData} per context and starts pending jobs.
+ *
+ * Pending jobs wait in a priority queue (older roots first, then jobs with higher priority hint, then larger resource
+ * requirements) and aborting jobs in a separate queue. The scheduler thread tries a newly queued job on its own and goes
+ * through the whole queue only when {@link JobFitter} frees resources, stopping once no cores or memory are left. Docker
+ * images of jobs that don't fit yet are pulled in background and ready jobs are started once their images are present. Terminal entries are evicted once there are more than the configured number of
+ * them.
+ */
 public class JobDataServiceImpl implements JobDataService {
 
   private final static Logger logger = LoggerFactory.getLogger(JobDataServiceImpl.class);
 
-  private final Map<String, Map<String, JobData>> jobDataMap = new HashMap<>();
+  public final static String RETENTION_KEY = "executor.jobdata.retention.max_finished";
+
+  /**
+   * Job config key of the optional (integer) priority hint, for example the length of the critical path below the job
+   */
+  public final static String PRIORITY_KEY = "executor.priority";
+
+  private final ConcurrentMap<String, ConcurrentMap<String, JobData>> jobDataMap = new ConcurrentHashMap<>();
+
+  private final AtomicLong sequence = new AtomicLong(0);
+  private final ConcurrentMap<String, Long> rootSequences = new ConcurrentHashMap<>();
+
+  /**
+   * Guards queued keys, arrived and aborting jobs, finished keys and the rescan flag
+   */
+  private final Object lock = new Object();
+
+  private final Map<JobKey, PendingJob> pendingByKey = new HashMap<>();
+  private final Queue<PendingJob> arrived = new ArrayDeque<>();
+  private final Queue<JobData> aborting = new ArrayDeque<>();
+  private final LinkedHashSet<JobKey> finished = new LinkedHashSet<>();
+  private boolean rescan = false;
+
+  /**
+   * Jobs that didn't fit (accessed only by the scheduler thread)
+   */
+  private final TreeSet<PendingJob> pending = new TreeSet<>();
+
+  private final int maxFinished;
 
   private Provider<StopCommand> stopCommandProvider;
   private Provider<StartCommand> startCommandProvider;
   private Provider<StatusCommand> statusCommandProvider;
-  
+
   private JobHandlerCommandDispatcher jobHandlerCommandDispatcher;
 
   private EngineStub<?,?,?> engineStub;
-  
-  private ScheduledExecutorService starter = Executors.newSingleThreadScheduledExecutor();
+
+  private ExecutorService starter = Executors.newSingleThreadExecutor();
 
   private JobFitter jobFitter;
 
+  private DockerClientDecorator dockerClient;
+  private DockerConfigation dockerConfig;
+
   @Inject
   public JobDataServiceImpl(JobHandlerCommandDispatcher jobHandlerCommandDispatcher,
       Provider<StopCommand> stopCommandProvider, Provider<StartCommand> startCommandProvider,
-      Provider<StatusCommand> statusCommandProvider, JobFitter jobFitter) {
+      Provider<StatusCommand> statusCommandProvider, JobFitter jobFitter, DockerClientDecorator dockerClient,
+      DockerConfigation dockerConfig, Configuration configuration) {
     this.jobFitter = jobFitter;
+    this.dockerClient = dockerClient;
+    this.dockerConfig = dockerConfig;
     this.jobHandlerCommandDispatcher = jobHandlerCommandDispatcher;
     this.stopCommandProvider = stopCommandProvider;
     this.startCommandProvider = startCommandProvider;
     this.statusCommandProvider = statusCommandProvider;
+    this.maxFinished = configuration.getInt(RETENTION_KEY, 10000);
   }
-  
+
   @Override
   public void initialize(EngineStub<?,?,?> engineStub) {
     this.engineStub = engineStub;
-    this.starter.scheduleAtFixedRate(new JobStatusHandler(), 0, 100, TimeUnit.MILLISECONDS);
+    this.jobFitter.addListener(new JobFitter.ResourceListener() {
+      @Override
+      public void onFree() {
+        rescan();
+      }
+    });
+    this.starter.execute(new JobStatusHandler());
+    rescan();
   }
-  
+
   @Override
   public JobData find(String id, String contextId) {
     Preconditions.checkNotNull(id);
-    synchronized (jobDataMap) {
-      return getJobDataMap(contextId).get(id);
-    }
+    Map<String, JobData> contextJobs = jobDataMap.get(contextId);
+    return contextJobs != null ? contextJobs.get(id) : null;
   }
 
   @Override
   public List<JobData> find(JobDataStatus... statuses) {
     Preconditions.checkNotNull(statuses);
 
-    synchronized (jobDataMap) {
-      List<JobDataStatus> statusList = Arrays.asList(statuses);
-      List<JobData> jobDataByStatus = new ArrayList<>();
-      for (Entry<String, Map<String, JobData>> entry : jobDataMap.entrySet()) {
-        for (JobData jobData : entry.getValue().values()) {
-          if (statusList.contains(jobData.getStatus())) {
-            jobDataByStatus.add(jobData);
-          }
+    List<JobDataStatus> statusList = Arrays.asList(statuses);
+    List<JobData> jobDataByStatus = new ArrayList<>();
+    for (Map<String, JobData> contextJobs : jobDataMap.values()) {
+      for (JobData jobData : contextJobs.values()) {
+        if (statusList.contains(jobData.getStatus())) {
+          jobDataByStatus.add(jobData);
         }
       }
-      return jobDataByStatus;
     }
+    return jobDataByStatus;
   }
 
   @Override
   public void save(JobData jobData) {
     Preconditions.checkNotNull(jobData);
-    synchronized (jobDataMap) {
-      getJobDataMap(jobData.getJob().getRootId()).put(jobData.getId(), jobData);
+    String contextId = jobData.getJob().getRootId();
+    ConcurrentMap<String, JobData> contextJobs = getJobDataMap(contextId);
+    contextJobs.put(jobData.getId(), jobData);
+    while (jobDataMap.get(contextId) != contextJobs) {
+      // context map has been evicted concurrently
+      contextJobs = getJobDataMap(contextId);
+      contextJobs.put(jobData.getId(), jobData);
+    }
+
+    JobKey key = new JobKey(contextId, jobData.getId());
+    switch (jobData.getStatus()) {
+    case PENDING:
+      enqueue(key, jobData);
+      break;
+    case ABORTING:
+      synchronized (lock) {
+        aborting.add(jobData);
+        lock.notifyAll();
+      }
+      break;
+    case COMPLETED:
+    case FAILED:
+    case ABORTED:
+      retain(key);
+      break;
+    default:
+      break;
     }
   }
-  
+
   @Override
   public JobData save(JobData jobData, String message, JobDataStatus status) {
     Preconditions.checkNotNull(jobData);
-    synchronized (jobDataMap) {
-      jobData = JobData.cloneWithStatusAndMessage(jobData, status, message);
-      save(jobData);
-      return jobData;
+    jobData = JobData.cloneWithStatusAndMessage(jobData, status, message);
+    save(jobData);
+    return jobData;
+  }
+
+  private ConcurrentMap<String, JobData> getJobDataMap(String contextId) {
+    ConcurrentMap<String, JobData> jobList = jobDataMap.get(contextId);
+    if (jobList == null) {
+      jobList = new ConcurrentHashMap<>();
+      ConcurrentMap<String, JobData> existing = jobDataMap.putIfAbsent(contextId, jobList);
+      if (existing != null) {
+        jobList = existing;
+      }
     }
+    return jobList;
   }
-  
-  private Map<String, JobData> getJobDataMap(String contextId) {
-    synchronized (jobDataMap) {
-      Map<String, JobData> jobList = jobDataMap.get(contextId);
-      if (jobList == null) {
-        jobList = new HashMap<>();
-        jobDataMap.put(contextId, jobList);
+
+  private void enqueue(JobKey key, JobData jobData) {
+    Long rootSequence = rootSequences.get(key.contextId);
+    if (rootSequence == null) {
+      rootSequence = sequence.incrementAndGet();
+      Long existing = rootSequences.putIfAbsent(key.contextId, rootSequence);
+      if (existing != null) {
+        rootSequence = existing;
+      }
+    }
+    synchronized (lock) {
+      if (!pendingByKey.containsKey(key)) {
+        PendingJob pendingJob = new PendingJob(key, rootSequence, priority(jobData.getJob()), size(jobData.getJob()), sequence.incrementAndGet());
+        pendingByKey.put(key, pendingJob);
+        arrived.add(pendingJob);
+        lock.notifyAll();
       }
-      return jobList;
     }
   }
-  
+
+  /**
+   * Remembers terminal entry and evicts the oldest ones
+   */
+  private void retain(JobKey key) {
+    List<JobKey> evicted = null;
+    synchronized (lock) {
+      finished.add(key);
+      while (finished.size() > maxFinished) {
+        Iterator<JobKey> iterator = finished.iterator();
+        if (evicted == null) {
+          evicted = new ArrayList<>();
+        }
+        evicted.add(iterator.next());
+        iterator.remove();
+      }
+    }
+    if (evicted == null) {
+      return;
+    }
+    for (JobKey evictedKey : evicted) {
+      Map<String, JobData> contextJobs = jobDataMap.get(evictedKey.contextId);
+      if (contextJobs == null) {
+        continue;
+      }
+      JobData jobData = contextJobs.get(evictedKey.id);
+      if (jobData != null && isTerminal(jobData.getStatus())) {
+        contextJobs.remove(evictedKey.id);
+      }
+      if (contextJobs.isEmpty()) {
+        jobDataMap.remove(evictedKey.contextId, contextJobs);
+        rootSequences.remove(evictedKey.contextId);
+      }
+    }
+  }
+
+  /**
+   * Makes the scheduler go through all queued jobs
+   */
+  private void rescan() {
+    synchronized (lock) {
+      rescan = true;
+      lock.notifyAll();
+    }
+  }
+
+  private boolean isTerminal(JobDataStatus status) {
+    return JobDataStatus.COMPLETED.equals(status) || JobDataStatus.FAILED.equals(status) || JobDataStatus.ABORTED.equals(status);
+  }
+
+  private int priority(Job job) {
+    Object priority = job.getConfig() != null ? job.getConfig().get(PRIORITY_KEY) : null;
+    if (priority instanceof Number) {
+      return ((Number) priority).intValue();
+    }
+    if (priority instanceof String) {
+      try {
+        return Integer.parseInt((String) priority);
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid priority {} for Job {}", priority, job.getId());
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Resources used to order jobs of the same root (larger jobs go first, smaller ones fill the gaps)
+   */
+  private long size(Job job) {
+    Resources resources = job.getResources();
+    if (resources == null) {
+      return 0;
+    }
+    long cpu = resources.getCpu() != null ? resources.getCpu() : 0;
+    long memory = resources.getMemMB() != null ? resources.getMemMB() : 0;
+    return cpu * 1024 + memory;
+  }
+
   private class JobStatusHandler implements Runnable {
     @Override
     public void run() {
-      synchronized (jobDataMap) {
-        List<JobData> aborting = find(JobDataStatus.ABORTING);
-        for (JobData jobData : aborting) {
+      while (!Thread.currentThread().isInterrupted()) {
+        List<JobData> abortingJobs;
+        List<PendingJob> arrivedJobs;
+        boolean rescanAll;
+        synchronized (lock) {
+          while (aborting.isEmpty() && arrived.isEmpty() && !rescan) {
+            try {
+              lock.wait();
+            } catch (InterruptedException e) {
+              return;
+            }
+          }
+          abortingJobs = new ArrayList<>(aborting);
+          aborting.clear();
+          arrivedJobs = new ArrayList<>(arrived);
+          arrived.clear();
+          rescanAll = rescan;
+          rescan = false;
+        }
+
+        for (JobData jobData : abortingJobs) {
+          PendingJob pendingJob = forget(new JobKey(jobData.getJob().getRootId(), jobData.getId()));
+          if (pendingJob != null) {
+            pending.remove(pendingJob);
+          }
           save(JobData.cloneWithStatus(jobData, JobDataStatus.ABORTED));
           jobHandlerCommandDispatcher.dispatch(jobData, stopCommandProvider.get(), engineStub);
         }
 
-        List<JobData> pending = find(JobDataStatus.PENDING);
-
-        JobData jobData = null;
-        for (int i = 0; i < pending.size(); i++) {
-          try {
-            jobData = pending.get(i);
-            if (!jobFitter.tryToFit(jobData.getJob())) {
-              continue;
+        Collections.sort(arrivedJobs);
+        if (rescanAll) {
+          pending.addAll(arrivedJobs);
+          Iterator<PendingJob> iterator = pending.iterator();
+          while (iterator.hasNext() && !isExhausted()) {
+            PendingJob pendingJob = iterator.next();
+            if (tryToStart(pendingJob)) {
+              iterator.remove();
+              forget(pendingJob.key);
             }
-            save(JobData.cloneWithStatus(jobData, JobDataStatus.READY));
-
-            jobHandlerCommandDispatcher.dispatch(jobData, startCommandProvider.get(), engineStub);
-            jobHandlerCommandDispatcher.dispatch(jobData, statusCommandProvider.get(), engineStub);
-          } catch (BindingException e) {
-            logger.error("Failed to schedule Job " + jobData.getId() + " for execution.", e);
           }
+        } else {
+          // resources only shrink between frees, so jobs that already wait can't fit now
+          for (PendingJob pendingJob : arrivedJobs) {
+            if (tryToStart(pendingJob)) {
+              forget(pendingJob.key);
+            } else {
+              pending.add(pendingJob);
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Starts the job if it fits. Returns false if the job stays queued.
+     */
+    private boolean tryToStart(PendingJob pendingJob) {
+      JobData jobData = find(pendingJob.key.id, pendingJob.key.contextId);
+      if (jobData == null || !JobDataStatus.PENDING.equals(jobData.getStatus())) {
+        return true;
+      }
+      try {
+        if (!jobFitter.tryToFit(jobData.getJob())) {
+          prefetch(pendingJob, jobData.getJob());
+          return false;
+        }
+      } catch (BindingException e) {
+        logger.error("Failed to schedule Job " + jobData.getId() + " for execution.", e);
+        return false;
+      } catch (RuntimeException e) {
+        logger.error("Failed to schedule Job " + jobData.getId() + " for execution.", e);
+        return false;
+      }
+      try {
+        jobData = JobData.cloneWithStatus(jobData, JobDataStatus.READY);
+        save(jobData);
+        start(jobData);
+      } catch (RuntimeException e) {
+        logger.error("Failed to start Job " + jobData.getId() + ".", e);
+      }
+      return true;
+    }
+
+    /**
+     * Checks if there are no cores or memory left for another job
+     */
+    private boolean isExhausted() {
+      Long cores = jobFitter.getAvailableCores();
+      Long memory = jobFitter.getAvailableMemory();
+      return (cores != null && cores <= 0) || (memory != null && memory <= 0);
+    }
+
+    /**
+     * Dispatches start of the ready job once its Docker image is present, so job handler threads don't wait for pulls
+     */
+    private void start(final JobData jobData) {
+      String image = null;
+      try {
+        image = dockerConfig.isDockerSupported() ? DockerContainerHandler.getDockerImage(jobData.getJob()) : null;
+      } catch (BindingException e) {
+        logger.debug("Failed to find Docker image of Job " + jobData.getId() + ".", e);
+      }
+      if (image == null) {
+        dispatchStart(jobData);
+        return;
+      }
+      Futures.addCallback(dockerClient.fetch(image), new FutureCallback<Void>() {
+        @Override
+        public void onSuccess(Void result) {
+          dispatchStart(jobData);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          // start pulls the image again and reports the failure
+          logger.warn("Failed to pull Docker image of Job " + jobData.getId() + ".", t);
+          dispatchStart(jobData);
+        }
+      }, MoreExecutors.directExecutor());
+    }
+
+    private void dispatchStart(JobData jobData) {
+      JobData current = find(jobData.getId(), jobData.getJob().getRootId());
+      if (current == null || !JobDataStatus.READY.equals(current.getStatus())) {
+        return; // aborted while the image was pulled
+      }
+      jobHandlerCommandDispatcher.dispatch(current, startCommandProvider.get(), engineStub);
+      jobHandlerCommandDispatcher.dispatch(current, statusCommandProvider.get(), engineStub);
+    }
+
+    /**
+     * Starts pulling the image of the waiting job (once per job)
+     */
+    private void prefetch(PendingJob pendingJob, Job job) {
+      if (pendingJob.prefetched || !dockerConfig.isDockerSupported()) {
+        return;
+      }
+      pendingJob.prefetched = true;
+      try {
+        String image = DockerContainerHandler.getDockerImage(job);
+        if (image != null) {
+          dockerClient.prefetch(image);
         }
+      } catch (BindingException e) {
+        logger.debug("Failed to find Docker image of Job " + job.getId() + ".", e);
+      }
+    }
+
+    private PendingJob forget(JobKey key) {
+      synchronized (lock) {
+        return pendingByKey.remove(key);
+      }
+    }
+  }
+
+  private static class JobKey {
+    private final String contextId;
+    private final String id;
+
+    JobKey(String contextId, String id) {
+      this.contextId = contextId;
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + ((contextId == null) ? 0 : contextId.hashCode());
+      result = prime * result + ((id == null) ? 0 : id.hashCode());
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (obj == null)
+        return false;
+      if (getClass() != obj.getClass())
+        return false;
+      JobKey other = (JobKey) obj;
+      if (contextId == null) {
+        if (other.contextId != null)
+          return false;
+      } else if (!contextId.equals(other.contextId))
+        return false;
+      if (id == null) {
+        if (other.id != null)
+          return false;
+      } else if (!id.equals(other.id))
+        return false;
+      return true;
+    }
+  }
+
+  /**
+   * Queued job. Ordered by root age, priority hint, size and queue order.
+   */
+  private static class PendingJob implements Comparable<PendingJob> {
+    private final JobKey key;
+    private final long rootSequence;
+    private final int priority;
+    private final long size;
+    private final long sequence;
+
+    /**
+     * Docker image pull started (accessed only by the scheduler thread)
+     */
+    private boolean prefetched = false;
+
+    PendingJob(JobKey key, long rootSequence, int priority, long size, long sequence) {
+      this.key = key;
+      this.rootSequence = rootSequence;
+      this.priority = priority;
+      this.size = size;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(PendingJob other) {
+      if (rootSequence != other.rootSequence) {
+        return rootSequence < other.rootSequence ? -1 : 1;
+      }
+      if (priority != other.priority) {
+        return priority > other.priority ? -1 : 1;
+      }
+      if (size != other.size) {
+        return size > other.size ? -1 : 1;
       }
+      return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
     }
   }
 
@@ -1,10 +1,17 @@
 package org.rabix.executor.service.impl;
 
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.apache.commons.configuration.Configuration;
 import org.rabix.bindings.BindingException;
 import org.rabix.bindings.Bindings;
 import org.rabix.bindings.BindingsFactory;
 import org.rabix.bindings.model.Job;
+import org.rabix.bindings.model.Resources;
 import org.rabix.bindings.model.requirement.ResourceRequirement;
 import org.rabix.common.SystemEnvironmentHelper;
 import org.rabix.executor.service.JobFitter;
@@ -13,76 +20,230 @@ import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 
+/**
+ * Tracks cores, memory and disk (output and tmp directories live in the execution directory).
+ *
+ * Requirements are resolved once per job and kept until the job is freed. Jobs are fitted greedily in the order they
+ * are offered, so smaller jobs fill the gaps. Once the first job that doesn't fit has waited longer than the
+ * reservation delay, freed resources are reserved for it and other jobs may only use what it doesn't need.
+ */
 public class JobFitterImpl implements JobFitter {
 
   private static final Logger logger = LoggerFactory.getLogger(JobFitterImpl.class);
-  
+
+  public static final String RESERVATION_DELAY_KEY = "resource.fitter.reservation.delay_ms";
+
   private Long availableCores;
   private Long availableMemory;
+  private Long availableDisk;
 
   private boolean isEnabled;
   private int runningProcesses = 0;
 
+  private final long reservationDelay;
+  private Demand reserved;
+
+  private final ConcurrentMap<String, Demand> demands = new ConcurrentHashMap<>();
+  private final List<ResourceListener> listeners = new CopyOnWriteArrayList<>();
+
   @Inject
   public JobFitterImpl(Configuration configuration) {
     this.isEnabled = configuration.getBoolean("resource.fitter.enabled", false);
-    
+    this.reservationDelay = configuration.getLong(RESERVATION_DELAY_KEY, 30000L);
+
     this.availableMemory = SystemEnvironmentHelper.getTotalPhysicalMemorySizeInMB();
     this.availableCores = SystemEnvironmentHelper.getNumberOfCores();
+    this.availableDisk = getUsableSpaceInMB(configuration.getString("backend.execution.directory"));
   }
-  
+
   @Override
-  public synchronized boolean tryToFit(Job job) throws BindingException {
+  public boolean tryToFit(Job job) throws BindingException {
     if (!isEnabled) {
       return true;
     }
-    Bindings bindings = BindingsFactory.create(job);
-    if (bindings.isSelfExecutable(job)) {
+    Demand demand = getDemand(job);
+    if (demand == null) {
       return true;
     }
-    ResourceRequirement resourceRequirement = bindings.getResourceRequirement(job);
 
-    boolean cpuFits = true;
-    Long cpu = resourceRequirement.getCpuMin();
-    if (cpu != null && cpu > availableCores) {
-      cpuFits = false;
-    }
+    synchronized (this) {
+      if (demand.allocated) {
+        return true;
+      }
+      boolean fits;
+      if (reserved != null && reserved != demand) {
+        // backfill, only resources the reserved job doesn't need
+        fits = fits(demand.cpu, unreserved(availableCores, reserved.cpu))
+            && fits(demand.memory, unreserved(availableMemory, reserved.memory))
+            && fits(demand.disk, unreserved(availableDisk, reserved.disk));
+      } else {
+        fits = runningProcesses == 0 || (fits(demand.cpu, availableCores) && fits(demand.memory, availableMemory) && fits(demand.disk, availableDisk));
+      }
 
-    boolean memoryFits = true;
-    Long memory = resourceRequirement.getMemMinMB();
-    if (memory != null && memory > availableMemory) {
-      memoryFits = false;
-    }
-    
-    if ((!cpuFits || !memoryFits) && runningProcesses > 0) {
-      return false;
+      if (!fits) {
+        if (reserved == null && System.currentTimeMillis() - demand.since >= reservationDelay) {
+          reserved = demand;
+          logger.info("Job {} doesn't fit for {} ms. Reserving resources.", job.getId(), reservationDelay);
+        }
+        return false;
+      }
+      if (reserved == demand) {
+        reserved = null;
+      }
+      demand.allocated = true;
+      runningProcesses++;
+      availableCores -= demand.cpu;
+      availableMemory -= demand.memory;
+      if (availableDisk != null) {
+        availableDisk -= demand.disk;
+      }
+      logger.info("Job {} fits. Number of running processes {}.", job.getId(), runningProcesses);
+      return true;
     }
-    
-    runningProcesses++;
-    availableCores -= cpu != null ? cpu : 0;
-    availableMemory -= memory != null ? memory : 0;
-    logger.info("Job {} fits. Number of running processes {}.", job.getId(), runningProcesses);
-    return true;
   }
 
   @Override
-  public synchronized void free(Job job) throws BindingException {
+  public void free(Job job) throws BindingException {
     if (!isEnabled) {
       return;
     }
+    Demand demand = demands.remove(key(job));
+    if (demand == null) {
+      return;
+    }
+
+    synchronized (this) {
+      if (reserved == demand) {
+        reserved = null;
+      }
+      if (demand.allocated) {
+        demand.allocated = false;
+        runningProcesses--;
+        availableCores += demand.cpu;
+        availableMemory += demand.memory;
+        if (availableDisk != null) {
+          availableDisk += demand.disk;
+        }
+        logger.info("Job {} freed reqsources. Number of running processes {}.", job.getId(), runningProcesses);
+      }
+    }
+
+    // listeners are notified outside of the monitor, they usually try to fit waiting jobs
+    for (ResourceListener listener : listeners) {
+      listener.onFree();
+    }
+  }
+
+  @Override
+  public void addListener(ResourceListener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public synchronized Long getAvailableCores() {
+    return isEnabled ? availableCores : null;
+  }
+
+  @Override
+  public synchronized Long getAvailableMemory() {
+    return isEnabled ? availableMemory : null;
+  }
+
+  @Override
+  public synchronized Long getAvailableDisk() {
+    return isEnabled ? availableDisk : null;
+  }
+
+  /**
+   * Resolves requirements of the job once (null for self executable jobs)
+   */
+  private Demand getDemand(Job job) throws BindingException {
+    String key = key(job);
+    Demand demand = demands.get(key);
+    if (demand != null) {
+      return demand != Demand.NONE ? demand : null;
+    }
 
     Bindings bindings = BindingsFactory.create(job);
     if (bindings.isSelfExecutable(job)) {
-      return;
+      demand = Demand.NONE;
+    } else {
+      ResourceRequirement resourceRequirement = bindings.getResourceRequirement(job);
+      Resources resources = job.getResources();
+
+      Long cpu = resourceRequirement != null ? resourceRequirement.getCpuMin() : null;
+      Long memory = resourceRequirement != null ? resourceRequirement.getMemMinMB() : null;
+      Long disk = resourceRequirement != null ? resourceRequirement.getDiskSpaceMinMB() : null;
+      if (disk == null && resources != null) {
+        disk = sum(resources.getOutDirSize(), resources.getTmpDirSize());
+      }
+      demand = new Demand(value(cpu), value(memory), value(disk));
+    }
+    Demand existing = demands.putIfAbsent(key, demand);
+    if (existing != null) {
+      demand = existing;
+    }
+    return demand != Demand.NONE ? demand : null;
+  }
+
+  private String key(Job job) {
+    return job.getRootId() + "/" + job.getId();
+  }
+
+  private static boolean fits(long required, Long available) {
+    return available == null || required <= available;
+  }
+
+  private static Long unreserved(Long available, long reserved) {
+    return available != null ? Math.max(0, available - reserved) : null;
+  }
+
+  private static long value(Long value) {
+    return value != null ? value : 0;
+  }
+
+  private static Long sum(Long first, Long second) {
+    if (first == null && second == null) {
+      return null;
+    }
+    return value(first) + value(second);
+  }
+
+  /**
+   * Usable space of the first existing directory on the path (null if not known)
+   */
+  private static Long getUsableSpaceInMB(String directory) {
+    if (directory == null) {
+      return null;
     }
-    
-    ResourceRequirement resourceRequirement = bindings.getResourceRequirement(job);
+    File file = new File(directory).getAbsoluteFile();
+    while (file != null && !file.exists()) {
+      file = file.getParentFile();
+    }
+    if (file == null) {
+      return null;
+    }
+    return SystemEnvironmentHelper.bytesToMeg(file.getUsableSpace());
+  }
+
+  /**
+   * Resolved requirements of a job
+   */
+  private static class Demand {
+    private static final Demand NONE = new Demand(0, 0, 0);
 
-    runningProcesses--;
-    availableCores += resourceRequirement.getCpuMin() != null ? resourceRequirement.getCpuMin() : 0;
-    availableMemory += resourceRequirement.getMemMinMB() != null ? resourceRequirement.getMemMinMB() : 0;
+    private final long cpu;
+    private final long memory;
+    private final long disk;
+    private final long since = System.currentTimeMillis();
 
-    logger.info("Job {} freed reqsources. Number of running processes {}.", job.getId(), runningProcesses);
+    private boolean allocated = false;
+
+    Demand(long cpu, long memory, long disk) {
+      this.cpu = cpu;
+      this.memory = memory;
+      this.disk = disk;
+    }
   }
-  
+
 }
@@ -0,0 +1,264 @@
+package org.rabix.executor.execution;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.MapConfiguration;
+import org.rabix.bindings.model.Job;
+import org.rabix.bindings.model.Job.JobStatus;
+import org.rabix.executor.ExecutorException;
+import org.rabix.executor.container.impl.DockerContainerHandler.DockerClientDecorator;
+import org.rabix.executor.engine.EngineStub;
+import org.rabix.executor.handler.JobHandler;
+import org.rabix.executor.handler.JobHandlerFactory;
+import org.rabix.executor.model.JobData;
+import org.rabix.executor.model.JobData.JobDataStatus;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = { "functional" })
+public class JobHandlerCommandDispatcherTest {
+
+  private static final String CONTEXT_ID = "root";
+
+  @Test
+  public void testThreadsAreBounded() throws Exception {
+    final AtomicInteger handlers = new AtomicInteger();
+    JobHandlerCommandDispatcher dispatcher = createDispatcher(2, new JobHandlerFactory() {
+      @Override
+      public JobHandler createHandler(Job job, EngineStub<?, ?, ?> engineStub) {
+        handlers.incrementAndGet();
+        return new FakeJobHandler();
+      }
+    });
+
+    final int jobs = 6;
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch finished = new CountDownLatch(jobs);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    for (int i = 0; i < jobs; i++) {
+      dispatcher.dispatch(createJobData("job" + i), new TestCommand() {
+        @Override
+        public Result run(String id, String contextId, JobHandler handler) {
+          threads.add(Thread.currentThread().getName());
+          int current = running.incrementAndGet();
+          synchronized (maxRunning) {
+            maxRunning.set(Math.max(maxRunning.get(), current));
+          }
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          running.decrementAndGet();
+          finished.countDown();
+          return new Result(false);
+        }
+      }, null);
+    }
+
+    waitFor(running, 2);
+    Thread.sleep(200);
+    Assert.assertEquals(running.get(), 2);
+
+    release.countDown();
+    Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(maxRunning.get(), 2);
+    Assert.assertTrue(threads.size() <= 2);
+    Assert.assertEquals(handlers.get(), jobs);
+  }
+
+  @Test
+  public void testNoCommandIsLost() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      final JobHandlerRunnable runnable = new JobHandlerRunnable("job", CONTEXT_ID, new FakeJobHandler(), executor, scheduler);
+
+      final int rounds = 20000;
+      final AtomicInteger executed = new AtomicInteger();
+      final AtomicInteger running = new AtomicInteger();
+      final AtomicInteger overlaps = new AtomicInteger();
+      TestCommand command = new TestCommand() {
+        @Override
+        public Result run(String id, String contextId, JobHandler handler) {
+          if (running.incrementAndGet() > 1) {
+            overlaps.incrementAndGet();
+          }
+          running.decrementAndGet();
+          executed.incrementAndGet();
+          return new Result(false);
+        }
+      };
+
+      // the second command of every round is added a bit later each time, so it moves through the end of the drain
+      for (int round = 0; round < rounds; round++) {
+        int before = executed.get();
+        runnable.addCommand(command);
+        spinUntil(executed, before + 1);
+        long delay = System.nanoTime() + (round % 100) * 20;
+        while (System.nanoTime() < delay) {
+          // spin
+        }
+        runnable.addCommand(command);
+        spinUntil(executed, before + 2);
+      }
+      Assert.assertEquals(executed.get(), 2 * rounds);
+      Assert.assertEquals(overlaps.get(), 0);
+    } finally {
+      executor.shutdownNow();
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWakeUpRunsStatusCheckOnce() throws Exception {
+    JobHandlerCommandDispatcher dispatcher = createDispatcher(2, new JobHandlerFactory() {
+      @Override
+      public JobHandler createHandler(Job job, EngineStub<?, ?, ?> engineStub) {
+        return new FakeJobHandler();
+      }
+    });
+
+    final AtomicInteger checks = new AtomicInteger();
+    TestCommand status = new TestCommand() {
+      @Override
+      public Repeat getRepeat() {
+        // only the first check is scheduled again, so later runs can only come from the scheduled repeat or wake up
+        return checks.get() == 0 ? new Repeat(500) : null;
+      }
+
+      @Override
+      public Result run(String id, String contextId, JobHandler handler) {
+        checks.incrementAndGet();
+        return new Result(false);
+      }
+    };
+
+    dispatcher.notifyExit("job", CONTEXT_ID);
+    dispatcher.dispatch(createJobData("job"), status, null);
+    waitFor(checks, 1);
+
+    dispatcher.notifyExit("job", CONTEXT_ID);
+    waitFor(checks, 2);
+
+    // the scheduled repeat was replaced by the wake up, nothing is left to run
+    dispatcher.notifyExit("job", CONTEXT_ID);
+    Thread.sleep(1000);
+    Assert.assertEquals(checks.get(), 2);
+  }
+
+  private JobHandlerCommandDispatcher createDispatcher(int threads, JobHandlerFactory jobHandlerFactory) throws Exception {
+    Map<String, Object> values = new HashMap<>();
+    values.put(JobHandlerCommandDispatcher.THREADS_KEY, threads);
+    values.put(DockerClientDecorator.DOCKER_HOST_CONFIG, DockerClientDecorator.DEFAULT_DOCKER_HOST);
+    Configuration configuration = new MapConfiguration(values);
+    return new JobHandlerCommandDispatcher(jobHandlerFactory, new DockerClientDecorator(configuration), configuration);
+  }
+
+  private JobData createJobData(String id) {
+    Job job = new Job(id, CONTEXT_ID, CONTEXT_ID, id, "app", JobStatus.READY, null, null, null, null, null, null);
+    return new JobData(job, JobDataStatus.READY, null, false, false);
+  }
+
+  private void waitFor(AtomicInteger value, int expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (value.get() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(value.get() >= expected, "Expected " + expected + " but was " + value.get());
+  }
+
+  private void spinUntil(AtomicInteger value, int expected) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    while (value.get() < expected) {
+      if (System.nanoTime() > deadline) {
+        Assert.fail("Command lost, expected " + expected + " but was " + value.get());
+      }
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Command that doesn't need JobData
+   */
+  private static abstract class TestCommand extends JobHandlerCommand {
+
+    TestCommand() {
+      super(null, null);
+    }
+
+    @Override
+    public abstract Result run(String id, String contextId, JobHandler handler);
+
+    @Override
+    public Result run(JobData jobData, JobHandler handler, String contextId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public JobHandlerCommandType getType() {
+      return JobHandlerCommandType.STATUS;
+    }
+  }
+
+  private static class FakeJobHandler implements JobHandler {
+
+    @Override
+    public void start() throws ExecutorException {
+    }
+
+    @Override
+    public void stop() throws ExecutorException {
+    }
+
+    @Override
+    public boolean isStarted() throws ExecutorException {
+      return true;
+    }
+
+    @Override
+    public boolean isRunning() throws ExecutorException {
+      return true;
+    }
+
+    @Override
+    public int getExitStatus() throws ExecutorException {
+      return DEFAULT_SUCCESS_CODE;
+    }
+
+    @Override
+    public Job postprocess(boolean isTerminal) throws ExecutorException {
+      return null;
+    }
+
+    @Override
+    public boolean isSuccessful(int processExitCode) throws ExecutorException {
+      return processExitCode == DEFAULT_SUCCESS_CODE;
+    }
+
+    @Override
+    public boolean isSuccessful() throws ExecutorException {
+      return true;
+    }
+
+    @Override
+    public EngineStub<?, ?, ?> getEngineStub() {
+      return null;
+    }
+  }
+
+}
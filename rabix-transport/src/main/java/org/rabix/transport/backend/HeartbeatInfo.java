@@ -8,11 +8,26 @@ public class HeartbeatInfo {
   private String id;
   @JsonProperty("timestamp")
   private Long timestamp;
+  @JsonProperty("availableCores")
+  private Long availableCores;
+  @JsonProperty("availableMemory")
+  private Long availableMemory;
   
+  public HeartbeatInfo(String id, Long timestamp) {
+    this(id, timestamp, null, null);
+  }
+
+  /**
+   * @param availableCores  Free CPU cores (null if the Backend doesn't track resources)
+   * @param availableMemory Free memory in MB (null if the Backend doesn't track resources)
+   */
   @JsonCreator
-  public HeartbeatInfo(@JsonProperty("id") String id, @JsonProperty("timestamp") Long timestamp) {
+  public HeartbeatInfo(@JsonProperty("id") String id, @JsonProperty("timestamp") Long timestamp,
+      @JsonProperty("availableCores") Long availableCores, @JsonProperty("availableMemory") Long availableMemory) {
     this.id = id;
     this.timestamp = timestamp;
+    this.availableCores = availableCores;
+    this.availableMemory = availableMemory;
   }
 
   public String getId() {
@@ -30,4 +45,20 @@ public class HeartbeatInfo {
   public void setTimestamp(Long timestamp) {
     this.timestamp = timestamp;
   }
-}
\ No newline at end of file
+
+  public Long getAvailableCores() {
+    return availableCores;
+  }
+
+  public void setAvailableCores(Long availableCores) {
+    this.availableCores = availableCores;
+  }
+
+  public Long getAvailableMemory() {
+    return availableMemory;
+  }
+
+  public void setAvailableMemory(Long availableMemory) {
+    this.availableMemory = availableMemory;
+  }
+}